@@ -29,6 +29,7 @@ import edu.cmu.tetrad.util.Parameters;
 import edu.cmu.tetrad.util.Params;
 import edu.pitt.dbmi.causal.experiment.calibration.GraphStatistics;
 import edu.pitt.dbmi.causal.experiment.tetrad.Graphs;
+import edu.pitt.dbmi.causal.experiment.util.DataResampler;
 import edu.pitt.dbmi.causal.experiment.util.DataSampling;
 import edu.pitt.dbmi.causal.experiment.util.GraphDetails;
 import edu.pitt.dbmi.causal.experiment.util.ResourceLoader;
@@ -41,7 +42,6 @@ import java.time.format.DateTimeFormatter;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
-import org.apache.commons.math3.random.RandomGenerator;
 
 /**
  *
@@ -63,8 +63,9 @@ public class RficGSquareBootstrapApp {
         // get algorithm parameters
         Parameters parameters = getParameters();
 
-        RandomGenerator randGen = DataSampling.createRandomGenerator(parameters);
-        List<DataSet> dataSets = DataSampling.sample(dataSet, parameters, randGen);
+        // samples are drawn as row indices and copied only while searched
+        DataResampler resampler = new DataResampler(dataSet, parameters, DataSampling.createRandomGenerator(parameters));
+        int numOfDataSamples = resampler.getNumberOfSamples();
 
         // start the timer
         final LocalDateTime startDateTime = LocalDateTime.now();
@@ -73,8 +74,8 @@ public class RficGSquareBootstrapApp {
         // run searches on sample data
         int numOfSearchRuns = 0;
         List<Graph> graphs = new LinkedList<>();
-        for (DataSet data : dataSets) {
-            Graph graph = runSearch(data, parameters);
+        for (int i = 0; i < numOfDataSamples; i++) {
+            Graph graph = runSearch(resampler.getDataSet(resampler.next()), parameters);
             if (GraphSearchUtils.isLegalPag(graph).isLegalPag()) {
                 graphs.add(graph);
             }
@@ -83,12 +84,11 @@ public class RficGSquareBootstrapApp {
 
         // continue to run searches until the number of desire graphs has reached
         int numOfAdditionalDataSampling = 0;
-        while (graphs.size() < dataSets.size()) {
+        while (graphs.size() < numOfDataSamples) {
             numOfAdditionalDataSampling++;
             numOfSearchRuns++;
 
-            DataSet sampleData = DataSampling.sampleWithReplacement(dataSet, randGen);
-            Graph graph = runSearch(sampleData, parameters);
+            Graph graph = runSearch(resampler.getDataSet(resampler.next()), parameters);
             if (GraphSearchUtils.isLegalPag(graph).isLegalPag()) {
                 graphs.add(graph);
             }
@@ -131,7 +131,7 @@ public class RficGSquareBootstrapApp {
             writer.println("========================================");
             writer.printf("Variables: %d%n", dataSet.getNumColumns());
             writer.printf("Cases: %d%n", dataSet.getNumRows());
-            writer.printf("Data Samples: %d%n", dataSets.size());
+            writer.printf("Data Samples: %d%n", numOfDataSamples);
             writer.println();
 
             writer.println("Search Run Details");
@@ -148,7 +148,7 @@ public class RficGSquareBootstrapApp {
             writer.println();
             writer.println("Data Sampling");
             writer.println("--------------------");
-            writer.printf("Number of initial data sampling: %d%n", dataSets.size());
+            writer.printf("Number of initial data sampling: %d%n", numOfDataSamples);
             writer.printf("Number of additional data sampling: %d%n", numOfAdditionalDataSampling);
             writer.println();
             writer.println("PAG Counts");
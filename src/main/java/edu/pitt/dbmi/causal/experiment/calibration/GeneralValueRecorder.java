@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.calibration;
+
+import edu.pitt.dbmi.causal.experiment.util.RecordSink;
+import edu.pitt.dbmi.lib.math.classification.calibration.HosmerLemeshowRiskGroupAccumulator;
+import edu.pitt.dbmi.lib.math.classification.roc.StreamingROC;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Writes the general values to a CSV file as they are recorded, in the same
+ * format as {@link GeneralValueStatistics#saveData(Path)} but in the order
+ * they are recorded. The values are not kept: the Hosmer-Lemeshow groups and
+ * the ROC curve are accumulated as the values are recorded.
+ *
+ * @author agent (agent@local)
+ */
+public final class GeneralValueRecorder implements Consumer<GeneralValue>, Closeable {
+
+    private final RecordSink<GeneralValue> sink;
+
+    private final HosmerLemeshowRiskGroupAccumulator hosmerLemeshow = new HosmerLemeshowRiskGroupAccumulator();
+    private final StreamingROC roc = new StreamingROC();
+    private int numOfValues;
+
+    public GeneralValueRecorder(Path file) throws IOException {
+        this.sink = new RecordSink<>(file, "Independent Test,Predicted,Observed",
+                value -> String.format("\"%s\",%f,%d", value.getLabel(), value.getPredictedValue(), value.getObservedValue()));
+    }
+
+    @Override
+    public void accept(GeneralValue value) {
+        synchronized (this) {
+            hosmerLemeshow.add(value.getObservedValue(), value.getPredictedValue());
+            roc.add(value.getObservedValue(), value.getPredictedValue());
+            numOfValues++;
+        }
+        sink.accept(value);
+    }
+
+    /**
+     * Get the statistics of the values recorded so far.
+     *
+     * @return statistics of the recorded values
+     */
+    public GeneralValueStatistics getStatistics() {
+        synchronized (this) {
+            if (numOfValues == 0) {
+                throw new IllegalStateException("No values have been recorded.");
+            }
+
+            // copy the curve, which keeps changing as values are recorded
+            StreamingROC rocCurve = new StreamingROC();
+            rocCurve.merge(roc);
+
+            return new GeneralValueStatistics(hosmerLemeshow.getHosmerLemeshow(), rocCurve);
+        }
+    }
+
+    public synchronized int getNumberOfValues() {
+        return numOfValues;
+    }
+
+    @Override
+    public void close() throws IOException {
+        sink.close();
+    }
+
+}
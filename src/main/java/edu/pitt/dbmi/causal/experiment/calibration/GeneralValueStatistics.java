@@ -4,6 +4,7 @@ import edu.pitt.dbmi.lib.math.classification.calibration.HosmerLemeshow;
 import edu.pitt.dbmi.lib.math.classification.calibration.HosmerLemeshowRiskGroup;
 import edu.pitt.dbmi.lib.math.classification.calibration.plot.HosmerLemeshowPlot;
 import edu.pitt.dbmi.lib.math.classification.data.ObservedPredictedValue;
+import edu.pitt.dbmi.lib.math.classification.data.PredictionColumns;
 import edu.pitt.dbmi.lib.math.classification.plot.PlotColors;
 import edu.pitt.dbmi.lib.math.classification.plot.PlotShapes;
 import edu.pitt.dbmi.lib.math.classification.roc.DeLongROCCurve;
@@ -14,7 +15,6 @@ import java.io.PrintStream;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
@@ -32,11 +32,46 @@ public class GeneralValueStatistics {
     private final ROC roc;
 
     public GeneralValueStatistics(Set<GeneralValue> generalValues) {
-        this.generalValues = generalValues;
+        this(generalValues, toPredictionColumns(generalValues));
+    }
+
+    /**
+     * Statistics of values that were not kept, such as the ones written out
+     * by a {@link GeneralValueRecorder}. The values cannot be saved.
+     *
+     * @param observedPredictedValues observed and predicted values
+     */
+    public GeneralValueStatistics(List<ObservedPredictedValue> observedPredictedValues) {
+        this(null, PredictionColumns.of(observedPredictedValues));
+    }
+
+    /**
+     * Statistics of values that were not kept, such as the ones written out
+     * by a {@link GeneralValueRecorder}. The values cannot be saved.
+     *
+     * @param predictionColumns observed and predicted values
+     */
+    public GeneralValueStatistics(PredictionColumns predictionColumns) {
+        this(null, predictionColumns);
+    }
 
-        List<ObservedPredictedValue> observedPredictedValues = toObservedPredictedValues(generalValues);
-        this.hosmerLemeshow = new HosmerLemeshowRiskGroup(observedPredictedValues);
-        this.roc = new DeLongROCCurve(observedPredictedValues);
+    /**
+     * Statistics computed elsewhere, for instance as the values were
+     * recorded. The values cannot be saved.
+     *
+     * @param hosmerLemeshow Hosmer-Lemeshow test of the values
+     * @param roc ROC curve of the values
+     */
+    public GeneralValueStatistics(HosmerLemeshow hosmerLemeshow, ROC roc) {
+        this.generalValues = null;
+        this.hosmerLemeshow = hosmerLemeshow;
+        this.roc = roc;
+    }
+
+    private GeneralValueStatistics(Set<GeneralValue> generalValues, PredictionColumns predictionColumns) {
+        this.generalValues = generalValues;
+        this.hosmerLemeshow = new HosmerLemeshowRiskGroup(predictionColumns);
+        this.roc = new DeLongROCCurve(predictionColumns);
     }
 
     public void saveStatistics(Path file) throws IOException {
@@ -70,6 +105,10 @@ public class GeneralValueStatistics {
     }
 
     public void saveData(Path file) throws IOException {
+        if (generalValues == null) {
+            throw new IllegalStateException("The values were not kept.");
+        }
+
         GeneralValue[] values = generalValues.toArray(GeneralValue[]::new);
         Arrays.sort(values, Collections.reverseOrder());
         try (PrintStream writer = new PrintStream(file.toFile())) {
@@ -80,14 +119,18 @@ public class GeneralValueStatistics {
         }
     }
 
-    private List<ObservedPredictedValue> toObservedPredictedValues(Set<GeneralValue> generalValues) {
-        List<ObservedPredictedValue> values = new LinkedList<>();
+    private static PredictionColumns toPredictionColumns(Set<GeneralValue> generalValues) {
+        double[] predictedValues = new double[generalValues.size()];
+        byte[] observedValues = new byte[generalValues.size()];
 
-        generalValues.forEach(value -> {
-            values.add(new ObservedPredictedValue(value.getObservedValue(), value.getPredictedValue()));
-        });
+        int index = 0;
+        for (GeneralValue value : generalValues) {
+            predictedValues[index] = value.getPredictedValue();
+            observedValues[index] = (byte) value.getObservedValue();
+            index++;
+        }
 
-        return values;
+        return new PredictionColumns(predictedValues, observedValues);
     }
 
 }
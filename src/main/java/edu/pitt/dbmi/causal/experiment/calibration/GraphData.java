@@ -18,19 +18,9 @@
  */
 package edu.pitt.dbmi.causal.experiment.calibration;
 
-import edu.cmu.tetrad.graph.Edge;
-import edu.cmu.tetrad.graph.EdgeTypeProbability;
 import edu.cmu.tetrad.graph.EdgeTypeProbability.EdgeType;
 import edu.cmu.tetrad.graph.Graph;
-import edu.cmu.tetrad.graph.Node;
-import edu.pitt.dbmi.causal.experiment.tetrad.Edges;
-import static edu.pitt.dbmi.causal.experiment.tetrad.Edges.getReversed;
 import java.io.PrintStream;
-import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 /**
@@ -45,17 +35,19 @@ public final class GraphData {
     }
 
     public static void write(Set<EdgeValue> edgeValues, PrintStream writer) {
-        edgeValues.forEach(edgeValue -> writer.println(lineData(edgeValue)));
+        edgeValues.forEach(edgeValue -> writer.println(lineData(
+                edgeValue.getNode1(), edgeValue.getNode2(), edgeValue.getEdgeType(),
+                edgeValue.getPredictedValue(), edgeValue.getObservedValue())));
     }
 
-    private static String lineData(EdgeValue edgeValue) {
-        String node1 = edgeValue.getNode1();
-        String node2 = edgeValue.getNode2();
-        double probability = edgeValue.getPredictedValue();
-        int observedValue = edgeValue.getObservedValue();
+    public static void write(GraphEvaluation.Table table, PrintStream writer) {
+        table.forEachRow((node1, node2, probability, observedValue)
+                -> writer.println(lineData(node1, node2, table.getEdgeType(), probability, observedValue)));
+    }
 
+    private static String lineData(String node1, String node2, EdgeType edgeType, double probability, int observedValue) {
         if (probability > 0) {
-            switch (edgeValue.getEdgeType()) {
+            switch (edgeType) {
                 case aa:
                     return String.format("%s <-> %s,%f,%d", node1, node2, probability, observedValue);
                 case ac:
@@ -74,7 +66,7 @@ public final class GraphData {
                     return String.format("no edge,%f,%d", probability, observedValue);
             }
         } else {
-            switch (edgeValue.getEdgeType()) {
+            switch (edgeType) {
                 case aa:
                     return String.format("%s <-> %s,0,%d", node1, node2, observedValue);
                 case ac:
@@ -96,24 +88,7 @@ public final class GraphData {
     }
 
     public static Set<EdgeValue> examineEdges(Graph searchGraph, Graph trueGraph) {
-        Set<EdgeValue> edgeValues = createEdgeValues(trueGraph);
-
-        edgeValues.forEach(edgeValue -> {
-            String node1 = edgeValue.getNode1();
-            String node2 = edgeValue.getNode2();
-
-            Edge trueEdge = trueGraph.getEdge(trueGraph.getNode(node1), trueGraph.getNode(node2));
-            if (trueEdge != null) {
-                edgeValue.setObservedValue(1);
-            }
-
-            Edge predictedEdge = searchGraph.getEdge(searchGraph.getNode(node1), searchGraph.getNode(node2));
-            if (predictedEdge != null) {
-                edgeValue.setPredictedValue(predictedEdge.getProbability());
-            }
-        });
-
-        return edgeValues;
+        return new GraphEvaluation(searchGraph, trueGraph, new EdgeType[0]).getAdjacencies().toEdgeValues();
     }
 
     public static Set<EdgeValue> examineDirectEdge(Graph searchGraph, Graph trueGraph) {
@@ -133,102 +108,7 @@ public final class GraphData {
     }
 
     public static Set<EdgeValue> examineEdgeType(Graph searchGraph, Graph trueGraph, EdgeType edgeType) {
-        Set<EdgeValue> edgeValues = createEdgeValues(trueGraph, edgeType);
-        setObservedValues(trueGraph, edgeValues);
-        setPredictedValues(searchGraph, edgeValues);
-
-        return edgeValues;
-    }
-
-    private static void setPredictedValues(Graph searchGraph, Set<EdgeValue> edgeValues) {
-        for (EdgeValue edgeValue : edgeValues) {
-            Node node1 = searchGraph.getNode(edgeValue.getNode1());
-            Node node2 = searchGraph.getNode(edgeValue.getNode2());
-            Edge predictedEdge = searchGraph.getEdge(node1, node2);
-            if (predictedEdge != null) {
-                List<EdgeTypeProbability> edgeTypeProbs = predictedEdge.getEdgeTypeProbabilities();
-                if (edgeTypeProbs != null) {
-                    for (EdgeTypeProbability edgeTypeProb : edgeTypeProbs) {
-                        if (node1 == predictedEdge.getNode1() && node2 == predictedEdge.getNode2()) {
-                            if (edgeValue.getEdgeType() == edgeTypeProb.getEdgeType()) {
-                                edgeValue.setPredictedValue(edgeTypeProb.getProbability());
-                            }
-                        } else if (node1 == predictedEdge.getNode2() && node2 == predictedEdge.getNode1()) {
-                            if (edgeValue.getEdgeType() == getReversed(edgeTypeProb.getEdgeType())) {
-                                edgeValue.setPredictedValue(edgeTypeProb.getProbability());
-                            }
-                        }
-                    }
-                }
-            }
-        }
-    }
-
-    private static void setObservedValues(Graph trueGraph, Set<EdgeValue> edgeValues) {
-        for (EdgeValue edgeValue : edgeValues) {
-            Node node1 = trueGraph.getNode(edgeValue.getNode1());
-            Node node2 = trueGraph.getNode(edgeValue.getNode2());
-            Edge trueEdge = trueGraph.getEdge(node1, node2);
-            if (trueEdge != null) {
-                if (edgeValue.getEdgeType() == Edges.getEdgeType(trueEdge, node1, node2)) {
-                    edgeValue.setObservedValue(1);
-                }
-            }
-        }
-    }
-
-    private static Set<EdgeValue> createEdgeValues(Graph graph) {
-        Set<EdgeValue> edgeValues = new LinkedHashSet<>();
-
-        String[] nodeNames = graph.getNodeNames().stream().toArray(String[]::new);
-        for (int i = 0; i < nodeNames.length - 1; i++) {
-            for (int j = i + 1; j < nodeNames.length; j++) {
-                String node1 = nodeNames[i];
-                String node2 = nodeNames[j];
-                edgeValues.add(new EdgeValue(node1, node2, EdgeType.tt));
-            }
-        }
-
-        return edgeValues;
-    }
-
-    private static Set<EdgeValue> createEdgeValues(Graph graph, EdgeType edgeType) {
-        Set<EdgeValue> edgeValues = new LinkedHashSet<>();
-
-        boolean isAsymmetric = !(edgeType == EdgeType.aa
-                || edgeType == EdgeType.cc
-                || edgeType == EdgeType.tt
-                || edgeType == EdgeType.nil);
-
-        Map<String, List<String>> variableCombinations = new LinkedHashMap<>();
-        String[] nodeNames = graph.getNodeNames().stream().toArray(String[]::new);
-        for (int i = 0; i < nodeNames.length - 1; i++) {
-            for (int j = i + 1; j < nodeNames.length; j++) {
-                String node1 = nodeNames[i];
-                String node2 = nodeNames[j];
-                List<String> variables = variableCombinations.get(node1);
-                if (variables == null) {
-                    variables = new LinkedList<>();
-                    variableCombinations.put(node1, variables);
-                }
-                variables.add(node2);
-
-                if (isAsymmetric) {
-                    variables = variableCombinations.get(node2);
-                    if (variables == null) {
-                        variables = new LinkedList<>();
-                        variableCombinations.put(node2, variables);
-                    }
-                    variables.add(node1);
-                }
-            }
-        }
-
-        variableCombinations.forEach((node1, variables) -> {
-            variables.forEach(node2 -> edgeValues.add(new EdgeValue(node1, node2, edgeType)));
-        });
-
-        return edgeValues;
+        return new GraphEvaluation(searchGraph, trueGraph, edgeType).getEdgeTypeTable(edgeType).toEdgeValues();
     }
 
 }
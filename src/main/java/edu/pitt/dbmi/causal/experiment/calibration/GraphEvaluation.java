@@ -0,0 +1,336 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.calibration;
+
+import edu.cmu.tetrad.graph.Edge;
+import edu.cmu.tetrad.graph.EdgeTypeProbability;
+import edu.cmu.tetrad.graph.EdgeTypeProbability.EdgeType;
+import edu.cmu.tetrad.graph.Graph;
+import edu.pitt.dbmi.causal.experiment.tetrad.Edges;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Predicted and observed values of the edges of a search graph against the
+ * true graph, for the adjacencies and for each edge type evaluated. Both
+ * graphs are mapped once to the indices of the nodes of the true graph and
+ * all the tables are filled in a single pass over their edges.
+ *
+ * The rows of each table are the pairs of nodes in the order GraphData lists
+ * them: the adjacency table and the tables of symmetric edge types (aa, cc,
+ * tt) have a row per unordered pair, row by row in the upper triangle of the
+ * adjacency matrix; the tables of asymmetric edge types (ta, ca, ...) have a
+ * row per ordered pair, row by row in the adjacency matrix without its
+ * diagonal.
+ *
+ * @author agent (agent@local)
+ */
+public final class GraphEvaluation {
+
+    /**
+     * Edge types evaluated by the runners.
+     */
+    public static final EdgeType[] EDGE_TYPES = {EdgeType.ta, EdgeType.ca, EdgeType.cc, EdgeType.aa};
+
+    private final String[] nodeNames;
+    private final Map<String, Integer> nodeIndices;
+
+    private final Table adjacencies;
+    private final Map<EdgeType, Table> edgeTypeTables = new EnumMap<>(EdgeType.class);
+
+    /**
+     * Evaluate the search graph against the true graph for the edge types
+     * the runners use.
+     *
+     * @param searchGraph graph whose edges have edge-type probabilities
+     * @param trueGraph true graph
+     */
+    public GraphEvaluation(Graph searchGraph, Graph trueGraph) {
+        this(searchGraph, trueGraph, EDGE_TYPES);
+    }
+
+    /**
+     * Evaluate the search graph against the true graph.
+     *
+     * @param searchGraph graph whose edges have edge-type probabilities
+     * @param trueGraph true graph
+     * @param edgeTypes edge types to evaluate, nil excluded
+     */
+    public GraphEvaluation(Graph searchGraph, Graph trueGraph, EdgeType... edgeTypes) {
+        this.nodeNames = trueGraph.getNodeNames().stream().toArray(String[]::new);
+        this.nodeIndices = new HashMap<>();
+        for (String nodeName : nodeNames) {
+            nodeIndices.put(nodeName, nodeIndices.size());
+        }
+
+        int numOfNodes = nodeNames.length;
+        int numOfPairs = numOfNodes * (numOfNodes - 1) / 2;
+        this.adjacencies = new Table(EdgeType.tt, numOfPairs);
+        for (EdgeType edgeType : edgeTypes) {
+            if (edgeType == EdgeType.nil) {
+                throw new IllegalArgumentException("Edge type nil cannot be evaluated.");
+            }
+            edgeTypeTables.put(edgeType, new Table(edgeType, isSymmetric(edgeType) ? numOfPairs : 2 * numOfPairs));
+        }
+
+        for (Edge trueEdge : trueGraph.getEdges()) {
+            int index1 = getNodeIndex(trueEdge, true);
+            int index2 = getNodeIndex(trueEdge, false);
+            if (index1 < 0 || index2 < 0 || index1 == index2) {
+                continue;
+            }
+
+            adjacencies.observed[getPairIndex(index1, index2)] = 1;
+            EdgeType edgeType = Edges.getEdgeType(trueEdge, trueEdge.getNode1(), trueEdge.getNode2());
+            setObservedValue(index1, index2, edgeType);
+            setObservedValue(index2, index1, Edges.getReversed(edgeType));
+        }
+
+        for (Edge predictedEdge : searchGraph.getEdges()) {
+            int index1 = getNodeIndex(predictedEdge, true);
+            int index2 = getNodeIndex(predictedEdge, false);
+            if (index1 < 0 || index2 < 0 || index1 == index2) {
+                continue;
+            }
+
+            adjacencies.predicted[getPairIndex(index1, index2)] = predictedEdge.getProbability();
+            List<EdgeTypeProbability> edgeTypeProbs = predictedEdge.getEdgeTypeProbabilities();
+            if (edgeTypeProbs != null) {
+                for (EdgeTypeProbability edgeTypeProb : edgeTypeProbs) {
+                    EdgeType edgeType = edgeTypeProb.getEdgeType();
+                    setPredictedValue(index1, index2, edgeType, edgeTypeProb.getProbability());
+                    setPredictedValue(index2, index1, Edges.getReversed(edgeType), edgeTypeProb.getProbability());
+                }
+            }
+        }
+    }
+
+    /**
+     * Create an evaluation without nodes, holding only listed tables.
+     */
+    private GraphEvaluation() {
+        this.nodeNames = new String[0];
+        this.nodeIndices = new HashMap<>();
+        this.adjacencies = new Table(EdgeType.tt, 0);
+    }
+
+    /**
+     * Create a table whose rows are the given edge values, in their order.
+     *
+     * @param edgeValues edge values of a single edge type
+     * @return table of the edge values
+     */
+    static Table toTable(Collection<EdgeValue> edgeValues) {
+        EdgeType edgeType = edgeValues.isEmpty() ? EdgeType.tt : edgeValues.iterator().next().getEdgeType();
+        Table table = new GraphEvaluation().new Table(edgeType, edgeValues.size());
+        table.nodes1 = new String[edgeValues.size()];
+        table.nodes2 = new String[edgeValues.size()];
+        int row = 0;
+        for (EdgeValue edgeValue : edgeValues) {
+            table.nodes1[row] = edgeValue.getNode1();
+            table.nodes2[row] = edgeValue.getNode2();
+            table.predicted[row] = edgeValue.getPredictedValue();
+            table.observed[row] = (byte) edgeValue.getObservedValue();
+            row++;
+        }
+
+        return table;
+    }
+
+    private void setObservedValue(int index1, int index2, EdgeType edgeType) {
+        Table table = edgeTypeTables.get(edgeType);
+        if (table != null && (index1 < index2 || !table.symmetric())) {
+            table.observed[table.getRow(index1, index2)] = 1;
+        }
+    }
+
+    private void setPredictedValue(int index1, int index2, EdgeType edgeType, double probability) {
+        Table table = edgeTypeTables.get(edgeType);
+        if (table != null && (index1 < index2 || !table.symmetric())) {
+            table.predicted[table.getRow(index1, index2)] = probability;
+        }
+    }
+
+    /**
+     * Get the index of an end of the edge among the nodes of the true graph.
+     *
+     * @return index of the node, -1 if the true graph does not have it
+     */
+    private int getNodeIndex(Edge edge, boolean first) {
+        Integer index = nodeIndices.get((first ? edge.getNode1() : edge.getNode2()).getName());
+
+        return (index == null) ? -1 : index;
+    }
+
+    private int getPairIndex(int index1, int index2) {
+        int i = Math.min(index1, index2);
+        int j = Math.max(index1, index2);
+
+        return i * (2 * nodeNames.length - i - 1) / 2 + (j - i - 1);
+    }
+
+    private static boolean isSymmetric(EdgeType edgeType) {
+        return Edges.getReversed(edgeType) == edgeType;
+    }
+
+    /**
+     * Get the adjacency table: an adjacency is observed if the true graph has
+     * an edge between the nodes and its predicted value is the probability of
+     * the edge of the search graph.
+     *
+     * @return adjacency table
+     */
+    public Table getAdjacencies() {
+        return adjacencies;
+    }
+
+    /**
+     * Get the table of an edge type.
+     *
+     * @param edgeType edge type evaluated
+     * @return table of the edge type
+     */
+    public Table getEdgeTypeTable(EdgeType edgeType) {
+        Table table = edgeTypeTables.get(edgeType);
+        if (table == null) {
+            throw new IllegalArgumentException(String.format("Edge type %s was not evaluated.", edgeType));
+        }
+
+        return table;
+    }
+
+    public String[] getNodeNames() {
+        return nodeNames;
+    }
+
+    /**
+     * Predicted and observed values of one edge type, or of the adjacencies,
+     * over the pairs of nodes.
+     */
+    public final class Table {
+
+        private final EdgeType edgeType;
+        private final double[] predicted;
+        private final byte[] observed;
+
+        /**
+         * Nodes of each row of a listed table, null for the pairs of nodes.
+         */
+        private String[] nodes1;
+        private String[] nodes2;
+
+        private Table(EdgeType edgeType, int numOfRows) {
+            this.edgeType = edgeType;
+            this.predicted = new double[numOfRows];
+            this.observed = new byte[numOfRows];
+        }
+
+        private boolean symmetric() {
+            return isSymmetric(edgeType);
+        }
+
+        private int getRow(int index1, int index2) {
+            if (symmetric()) {
+                return getPairIndex(index1, index2);
+            } else {
+                return index1 * (nodeNames.length - 1) + ((index2 < index1) ? index2 : index2 - 1);
+            }
+        }
+
+        /**
+         * Pass the rows to the consumer, in row order.
+         *
+         * @param consumer consumer of the rows
+         */
+        public void forEachRow(RowConsumer consumer) {
+            int row = 0;
+            if (nodes1 != null) {
+                for (; row < nodes1.length; row++) {
+                    consumer.accept(nodes1[row], nodes2[row], predicted[row], observed[row]);
+                }
+            } else if (symmetric()) {
+                for (int i = 0; i < nodeNames.length - 1; i++) {
+                    for (int j = i + 1; j < nodeNames.length; j++, row++) {
+                        consumer.accept(nodeNames[i], nodeNames[j], predicted[row], observed[row]);
+                    }
+                }
+            } else {
+                for (int i = 0; i < nodeNames.length; i++) {
+                    for (int j = 0; j < nodeNames.length; j++) {
+                        if (i != j) {
+                            consumer.accept(nodeNames[i], nodeNames[j], predicted[row], observed[row]);
+                            row++;
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Convert the table to edge values, in row order.
+         *
+         * @return edge values of the table
+         */
+        public Set<EdgeValue> toEdgeValues() {
+            Set<EdgeValue> edgeValues = new LinkedHashSet<>();
+            forEachRow((node1, node2, predictedValue, observedValue)
+                    -> edgeValues.add(new EdgeValue(predictedValue, observedValue, node1, node2, edgeType)));
+
+            return edgeValues;
+        }
+
+        /**
+         * Get the edge type of the table.
+         *
+         * @return edge type, tt for the adjacencies
+         */
+        public EdgeType getEdgeType() {
+            return edgeType;
+        }
+
+        public double[] getPredicted() {
+            return predicted;
+        }
+
+        public byte[] getObserved() {
+            return observed;
+        }
+
+        public int getNumberOfRows() {
+            return predicted.length;
+        }
+
+    }
+
+    /**
+     * Consumer of the rows of a table.
+     */
+    @FunctionalInterface
+    public interface RowConsumer {
+
+        void accept(String node1, String node2, double predictedValue, int observedValue);
+
+    }
+
+}
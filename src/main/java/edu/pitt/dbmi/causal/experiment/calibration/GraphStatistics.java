@@ -18,11 +18,12 @@
  */
 package edu.pitt.dbmi.causal.experiment.calibration;
 
+import edu.cmu.tetrad.graph.EdgeTypeProbability.EdgeType;
 import edu.cmu.tetrad.graph.Graph;
 import edu.pitt.dbmi.lib.math.classification.calibration.HosmerLemeshow;
 import edu.pitt.dbmi.lib.math.classification.calibration.HosmerLemeshowRiskGroup;
 import edu.pitt.dbmi.lib.math.classification.calibration.plot.HosmerLemeshowPlot;
-import edu.pitt.dbmi.lib.math.classification.data.ObservedPredictedValue;
+import edu.pitt.dbmi.lib.math.classification.data.PredictionColumns;
 import edu.pitt.dbmi.lib.math.classification.plot.PlotColors;
 import edu.pitt.dbmi.lib.math.classification.plot.PlotShapes;
 import edu.pitt.dbmi.lib.math.classification.roc.DeLongROCCurve;
@@ -31,8 +32,6 @@ import edu.pitt.dbmi.lib.math.classification.roc.plot.ROCCurvePlot;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.file.Path;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Set;
 
 /**
@@ -43,28 +42,46 @@ import java.util.Set;
  */
 public class GraphStatistics {
 
-    private final Set<EdgeValue> graphData;
-    private final Set<EdgeValue> edgeData;
+    private final GraphEvaluation.Table graphData;
+    private final GraphEvaluation.Table edgeData;
 
     private final HosmerLemeshow hosmerLemeshow;
     private final ROC roc;
 
     public GraphStatistics(Graph searchGraph, Graph trueGraph) {
-        this.graphData = GraphData.examineDirectEdge(searchGraph, trueGraph);
-        this.edgeData = GraphData.examineEdges(searchGraph, trueGraph);
+        this(new GraphEvaluation(searchGraph, trueGraph, EdgeType.ta), EdgeType.ta);
+    }
 
-        List<ObservedPredictedValue> observedPredictedValues = toObservedPredictedValues(graphData);
-        this.hosmerLemeshow = new HosmerLemeshowRiskGroup(observedPredictedValues);
-        this.roc = new DeLongROCCurve(observedPredictedValues);
+    /**
+     * Compute the statistics of an edge type evaluated.
+     *
+     * @param graphEvaluation evaluation of the search graph
+     * @param edgeType edge type evaluated
+     */
+    public GraphStatistics(GraphEvaluation graphEvaluation, EdgeType edgeType) {
+        this(graphEvaluation.getEdgeTypeTable(edgeType), graphEvaluation.getAdjacencies());
     }
 
+    /**
+     * Compute the statistics of edge values, written out in their order.
+     *
+     * @param graphData edge values of the edge type
+     * @param edgeData edge values of the adjacencies
+     * @deprecated use {@link #GraphStatistics(GraphEvaluation, EdgeType)},
+     * which evaluates all the edge types in one pass
+     */
+    @Deprecated
     public GraphStatistics(Set<EdgeValue> graphData, Set<EdgeValue> edgeData) {
+        this(GraphEvaluation.toTable(graphData), GraphEvaluation.toTable(edgeData));
+    }
+
+    public GraphStatistics(GraphEvaluation.Table graphData, GraphEvaluation.Table edgeData) {
         this.graphData = graphData;
         this.edgeData = edgeData;
 
-        List<ObservedPredictedValue> observedPredictedValues = toObservedPredictedValues(graphData);
-        this.hosmerLemeshow = new HosmerLemeshowRiskGroup(observedPredictedValues);
-        this.roc = new DeLongROCCurve(observedPredictedValues);
+        PredictionColumns predictionColumns = new PredictionColumns(graphData.getPredicted(), graphData.getObserved());
+        this.hosmerLemeshow = new HosmerLemeshowRiskGroup(predictionColumns);
+        this.roc = new DeLongROCCurve(predictionColumns);
     }
 
     public void saveStatistics(Path file) throws IOException {
@@ -111,14 +128,4 @@ public class GraphStatistics {
         }
     }
 
-    private List<ObservedPredictedValue> toObservedPredictedValues(Set<EdgeValue> graphData) {
-        List<ObservedPredictedValue> values = new LinkedList<>();
-
-        graphData.forEach(data -> {
-            values.add(new ObservedPredictedValue(data.getObservedValue(), data.getPredictedValue()));
-        });
-
-        return values;
-    }
-
 }
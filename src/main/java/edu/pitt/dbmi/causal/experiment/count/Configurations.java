@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.count;
+
+import edu.pitt.dbmi.causal.experiment.data.DiscreteDataColumns;
+import java.util.Arrays;
+
+/**
+ * Configuration of a set of conditioning variables in each row of a data set.
+ * The values of the variables in a row are mixed-radix encoded into a single
+ * code, and the codes are renumbered into consecutive indices in the order the
+ * configurations first appear in the data. Rows having a missing value for
+ * any of the variables have no configuration.
+ *
+ * @author agent (agent@local)
+ */
+public final class Configurations {
+
+    /**
+     * Largest code allowed before the codes are renumbered. Renumbered codes
+     * are less than the number of rows, but with enough rows and categories
+     * the next codes can still overflow an int, which is checked.
+     */
+    private static final int MAX_CODE = 1 << 20;
+
+    private final int[] cols;
+
+    /**
+     * Index of the configuration of each row, -1 if the row has a missing
+     * value.
+     */
+    private final int[] rowConfigurations;
+
+    private final int numberOfConfigurations;
+
+    /**
+     * Number of possible configurations: the product of the numbers of
+     * categories of the variables.
+     */
+    private final double numberOfCombinations;
+
+    /**
+     * Encode the configurations of the given columns.
+     *
+     * @param dataColumns columnar data
+     * @param cols column indices of the conditioning variables
+     */
+    public Configurations(DiscreteDataColumns dataColumns, int[] cols) {
+        int numOfRows = dataColumns.getNumberOfRows();
+
+        this.cols = cols.clone();
+        this.rowConfigurations = new int[numOfRows];
+
+        int numOfCodes = 1;
+        double numOfCombinations = 1;
+        for (int col : cols) {
+            int numOfCategories = dataColumns.getNumberOfCategories(col);
+            numOfCombinations *= numOfCategories;
+
+            // renumber to keep the codes small
+            if ((long) numOfCodes * numOfCategories > MAX_CODE && numOfCodes > 1) {
+                numOfCodes = renumber(rowConfigurations, numOfCodes);
+            }
+            if ((long) numOfCodes * numOfCategories > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Conditioning variables have too many configurations to encode.");
+            }
+
+            for (int row = 0; row < numOfRows; row++) {
+                int code = rowConfigurations[row];
+                if (code >= 0) {
+                    int value = dataColumns.getInt(row, col);
+                    rowConfigurations[row] = (value < 0) ? -1 : code * numOfCategories + value;
+                }
+            }
+            numOfCodes *= numOfCategories;
+        }
+
+        this.numberOfConfigurations = renumber(rowConfigurations, numOfCodes);
+        this.numberOfCombinations = numOfCombinations;
+    }
+
+    /**
+     * Renumber the codes into consecutive indices in order of first
+     * appearance.
+     *
+     * @param codes codes of the rows, -1 for rows with missing values
+     * @param numOfCodes upper bound of the codes
+     * @return number of distinct codes
+     */
+    private static int renumber(int[] codes, int numOfCodes) {
+        int[] indices = new int[numOfCodes];
+        Arrays.fill(indices, -1);
+
+        int numOfIndices = 0;
+        for (int row = 0; row < codes.length; row++) {
+            int code = codes[row];
+            if (code >= 0) {
+                int index = indices[code];
+                if (index < 0) {
+                    index = numOfIndices++;
+                    indices[code] = index;
+                }
+                codes[row] = index;
+            }
+        }
+
+        return numOfIndices;
+    }
+
+    /**
+     * Get the index of the configuration of the given row.
+     *
+     * @param row row index
+     * @return configuration index, or -1 if the row has a missing value
+     */
+    public int getConfiguration(int row) {
+        return rowConfigurations[row];
+    }
+
+    public int[] getColumns() {
+        return cols.clone();
+    }
+
+    public int getNumberOfRows() {
+        return rowConfigurations.length;
+    }
+
+    /**
+     * Get the number of distinct configurations found in the data.
+     *
+     * @return number of configurations
+     */
+    public int getNumberOfConfigurations() {
+        return numberOfConfigurations;
+    }
+
+    /**
+     * Get the number of possible configurations, whether found in the data or
+     * not.
+     *
+     * @return product of the numbers of categories
+     */
+    public double getNumberOfCombinations() {
+        return numberOfCombinations;
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.count;
+
+import java.util.Arrays;
+
+/**
+ * Counts of the values of x and y for each configuration of the conditioning
+ * variables z. Only the configurations found in the counted rows are kept,
+ * in the order they first appear in the rows.
+ *
+ * @author agent (agent@local)
+ */
+public final class ContingencyTable {
+
+    private final int numberOfXCategories;
+    private final int numberOfYCategories;
+    private final double numberOfZCombinations;
+
+    /**
+     * Table index of each configuration of z, -1 if not found yet.
+     */
+    private final int[] tableIndices;
+
+    /**
+     * Counts of x and y, for each configuration in order of first appearance.
+     */
+    private int[] counts;
+
+    private int numberOfConfigurations;
+    private int total;
+
+    ContingencyTable(int numberOfXCategories, int numberOfYCategories, Configurations configurations) {
+        this.numberOfXCategories = numberOfXCategories;
+        this.numberOfYCategories = numberOfYCategories;
+        this.numberOfZCombinations = configurations.getNumberOfCombinations();
+        this.tableIndices = new int[configurations.getNumberOfConfigurations()];
+        this.counts = new int[Math.min(configurations.getNumberOfConfigurations(), 16) * numberOfXCategories * numberOfYCategories];
+
+        Arrays.fill(tableIndices, -1);
+    }
+
+    void add(int configuration, int x, int y, int count) {
+        int tableIndex = tableIndices[configuration];
+        if (tableIndex < 0) {
+            tableIndex = numberOfConfigurations++;
+            tableIndices[configuration] = tableIndex;
+
+            int cellsPerConfiguration = numberOfXCategories * numberOfYCategories;
+            if (counts.length < numberOfConfigurations * cellsPerConfiguration) {
+                int capacity = Math.min(2 * counts.length / cellsPerConfiguration, tableIndices.length);
+                counts = Arrays.copyOf(counts, capacity * cellsPerConfiguration);
+            }
+        }
+
+        counts[(tableIndex * numberOfXCategories + x) * numberOfYCategories + y] += count;
+        total += count;
+    }
+
+    /**
+     * Get the count of x and y in the given configuration of z.
+     *
+     * @param configuration configuration, in order of first appearance
+     * @param x value of x
+     * @param y value of y
+     * @return count
+     */
+    public int getCount(int configuration, int x, int y) {
+        return counts[(configuration * numberOfXCategories + x) * numberOfYCategories + y];
+    }
+
+    /**
+     * Get the count of x in the given configuration of z.
+     *
+     * @param configuration configuration, in order of first appearance
+     * @param x value of x
+     * @return count
+     */
+    public int getXCount(int configuration, int x) {
+        int offset = (configuration * numberOfXCategories + x) * numberOfYCategories;
+        int count = 0;
+        for (int y = 0; y < numberOfYCategories; y++) {
+            count += counts[offset + y];
+        }
+
+        return count;
+    }
+
+    /**
+     * Get the count of y in the given configuration of z.
+     *
+     * @param configuration configuration, in order of first appearance
+     * @param y value of y
+     * @return count
+     */
+    public int getYCount(int configuration, int y) {
+        int offset = configuration * numberOfXCategories * numberOfYCategories + y;
+        int count = 0;
+        for (int x = 0; x < numberOfXCategories; x++) {
+            count += counts[offset + x * numberOfYCategories];
+        }
+
+        return count;
+    }
+
+    public int getNumberOfXCategories() {
+        return numberOfXCategories;
+    }
+
+    public int getNumberOfYCategories() {
+        return numberOfYCategories;
+    }
+
+    /**
+     * Get the number of possible configurations of z, whether found in the
+     * data or not.
+     *
+     * @return product of the numbers of categories of z
+     */
+    public double getNumberOfZCombinations() {
+        return numberOfZCombinations;
+    }
+
+    /**
+     * Get the number of configurations of z found in the counted rows.
+     *
+     * @return number of configurations
+     */
+    public int getNumberOfConfigurations() {
+        return numberOfConfigurations;
+    }
+
+    /**
+     * Get the total count.
+     *
+     * @return number of rows counted
+     */
+    public int getTotal() {
+        return total;
+    }
+
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.count;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.pitt.dbmi.causal.experiment.data.DiscreteDataColumns;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Builds contingency tables of x and y given z from the columns of a
+ * discrete data set. The configurations of each conditioning set z are
+ * encoded once and kept in a least-recently-used cache, so that the tables of
+ * all the pairs tested against the same z are built with a single pass over
+ * the rows that reads only the x and y columns. The cache is bounded by the
+ * memory held by the encoded configurations.
+ *
+ * The engine is shared by all tests on the same data set and is thread-safe.
+ *
+ * @author agent (agent@local)
+ */
+public final class CountEngine {
+
+    /**
+     * Default maximum size of the cache, in bytes.
+     */
+    public static final long DEFAULT_MAX_SIZE = 32L * 1024 * 1024;
+
+    private static final Map<DataSet, CountEngine> INSTANCES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final DiscreteDataColumns dataColumns;
+
+    private final Map<Key, Configurations> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long maxSize = DEFAULT_MAX_SIZE;
+    private long size;
+
+    private long hits;
+    private long misses;
+
+    public CountEngine(DiscreteDataColumns dataColumns) {
+        this.dataColumns = dataColumns;
+    }
+
+    /**
+     * Get the count engine of the given data set, creating it on first use.
+     *
+     * @param dataSet discrete data set
+     * @return count engine of the data set
+     */
+    public static CountEngine getInstance(DataSet dataSet) {
+        synchronized (INSTANCES) {
+            CountEngine countEngine = INSTANCES.get(dataSet);
+            if (countEngine == null) {
+                countEngine = new CountEngine(DiscreteDataColumns.getInstance(dataSet));
+                INSTANCES.put(dataSet, countEngine);
+            }
+
+            return countEngine;
+        }
+    }
+
+    /**
+     * Build the contingency table of x and y given z.
+     *
+     * @param x column index of x
+     * @param y column index of y
+     * @param z column indices of z
+     * @param rowCounts number of times each row is counted, or null to count
+     * each row once
+     * @return contingency table
+     */
+    public ContingencyTable count(int x, int y, int[] z, int[] rowCounts) {
+        return count(new int[][]{{x, y}}, z, rowCounts)[0];
+    }
+
+    /**
+     * Build the contingency tables of several pairs of x and y given the same
+     * z, in a single pass over the rows. Rows having a missing value for z,
+     * or for the x or y of a pair, are not counted.
+     *
+     * @param pairs column indices of x and y, for each pair
+     * @param z column indices of z
+     * @param rowCounts number of times each row is counted, or null to count
+     * each row once
+     * @return contingency table of each pair
+     */
+    public ContingencyTable[] count(int[][] pairs, int[] z, int[] rowCounts) {
+        if (rowCounts != null && rowCounts.length != dataColumns.getNumberOfRows()) {
+            throw new IllegalArgumentException("Row counts must be given for every row of the data set.");
+        }
+
+        Configurations configurations = getConfigurations(z);
+
+        ContingencyTable[] tables = new ContingencyTable[pairs.length];
+        for (int i = 0; i < pairs.length; i++) {
+            tables[i] = new ContingencyTable(
+                    dataColumns.getNumberOfCategories(pairs[i][0]),
+                    dataColumns.getNumberOfCategories(pairs[i][1]),
+                    configurations);
+        }
+
+        // rows are counted in order so that configurations are found in the
+        // same order as BCInference finds them
+        int numOfRows = dataColumns.getNumberOfRows();
+        for (int row = 0; row < numOfRows; row++) {
+            int configuration = configurations.getConfiguration(row);
+            int count = (rowCounts == null) ? 1 : rowCounts[row];
+            if (configuration < 0 || count == 0) {
+                continue;
+            }
+
+            for (int i = 0; i < pairs.length; i++) {
+                int x = dataColumns.getInt(row, pairs[i][0]);
+                int y = dataColumns.getInt(row, pairs[i][1]);
+                if (x >= 0 && y >= 0) {
+                    tables[i].add(configuration, x, y, count);
+                }
+            }
+        }
+
+        return tables;
+    }
+
+    /**
+     * Get the configurations of the given conditioning variables, encoding
+     * them on first use.
+     *
+     * @param z column indices of the conditioning variables
+     * @return configurations of z
+     */
+    public Configurations getConfigurations(int[] z) {
+        int[] sortedZ = z.clone();
+        Arrays.sort(sortedZ);
+        Key key = new Key(sortedZ);
+
+        synchronized (this) {
+            Configurations configurations = cache.get(key);
+            if (configurations != null) {
+                hits++;
+
+                return configurations;
+            }
+            misses++;
+        }
+
+        // encoded outside the lock, another thread may encode the same z
+        Configurations configurations = new Configurations(dataColumns, sortedZ);
+        put(key, configurations);
+
+        return configurations;
+    }
+
+    private synchronized void put(Key key, Configurations configurations) {
+        long entrySize = estimateSize(configurations);
+        if (entrySize > maxSize) {
+            return;
+        }
+
+        Configurations previous = cache.put(key, configurations);
+        if (previous != null) {
+            size -= estimateSize(previous);
+        }
+        size += entrySize;
+
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Configurations> iterator = cache.values().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            size -= estimateSize(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Estimate the memory, in bytes, held by the encoded configurations: an
+     * index for each row, plus the object and key headers.
+     *
+     * @param configurations encoded configurations
+     * @return estimated size in bytes
+     */
+    private static long estimateSize(Configurations configurations) {
+        return 4L * configurations.getNumberOfRows() + 128;
+    }
+
+    public synchronized void clear() {
+        cache.clear();
+        size = 0;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int getNumberOfEntries() {
+        return cache.size();
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized long getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized void setMaxSize(long maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Maximum size must be non-negative.");
+        }
+
+        this.maxSize = maxSize;
+
+        evict();
+    }
+
+    public DiscreteDataColumns getDataColumns() {
+        return dataColumns;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("CountEngine{entries=%d, size=%d, hits=%d, misses=%d}",
+                cache.size(), size, hits, misses);
+    }
+
+    /**
+     * Key of a conditioning set: its sorted column indices.
+     */
+    private static final class Key {
+
+        private final int[] cols;
+        private final int hash;
+
+        private Key(int[] cols) {
+            this.cols = cols;
+            this.hash = Arrays.hashCode(cols);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) obj;
+
+            return hash == other.hash && Arrays.equals(cols, other.cols);
+        }
+
+    }
+
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.data;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DiscreteVariable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Column-major, primitive copy of a discrete data set. Each column is stored
+ * as a byte array, or a short array when the variable has too many categories
+ * to fit in a byte. The copy is made once per data set and shared by every
+ * test of independence built on that data set.
+ *
+ * Rows with missing values are indexed per column as bitmaps so that the rows
+ * usable for a test can be found with word-wise operations.
+ *
+ * @author agent (agent@local)
+ */
+public final class DiscreteDataColumns {
+
+    private static final Map<DataSet, DiscreteDataColumns> INSTANCES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final int numberOfRows;
+
+    private final int numberOfColumns;
+
+    private final int[] numberOfCategories;
+
+    /**
+     * Column data for variables having at most {@link Byte#MAX_VALUE}
+     * categories, null otherwise.
+     */
+    private final byte[][] byteColumns;
+
+    /**
+     * Column data for variables having more than {@link Byte#MAX_VALUE}
+     * categories, null otherwise.
+     */
+    private final short[][] shortColumns;
+
+    /**
+     * Bitmap of the rows having a missing value, for each column. The bitmap
+     * is null for columns without missing values.
+     */
+    private final long[][] missingRows;
+
+    private DiscreteDataColumns(DataSet dataSet) {
+        if (!dataSet.isDiscrete()) {
+            throw new IllegalArgumentException("Not a discrete data set.");
+        }
+
+        this.numberOfRows = dataSet.getNumRows();
+        this.numberOfColumns = dataSet.getNumColumns();
+        this.numberOfCategories = new int[numberOfColumns];
+        this.byteColumns = new byte[numberOfColumns][];
+        this.shortColumns = new short[numberOfColumns][];
+        this.missingRows = new long[numberOfColumns][];
+
+        for (int col = 0; col < numberOfColumns; col++) {
+            int numCategories = ((DiscreteVariable) dataSet.getVariable(col)).getNumCategories();
+            if (numCategories > Short.MAX_VALUE) {
+                throw new IllegalArgumentException(
+                        String.format("Variable %s has too many categories.", dataSet.getVariable(col).getName()));
+            }
+            numberOfCategories[col] = numCategories;
+
+            if (numCategories <= Byte.MAX_VALUE) {
+                byte[] column = new byte[numberOfRows];
+                for (int row = 0; row < numberOfRows; row++) {
+                    column[row] = (byte) dataSet.getInt(row, col);
+                }
+                byteColumns[col] = column;
+            } else {
+                short[] column = new short[numberOfRows];
+                for (int row = 0; row < numberOfRows; row++) {
+                    column[row] = (short) dataSet.getInt(row, col);
+                }
+                shortColumns[col] = column;
+            }
+
+            for (int row = 0; row < numberOfRows; row++) {
+                if (getInt(row, col) == DiscreteVariable.MISSING_VALUE) {
+                    if (missingRows[col] == null) {
+                        missingRows[col] = new long[getNumberOfWords(numberOfRows)];
+                    }
+                    missingRows[col][row >>> 6] |= 1L << row;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the columnar copy of the given data set, creating it on first use.
+     *
+     * @param dataSet discrete data set
+     * @return columnar copy of the data set
+     */
+    public static DiscreteDataColumns getInstance(DataSet dataSet) {
+        synchronized (INSTANCES) {
+            DiscreteDataColumns dataColumns = INSTANCES.get(dataSet);
+            if (dataColumns == null) {
+                dataColumns = new DiscreteDataColumns(dataSet);
+                INSTANCES.put(dataSet, dataColumns);
+            }
+
+            return dataColumns;
+        }
+    }
+
+    public int getInt(int row, int col) {
+        byte[] column = byteColumns[col];
+
+        return (column == null) ? shortColumns[col][row] : column[row];
+    }
+
+    public boolean isMissing(int row, int col) {
+        return getInt(row, col) == DiscreteVariable.MISSING_VALUE;
+    }
+
+    public boolean hasMissingValues(int col) {
+        return missingRows[col] != null;
+    }
+
+    /**
+     * Get the rows having no missing value in any of the given columns.
+     *
+     * @param cols column indices
+     * @return bitmap of the complete rows, or null if none of the columns has
+     * missing values, in which case all rows are complete
+     */
+    public long[] getCompleteRows(int[] cols) {
+        long[] completeRows = null;
+        for (int col : cols) {
+            long[] missing = missingRows[col];
+            if (missing != null) {
+                if (completeRows == null) {
+                    completeRows = new long[missing.length];
+                    Arrays.fill(completeRows, -1L);
+                    int remainder = numberOfRows & 63;
+                    if (remainder > 0) {
+                        completeRows[completeRows.length - 1] = (1L << remainder) - 1;
+                    }
+                }
+                for (int i = 0; i < missing.length; i++) {
+                    completeRows[i] &= ~missing[i];
+                }
+            }
+        }
+
+        return completeRows;
+    }
+
+    /**
+     * Count the rows in the given bitmap.
+     *
+     * @param rows bitmap of rows
+     * @return number of rows
+     */
+    public static int countRows(long[] rows) {
+        int count = 0;
+        for (long word : rows) {
+            count += Long.bitCount(word);
+        }
+
+        return count;
+    }
+
+    /**
+     * Count the rows in the given bitmap, each row counted as many times as
+     * given by the row counts, as for a bootstrap sample.
+     *
+     * @param rows bitmap of rows, or null for all rows
+     * @param rowCounts number of times each row is counted
+     * @return number of rows
+     */
+    public static int countRows(long[] rows, int[] rowCounts) {
+        int count = 0;
+        if (rows == null) {
+            for (int rowCount : rowCounts) {
+                count += rowCount;
+            }
+        } else {
+            for (int i = 0; i < rows.length; i++) {
+                long word = rows[i];
+                while (word != 0) {
+                    count += rowCounts[(i << 6) + Long.numberOfTrailingZeros(word)];
+                    word &= word - 1;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    private static int getNumberOfWords(int numberOfBits) {
+        return (numberOfBits + 63) >>> 6;
+    }
+
+    public int getNumberOfRows() {
+        return numberOfRows;
+    }
+
+    public int getNumberOfColumns() {
+        return numberOfColumns;
+    }
+
+    public int getNumberOfCategories(int col) {
+        return numberOfCategories[col];
+    }
+
+}
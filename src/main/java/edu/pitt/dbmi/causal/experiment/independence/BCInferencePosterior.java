@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.independence;
+
+import edu.pitt.dbmi.causal.experiment.count.ContingencyTable;
+import org.apache.commons.math3.util.FastMath;
+
+/**
+ * Posterior probability of independence computed from a contingency table.
+ * The computation is the one done by BCInference for OP.independent, with
+ * the BDeu score and the prior probability of independence of 0.5, carried
+ * out in the same order so that the posteriors are the same as the ones
+ * BCInference computes from the rows of the data.
+ *
+ * @author agent (agent@local)
+ */
+public final class BCInferencePosterior {
+
+    private static final double PRIOR_INDEPENDENT = 0.5;
+
+    private static final double[] COF = {
+        0, 76.18009173, -86.50532033, 24.01409822, -1.231739516, 0.00120858003, -5.36382E-6
+    };
+
+    private BCInferencePosterior() {
+    }
+
+    /**
+     * Compute the posterior probability that x and y are independent given z.
+     *
+     * @param table counts of x and y for each configuration of z
+     * @param priorEquivalentSampleSize prior equivalent sample size
+     * @return posterior probability of independence
+     */
+    public static double probIndependent(ContingencyTable table, double priorEquivalentSampleSize) {
+        int numOfX = table.getNumberOfXCategories();
+        int numOfY = table.getNumberOfYCategories();
+        int numOfConfigurations = table.getNumberOfConfigurations();
+        double q = table.getNumberOfZCombinations();
+
+        // scores of x given z, y given z and of the joint xy given z
+        double[] xScores = new double[numOfConfigurations];
+        double[] yScores = new double[numOfConfigurations];
+        double[] xyScores = new double[numOfConfigurations];
+        int[] counts = new int[Math.max(numOfX * numOfY, Math.max(numOfX, numOfY))];
+        for (int j = 0; j < numOfConfigurations; j++) {
+            for (int x = 0; x < numOfX; x++) {
+                counts[x] = table.getXCount(j, x);
+            }
+            xScores[j] = score(counts, numOfX, q, priorEquivalentSampleSize);
+
+            for (int y = 0; y < numOfY; y++) {
+                counts[y] = table.getYCount(j, y);
+            }
+            yScores[j] = score(counts, numOfY, q, priorEquivalentSampleSize);
+
+            for (int x = 0; x < numOfX; x++) {
+                for (int y = 0; y < numOfY; y++) {
+                    counts[x * numOfY + y] = table.getCount(j, x, y);
+                }
+            }
+            xyScores[j] = score(counts, numOfX * numOfY, q, priorEquivalentSampleSize);
+        }
+
+        double xScore = 0;
+        double yScore = 0;
+        for (int j = 0; j < numOfConfigurations; j++) {
+            xScore += xScores[j];
+            yScore += yScores[j];
+        }
+
+        double logPriorIndependent = FastMath.log(PRIOR_INDEPENDENT);
+        double logIndependent = (xScore + yScore) + logPriorIndependent;
+
+        // the prior is spread evenly over the configurations
+        double logPriorIndependentPerConfiguration = logPriorIndependent / numOfConfigurations;
+        double logPriorDependentPerConfiguration = FastMath.log(1 - FastMath.exp(logPriorIndependentPerConfiguration));
+
+        double logTotal = 0;
+        for (int j = 0; j < numOfConfigurations; j++) {
+            logTotal += lnXpluslnY(
+                    logPriorIndependentPerConfiguration + (xScores[j] + yScores[j]),
+                    logPriorDependentPerConfiguration + xyScores[j]);
+        }
+
+        return FastMath.exp(logIndependent - logTotal);
+    }
+
+    /**
+     * BDeu score of the counts of a variable in one configuration of its
+     * parents.
+     *
+     * @param counts counts of the values of the variable
+     * @param numOfValues number of values of the variable
+     * @param q number of possible configurations of the parents
+     * @param ess prior equivalent sample size
+     * @return log score
+     */
+    private static double score(int[] counts, int numOfValues, double q, double ess) {
+        double rowPrior = ess / (q * numOfValues);
+        double cellPrior = ess / q;
+        double lnGammaRowPrior = gammln(rowPrior);
+
+        int n = 0;
+        double score = 0;
+        for (int k = 0; k < numOfValues; k++) {
+            int count = counts[k];
+            n += count;
+            score += gammln(count + rowPrior) - lnGammaRowPrior;
+        }
+
+        return (gammln(cellPrior) - gammln(n + cellPrior)) + score;
+    }
+
+    /**
+     * Add two numbers given by their logarithms.
+     *
+     * @param lnX log of x
+     * @param lnY log of y
+     * @return log of x + y
+     */
+    private static double lnXpluslnY(double lnX, double lnY) {
+        if (lnY > lnX) {
+            double tmp = lnX;
+            lnX = lnY;
+            lnY = tmp;
+        }
+
+        double diff = lnY - lnX;
+        if (diff < -1022) {
+            return lnX;
+        }
+
+        return FastMath.log1p(FastMath.exp(diff)) + lnX;
+    }
+
+    private static double gammln(double x) {
+        if (x == 1) {
+            return 0;
+        }
+        if (x > 1) {
+            return gammlnCore(x);
+        }
+
+        // reflection formula
+        double z = 1 - x;
+
+        return FastMath.log(Math.PI * z) - gammlnCore(1 + z) - FastMath.log(FastMath.sin(Math.PI * z));
+    }
+
+    private static double gammlnCore(double x) {
+        double y = x - 1;
+        double tmp = y + 5.5;
+        tmp = (y + 0.5) * FastMath.log(tmp) - tmp;
+
+        double ser = 1;
+        for (int j = 1; j <= 6; j++) {
+            y += 1;
+            ser += COF[j] / y;
+        }
+
+        return tmp + FastMath.log(2.50662827465 * ser);
+    }
+
+}
@@ -2,7 +2,6 @@ package edu.pitt.dbmi.causal.experiment.independence;
 
 import edu.cmu.tetrad.data.DataModel;
 import edu.cmu.tetrad.data.DataSet;
-import edu.cmu.tetrad.data.DiscreteVariable;
 import edu.cmu.tetrad.graph.IndependenceFact;
 import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.search.test.IndTestDSep;
@@ -11,17 +10,18 @@ import edu.cmu.tetrad.search.test.IndependenceTest;
 import edu.cmu.tetrad.search.utils.LogUtilsSearch;
 import edu.cmu.tetrad.util.RandomUtil;
 import edu.cmu.tetrad.util.TetradLogger;
-import edu.pitt.dbmi.algo.bayesian.constraint.inference.BCInference;
 import edu.pitt.dbmi.causal.experiment.calibration.GeneralValue;
+import edu.pitt.dbmi.causal.experiment.count.ContingencyTable;
+import edu.pitt.dbmi.causal.experiment.count.CountEngine;
+import edu.pitt.dbmi.causal.experiment.data.DiscreteDataColumns;
 import edu.pitt.dbmi.causal.experiment.util.StringUtils;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  *
@@ -42,6 +42,11 @@ public class CalibratingIndTestProbabilistic implements IndependenceTest {
      */
     private final DataSet data;
 
+    /**
+     * Columnar copy of the data set, shared with other tests on the same data.
+     */
+    private final DiscreteDataColumns dataColumns;
+
     /**
      * The nodes of the data set.
      */
@@ -55,20 +60,30 @@ public class CalibratingIndTestProbabilistic implements IndependenceTest {
     /**
      * A map from independence facts to their probabilities of independence.
      */
-    private final Map<IndependenceFact, Double> H;
+    private Map<IndependenceFactKey, Double> H;
+
+    /**
+     * Run-scoped store of posteriors shared with other tests, null if the
+     * posteriors are local to this test.
+     */
+    private PosteriorCache posteriorCache;
     private double posterior;
     private boolean verbose;
 
     private double cutoff = 0.5;
     private double priorEquivalentSampleSize = 10;
 
-    private final BCInference bci;
+    /**
+     * Builds the contingency tables of the tests, shared with other tests on
+     * the same data.
+     */
+    private final CountEngine countEngine;
 
     private IndTestDSep indTestDSeperation;
-    private Set<GeneralValue> generalValues;
-    private Set<String> condProbLabels;
-    private List<String> debugOutputs;
-    private Map<String, Boolean> coinFlipCache = new HashMap<>();
+    private Consumer<GeneralValue> generalValues;
+    private Set<IndependenceFactKey> condProbLabels;
+    private IndependenceTrace trace;
+    private Map<IndependenceFactKey, Boolean> coinFlipCache = new HashMap<>();
 
     /**
      * Variables for Greg's algorithm.
@@ -78,12 +93,39 @@ public class CalibratingIndTestProbabilistic implements IndependenceTest {
     private long seed = 1697166082542L;
     private Random rand = new Random(seed);
 
-    public CalibratingIndTestProbabilistic(DataSet data, IndTestDSep indTestDSeperation, Set<GeneralValue> generalValues, Set<String> condProbLabels, List<String> debugOutputs) {
+    /**
+     * Values of the last calibration, for the trace.
+     */
+    private double c;
+    private double b;
+    private double r;
+
+    public CalibratingIndTestProbabilistic(DataSet data, IndTestDSep indTestDSeperation, Set<GeneralValue> generalValues, Set<IndependenceFactKey> condProbLabels, List<String> debugOutputs) {
+        this(data, indTestDSeperation,
+                (generalValues == null) ? null : generalValues::add,
+                condProbLabels,
+                (debugOutputs == null) ? null : IndependenceTrace.toList(data.getVariables(), debugOutputs));
+    }
+
+    /**
+     * Initializes the test, passing the value of each test to the given
+     * consumer as soon as the test is done, so that it can be written out
+     * while the search is running.
+     *
+     * @param data discrete data set
+     * @param indTestDSeperation d-separation test on the true graph
+     * @param generalValues consumer of the value of each test not seen before,
+     * or null
+     * @param condProbLabels tests seen before, may be shared with other tests
+     * if thread-safe
+     * @param trace debug trace of the tests, or null for no tracing
+     */
+    public CalibratingIndTestProbabilistic(DataSet data, IndTestDSep indTestDSeperation, Consumer<GeneralValue> generalValues, Set<IndependenceFactKey> condProbLabels, IndependenceTrace trace) {
         this(data);
         this.indTestDSeperation = indTestDSeperation;
         this.generalValues = generalValues;
         this.condProbLabels = condProbLabels;
-        this.debugOutputs = debugOutputs;
+        this.trace = trace;
     }
 
     //==========================CONSTRUCTORS=============================//
@@ -105,49 +147,9 @@ public class CalibratingIndTestProbabilistic implements IndependenceTest {
         }
 
         this.data = dataSet;
+        this.dataColumns = DiscreteDataColumns.getInstance(dataSet);
+        this.countEngine = CountEngine.getInstance(dataSet);
         this.H = new HashMap<>();
-
-        int[] _cols = new int[this.nodes.size()];
-        for (int i = 0; i < _cols.length; i++) {
-            _cols[i] = this.indices.get(this.nodes.get(i));
-        }
-
-        int[] _rows = new int[dataSet.getNumRows()];
-        for (int i = 0; i < dataSet.getNumRows(); i++) {
-            _rows[i] = i;
-        }
-
-        DataSet _data = this.data.subsetRowsColumns(_rows, _cols);
-
-        List<Node> nodes = _data.getVariables();
-
-        for (int i = 0; i < nodes.size(); i++) {
-            this.indices.put(nodes.get(i), i);
-        }
-
-        this.bci = setup(_data);
-    }
-
-    private BCInference setup(DataSet dataSet) {
-        int[] nodeDimensions = new int[dataSet.getNumColumns() + 2];
-
-        for (int j = 0; j < dataSet.getNumColumns(); j++) {
-            DiscreteVariable variable = (DiscreteVariable) (dataSet.getVariable(j));
-            int numCategories = variable.getNumCategories();
-            nodeDimensions[j + 1] = numCategories;
-        }
-
-        int[][] cases = new int[dataSet.getNumRows() + 1][dataSet.getNumColumns() + 2];
-
-        for (int i = 0; i < dataSet.getNumRows(); i++) {
-            for (int j = 0; j < dataSet.getNumColumns(); j++) {
-                cases[i + 1][j + 1] = dataSet.getInt(i, j) + 1;
-            }
-        }
-
-        BCInference bci = new BCInference(cases, nodeDimensions);
-        bci.setPriorEqivalentSampleSize(this.priorEquivalentSampleSize);
-        return bci;
     }
 
     @Override
@@ -164,21 +166,18 @@ public class CalibratingIndTestProbabilistic implements IndependenceTest {
 
     @Override
     public IndependenceResult checkIndependence(Node x, Node y, Node... z) {
-        StringBuilder logInfo = new StringBuilder();
-
-        // print the variables of the independence test
-        String condProbLabel = StringUtils.toString(x, y, z);
-        String sortedCondProbLabel = StringUtils.toStringSorted(x, y, z);
-
-        logInfo.append(String.format("\"%s\",", condProbLabel));
-
-        // BC inference
-        double bciIndependent = independentBCInference(x, y, z);
+        int[] _cols = new int[z.length + 2];
+        _cols[0] = this.indices.get(x);
+        _cols[1] = this.indices.get(y);
+        for (int i = 0; i < z.length; i++) {
+            _cols[i + 2] = this.indices.get(z[i]);
+        }
+        IndependenceFactKey key = IndependenceFactKey.canonical(_cols);
 
         // compute test-of-independence score
         IndependenceResult independenceResult = indTestDSeperation.checkIndependence(x, y, z); // independence from d-separation
         int observed = (int) independenceResult.getPValue(); // independence from BC inference
-        double p = independent(independenceResult, bciIndependent, logInfo);
+        double p = independent(independenceResult);
 //        double p = independent1(independenceResult);
 
 //        // coin flip without caching
@@ -186,18 +185,18 @@ public class CalibratingIndTestProbabilistic implements IndependenceTest {
 //        logInfo.append(String.format(",%s", ind));
         // coin flip with caching
         boolean ind;
-        if (coinFlipCache.containsKey(sortedCondProbLabel)) {
-            ind = coinFlipCache.get(sortedCondProbLabel);
-        } else {
+        Boolean cachedInd = coinFlipCache.get(key);
+        if (cachedInd == null) {
             ind = RandomUtil.getInstance().nextDouble() < p;
-            coinFlipCache.put(sortedCondProbLabel, ind);
+            coinFlipCache.put(key, ind);
+        } else {
+            ind = cachedInd;
         }
-        logInfo.append(String.format(",%s", ind));
 
         if (generalValues != null) {
-            if (!condProbLabels.contains(condProbLabel)) {
-                condProbLabels.add(condProbLabel);
-                generalValues.add(new GeneralValue(condProbLabel, p, observed));
+            // the label is only rendered for tests not seen before
+            if (condProbLabels.add(IndependenceFactKey.ordered(_cols))) {
+                generalValues.accept(new GeneralValue(StringUtils.toString(x, y, z), p, observed));
             }
         }
 
@@ -208,81 +207,61 @@ public class CalibratingIndTestProbabilistic implements IndependenceTest {
             }
         }
 
-        debugOutputs.add(logInfo.toString());
+        if (trace != null) {
+            // the posterior from BC inference is only recorded, never used
+            double bciIndependent = independentBCInference(x, y, z, _cols, key);
+            trace.record(_cols, bciIndependent, c, b, m, n, r, p, independenceResult.isIndependent(), ind);
+        }
 
         return new IndependenceResult(new IndependenceFact(x, y, z), ind, p);
     }
 
-    private boolean getCoinFlipFromCache(String sortedCondProbLabel, double p) {
+    private boolean getCoinFlipFromCache(IndependenceFactKey key, double p) {
         boolean ind;
 
-        if (coinFlipCache.containsKey(sortedCondProbLabel)) {
-            ind = coinFlipCache.get(sortedCondProbLabel);
-        } else {
+        Boolean cachedInd = coinFlipCache.get(key);
+        if (cachedInd == null) {
             ind = RandomUtil.getInstance().nextDouble() < p;
-            coinFlipCache.put(sortedCondProbLabel, ind);
+            coinFlipCache.put(key, ind);
+        } else {
+            ind = cachedInd;
         }
 
         return ind;
     }
 
-    private double independentBCInference(Node x, Node y, Node... z) {
-        IndependenceFact key = new IndependenceFact(x, y, z);
-
-        List<Node> allVars = new ArrayList<>();
-        allVars.add(x);
-        allVars.add(y);
-        Collections.addAll(allVars, z);
-
-        List<Integer> rows = getRows(this.data, allVars, this.indices);
-        if (rows.isEmpty()) {
+    private double independentBCInference(Node x, Node y, Node[] z, int[] _cols, IndependenceFactKey key) {
+        // rows with no missing values for any of the variables, null if all rows
+        long[] completeRows = this.dataColumns.getCompleteRows(_cols);
+        int numOfRows = (completeRows == null)
+                ? this.dataColumns.getNumberOfRows()
+                : DiscreteDataColumns.countRows(completeRows);
+        if (numOfRows == 0) {
 //            return new IndependenceResult(new IndependenceFact(x, y, z), true, Double.NaN);
             // is independent
             return 0.99;
         }
 
-        BCInference bci;
-        Map<Node, Integer> indices;
-
-        if (rows.size() == this.data.getNumRows()) {
-            bci = this.bci;
-            indices = this.indices;
-        } else {
-
-            int[] _cols = new int[allVars.size()];
-            for (int i = 0; i < _cols.length; i++) {
-                _cols[i] = this.indices.get(allVars.get(i));
-            }
-
-            int[] _rows = new int[rows.size()];
-            for (int i = 0; i < rows.size(); i++) {
-                _rows[i] = rows.get(i);
-            }
-
-            DataSet _data = this.data.subsetRowsColumns(_rows, _cols);
-
-            List<Node> nodes = _data.getVariables();
-
-            indices = new HashMap<>();
-
-            for (int i = 0; i < nodes.size(); i++) {
-                indices.put(nodes.get(i), i);
-            }
-
-            bci = setup(_data);
-        }
-
         double pInd;
-        if (!this.H.containsKey(key)) {
-            pInd = probConstraint(bci, BCInference.OP.independent, x, y, z, indices);
+        Double cachedPInd = this.H.get(key);
+        if (cachedPInd == null) {
+            pInd = probConstraint(key);
             H.put(key, pInd);
         } else {
-            pInd = H.get(key);
+            pInd = cachedPInd;
         }
 
         return pInd;
     }
 
+    private double probConstraint(IndependenceFactKey key) {
+        // counted in the canonical order of the variables so that the
+        // posterior does not depend on the order the test was asked in
+        ContingencyTable table = this.countEngine.count(key.getX(), key.getY(), key.getZ(), null);
+
+        return BCInferencePosterior.probIndependent(table, this.priorEquivalentSampleSize);
+    }
+
     /**
      * This function is designed to return the probabilities 0.7 and 0.0, which
      * are both calibrated.
@@ -292,19 +271,19 @@ public class CalibratingIndTestProbabilistic implements IndependenceTest {
      * @param z
      * @return
      */
-    private double independent(IndependenceResult independenceResult, double bciIndependent, StringBuilder logInfo) {
+    private double independent(IndependenceResult independenceResult) {
         double returnValue = 0;
 
         double q = 0.7;
-        double c = (double) m / n; //chosen to start as 3/42 = 0.07, which is an estimate of the fraction Independent
-        double b = ((1 - q) / q) * (c / (1 - c));
+        c = (double) m / n; //chosen to start as 3/42 = 0.07, which is an estimate of the fraction Independent
+        b = ((1 - q) / q) * (c / (1 - c));
 
         if (b >= 1.0) {
             System.err.println("Halt because Q needs to be changed.");
             System.exit(-1);
         }
 
-        double r = rand.nextDouble();
+        r = rand.nextDouble();
         n++;
         if (independenceResult.isIndependent()) {
             m++;
@@ -316,12 +295,6 @@ public class CalibratingIndTestProbabilistic implements IndependenceTest {
                 returnValue = q;
             }
         }
-        // c,b,m,n,r,return value, is independent
-        logInfo.append(String.format("%f,%f,%f,%d,%d,%f,%f,%s",
-                bciIndependent,
-                c, b, m, n, r, returnValue,
-                independenceResult.isIndependent()));
-
         return returnValue;
     }
 
@@ -361,20 +334,6 @@ public class CalibratingIndTestProbabilistic implements IndependenceTest {
         return p;
     }
 
-    public double probConstraint(BCInference bci, BCInference.OP op, Node x, Node y, Node[] z, Map<Node, Integer> indices) {
-
-        int _x = indices.get(x) + 1;
-        int _y = indices.get(y) + 1;
-
-        int[] _z = new int[z.length + 1];
-        _z[0] = z.length;
-        for (int i = 0; i < z.length; i++) {
-            _z[i + 1] = indices.get(z[i]) + 1;
-        }
-
-        return bci.probConstraint(op, _x, _y, _z);
-    }
-
     @Override
     public List<Node> getVariables() {
         return this.nodes;
@@ -417,7 +376,10 @@ public class CalibratingIndTestProbabilistic implements IndependenceTest {
     }
 
     public Map<IndependenceFact, Double> getH() {
-        return new HashMap<>(this.H);
+        Map<IndependenceFact, Double> facts = new HashMap<>();
+        this.H.forEach((k, v) -> facts.put(k.toIndependenceFact(this.nodes), v));
+
+        return facts;
     }
 
     public double getPosterior() {
@@ -444,23 +406,27 @@ public class CalibratingIndTestProbabilistic implements IndependenceTest {
 
     public void setPriorEquivalentSampleSize(double priorEquivalentSampleSize) {
         this.priorEquivalentSampleSize = priorEquivalentSampleSize;
-    }
-
-    private List<Integer> getRows(DataSet dataSet, List<Node> allVars, Map<Node, Integer> nodesHash) {
-        List<Integer> rows = new ArrayList<>();
 
-        K:
-        for (int k = 0; k < dataSet.getNumRows(); k++) {
-            for (Node node : allVars) {
-                if (dataSet.getInt(k, nodesHash.get(node)) == -99) {
-                    continue K;
-                }
-            }
-
-            rows.add(k);
+        if (this.posteriorCache != null) {
+            this.H = this.posteriorCache.getPosteriors(this.data, priorEquivalentSampleSize);
         }
+    }
+
+    /**
+     * Share the posteriors with the other tests using the given cache. The
+     * posteriors are looked up by data set and prior equivalent sample size.
+     *
+     * @param posteriorCache run-scoped posterior cache
+     */
+    public void setPosteriorCache(PosteriorCache posteriorCache) {
+        this.posteriorCache = posteriorCache;
+        this.H = (posteriorCache == null)
+                ? new HashMap<>()
+                : posteriorCache.getPosteriors(this.data, this.priorEquivalentSampleSize);
+    }
 
-        return rows;
+    public CountEngine getCountEngine() {
+        return this.countEngine;
     }
 
 }
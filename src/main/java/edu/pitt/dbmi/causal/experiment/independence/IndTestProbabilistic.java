@@ -2,7 +2,6 @@ package edu.pitt.dbmi.causal.experiment.independence;
 
 import edu.cmu.tetrad.data.DataModel;
 import edu.cmu.tetrad.data.DataSet;
-import edu.cmu.tetrad.data.DiscreteVariable;
 import edu.cmu.tetrad.graph.IndependenceFact;
 import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.search.test.IndTestDSep;
@@ -11,12 +10,12 @@ import edu.cmu.tetrad.search.test.IndependenceTest;
 import edu.cmu.tetrad.search.utils.LogUtilsSearch;
 import edu.cmu.tetrad.util.RandomUtil;
 import edu.cmu.tetrad.util.TetradLogger;
-import edu.pitt.dbmi.algo.bayesian.constraint.inference.BCInference;
 import edu.pitt.dbmi.causal.experiment.calibration.GeneralValue;
+import edu.pitt.dbmi.causal.experiment.count.ContingencyTable;
+import edu.pitt.dbmi.causal.experiment.count.CountEngine;
+import edu.pitt.dbmi.causal.experiment.data.DiscreteDataColumns;
 import edu.pitt.dbmi.causal.experiment.util.StringUtils;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -41,6 +40,22 @@ public class IndTestProbabilistic implements IndependenceTest {
      */
     private final DataSet data;
 
+    /**
+     * Columnar copy of the data set, shared with other tests on the same data.
+     */
+    private final DiscreteDataColumns dataColumns;
+
+    /**
+     * Number of times each row of the data set is counted, as for a bootstrap
+     * sample, null if each row is counted once.
+     */
+    private final int[] rowCounts;
+
+    /**
+     * Number of rows counted.
+     */
+    private final int numberOfRows;
+
     /**
      * The nodes of the data set.
      */
@@ -54,23 +69,33 @@ public class IndTestProbabilistic implements IndependenceTest {
     /**
      * A map from independence facts to their probabilities of independence.
      */
-    private final Map<IndependenceFact, Double> H;
+    private Map<IndependenceFactKey, Double> H;
+
+    /**
+     * Run-scoped store of posteriors shared with other tests, null if the
+     * posteriors are local to this test.
+     */
+    private PosteriorCache posteriorCache;
     private double posterior;
     private boolean verbose;
 
     private double cutoff = 0.5;
     private double priorEquivalentSampleSize = 10;
 
-    private final BCInference bci;
+    /**
+     * Builds the contingency tables of the tests, shared with other tests on
+     * the same data.
+     */
+    private final CountEngine countEngine;
 
     private IndTestDSep indTestDSeperation;
     private Set<GeneralValue> generalValues;
-    private Set<String> condProbLabels;
+    private Set<IndependenceFactKey> condProbLabels;
 
     private static int nCount = 0;
     private static int count = 0;
 
-    public IndTestProbabilistic(DataSet data, IndTestDSep indTestDSeperation, Set<GeneralValue> generalValues, Set<String> condProbLabels) {
+    public IndTestProbabilistic(DataSet data, IndTestDSep indTestDSeperation, Set<GeneralValue> generalValues, Set<IndependenceFactKey> condProbLabels) {
         this(data);
         this.indTestDSeperation = indTestDSeperation;
         this.generalValues = generalValues;
@@ -82,10 +107,26 @@ public class IndTestProbabilistic implements IndependenceTest {
      * Initializes the test using a discrete data sets.
      */
     public IndTestProbabilistic(DataSet dataSet) {
+        this(dataSet, (int[]) null);
+    }
+
+    /**
+     * Initializes the test on a sample of a discrete data set given by the
+     * number of times each row is drawn. The rows are counted from the data
+     * set itself, so the sample is never copied into a data set of its own.
+     *
+     * @param dataSet discrete data set
+     * @param rowCounts number of times each row is drawn, or null to count
+     * each row once
+     */
+    public IndTestProbabilistic(DataSet dataSet, int[] rowCounts) {
         if (!dataSet.isDiscrete()) {
             throw new IllegalArgumentException("Not a discrete data set.");
 
         }
+        if (rowCounts != null && rowCounts.length != dataSet.getNumRows()) {
+            throw new IllegalArgumentException("Row counts must be given for every row of the data set.");
+        }
 
         this.nodes = dataSet.getVariables();
 
@@ -96,49 +137,13 @@ public class IndTestProbabilistic implements IndependenceTest {
         }
 
         this.data = dataSet;
+        this.dataColumns = DiscreteDataColumns.getInstance(dataSet);
+        this.countEngine = CountEngine.getInstance(dataSet);
+        this.rowCounts = rowCounts;
+        this.numberOfRows = (rowCounts == null)
+                ? dataSet.getNumRows()
+                : DiscreteDataColumns.countRows(null, rowCounts);
         this.H = new HashMap<>();
-
-        int[] _cols = new int[this.nodes.size()];
-        for (int i = 0; i < _cols.length; i++) {
-            _cols[i] = this.indices.get(this.nodes.get(i));
-        }
-
-        int[] _rows = new int[dataSet.getNumRows()];
-        for (int i = 0; i < dataSet.getNumRows(); i++) {
-            _rows[i] = i;
-        }
-
-        DataSet _data = this.data.subsetRowsColumns(_rows, _cols);
-
-        List<Node> nodes = _data.getVariables();
-
-        for (int i = 0; i < nodes.size(); i++) {
-            this.indices.put(nodes.get(i), i);
-        }
-
-        this.bci = setup(_data);
-    }
-
-    private BCInference setup(DataSet dataSet) {
-        int[] nodeDimensions = new int[dataSet.getNumColumns() + 2];
-
-        for (int j = 0; j < dataSet.getNumColumns(); j++) {
-            DiscreteVariable variable = (DiscreteVariable) (dataSet.getVariable(j));
-            int numCategories = variable.getNumCategories();
-            nodeDimensions[j + 1] = numCategories;
-        }
-
-        int[][] cases = new int[dataSet.getNumRows() + 1][dataSet.getNumColumns() + 2];
-
-        for (int i = 0; i < dataSet.getNumRows(); i++) {
-            for (int j = 0; j < dataSet.getNumColumns(); j++) {
-                cases[i + 1][j + 1] = dataSet.getInt(i, j) + 1;
-            }
-        }
-
-        BCInference bci = new BCInference(cases, nodeDimensions);
-        bci.setPriorEqivalentSampleSize(this.priorEquivalentSampleSize);
-        return bci;
     }
 
     @Override
@@ -157,56 +162,37 @@ public class IndTestProbabilistic implements IndependenceTest {
 
     @Override
     public IndependenceResult checkIndependence(Node x, Node y, Node... z) {
-        IndependenceFact key = new IndependenceFact(x, y, z);
-
-        List<Node> allVars = new ArrayList<>();
-        allVars.add(x);
-        allVars.add(y);
-        Collections.addAll(allVars, z);
+        int[] _cols = new int[z.length + 2];
+        _cols[0] = this.indices.get(x);
+        _cols[1] = this.indices.get(y);
+        for (int i = 0; i < z.length; i++) {
+            _cols[i + 2] = this.indices.get(z[i]);
+        }
 
-        List<Integer> rows = getRows(this.data, allVars, this.indices);
-        if (rows.isEmpty()) {
+        // rows with no missing values for any of the variables, null if all rows
+        long[] completeRows = this.dataColumns.getCompleteRows(_cols);
+        int numOfRows;
+        if (completeRows == null) {
+            numOfRows = this.numberOfRows;
+        } else {
+            numOfRows = (this.rowCounts == null)
+                    ? DiscreteDataColumns.countRows(completeRows)
+                    : DiscreteDataColumns.countRows(completeRows, this.rowCounts);
+        }
+        if (numOfRows == 0) {
             return new IndependenceResult(new IndependenceFact(x, y, z),
                     true, Double.NaN);
         }
 
-        BCInference bci;
-        Map<Node, Integer> indices;
-
-        if (rows.size() == this.data.getNumRows()) {
-            bci = this.bci;
-            indices = this.indices;
-        } else {
-
-            int[] _cols = new int[allVars.size()];
-            for (int i = 0; i < _cols.length; i++) {
-                _cols[i] = this.indices.get(allVars.get(i));
-            }
-
-            int[] _rows = new int[rows.size()];
-            for (int i = 0; i < rows.size(); i++) {
-                _rows[i] = rows.get(i);
-            }
-
-            DataSet _data = this.data.subsetRowsColumns(_rows, _cols);
-
-            List<Node> nodes = _data.getVariables();
-
-            indices = new HashMap<>();
-
-            for (int i = 0; i < nodes.size(); i++) {
-                indices.put(nodes.get(i), i);
-            }
-
-            bci = setup(_data);
-        }
+        IndependenceFactKey key = IndependenceFactKey.canonical(_cols);
 
         double pInd;
-        if (!this.H.containsKey(key)) {
-            pInd = probConstraint(bci, BCInference.OP.independent, x, y, z, indices);
+        Double cachedPInd = this.H.get(key);
+        if (cachedPInd == null) {
+            pInd = probConstraint(key);
             H.put(key, pInd);
         } else {
-            pInd = H.get(key);
+            pInd = cachedPInd;
         }
 
         double p = pInd;
@@ -244,10 +230,13 @@ public class IndTestProbabilistic implements IndependenceTest {
         //    p = 0.699634;
         // }
         if (generalValues != null) {
-            int observed = (int) indTestDSeperation.checkIndependence(x, y, z).getPValue();
+            // the label is only rendered for tests not seen before
+            if (condProbLabels.add(IndependenceFactKey.ordered(_cols))) {
+                int observed = (int) indTestDSeperation.checkIndependence(x, y, z).getPValue();
 
-            String condProbLabel = StringUtils.toString(x, y, z);
-            generalValues.add(new GeneralValue(condProbLabel, p, observed));
+                String condProbLabel = StringUtils.toString(x, y, z);
+                generalValues.add(new GeneralValue(condProbLabel, p, observed));
+            }
 //            if (!condProbLabels.contains(condProbLabel)) {
 //                condProbLabels.add(condProbLabel);
 //                generalValues.add(new GeneralValue(condProbLabel, p, observed));
@@ -282,18 +271,12 @@ public class IndTestProbabilistic implements IndependenceTest {
         return new IndependenceResult(new IndependenceFact(x, y, z), ind, p);
     }
 
-    public double probConstraint(BCInference bci, BCInference.OP op, Node x, Node y, Node[] z, Map<Node, Integer> indices) {
+    private double probConstraint(IndependenceFactKey key) {
+        // counted in the canonical order of the variables so that the
+        // posterior does not depend on the order the test was asked in
+        ContingencyTable table = this.countEngine.count(key.getX(), key.getY(), key.getZ(), this.rowCounts);
 
-        int _x = indices.get(x) + 1;
-        int _y = indices.get(y) + 1;
-
-        int[] _z = new int[z.length + 1];
-        _z[0] = z.length;
-        for (int i = 0; i < z.length; i++) {
-            _z[i + 1] = indices.get(z[i]) + 1;
-        }
-
-        return bci.probConstraint(op, _x, _y, _z);
+        return BCInferencePosterior.probIndependent(table, this.priorEquivalentSampleSize);
     }
 
     @Override
@@ -338,7 +321,10 @@ public class IndTestProbabilistic implements IndependenceTest {
     }
 
     public Map<IndependenceFact, Double> getH() {
-        return new HashMap<>(this.H);
+        Map<IndependenceFact, Double> facts = new HashMap<>();
+        this.H.forEach((k, v) -> facts.put(k.toIndependenceFact(this.nodes), v));
+
+        return facts;
     }
 
     public double getPosterior() {
@@ -365,22 +351,27 @@ public class IndTestProbabilistic implements IndependenceTest {
 
     public void setPriorEquivalentSampleSize(double priorEquivalentSampleSize) {
         this.priorEquivalentSampleSize = priorEquivalentSampleSize;
-    }
 
-    private List<Integer> getRows(DataSet dataSet, List<Node> allVars, Map<Node, Integer> nodesHash) {
-        List<Integer> rows = new ArrayList<>();
-
-        K:
-        for (int k = 0; k < dataSet.getNumRows(); k++) {
-            for (Node node : allVars) {
-                if (dataSet.getInt(k, nodesHash.get(node)) == -99) {
-                    continue K;
-                }
-            }
-
-            rows.add(k);
+        if (this.posteriorCache != null) {
+            this.H = this.posteriorCache.getPosteriors(this.data, this.rowCounts, priorEquivalentSampleSize);
         }
+    }
+
+    /**
+     * Share the posteriors with the other tests using the given cache. The
+     * posteriors are looked up by data set, row counts and prior equivalent
+     * sample size.
+     *
+     * @param posteriorCache run-scoped posterior cache
+     */
+    public void setPosteriorCache(PosteriorCache posteriorCache) {
+        this.posteriorCache = posteriorCache;
+        this.H = (posteriorCache == null)
+                ? new HashMap<>()
+                : posteriorCache.getPosteriors(this.data, this.rowCounts, this.priorEquivalentSampleSize);
+    }
 
-        return rows;
+    public CountEngine getCountEngine() {
+        return this.countEngine;
     }
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.independence;
+
+import edu.cmu.tetrad.graph.IndependenceFact;
+import edu.cmu.tetrad.graph.Node;
+import edu.pitt.dbmi.causal.experiment.util.StringUtils;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact key of a test of independence of x and y given z, made of the
+ * column indices of the variables in the data set: x, y and then z. The hash
+ * is computed once.
+ *
+ * A canonical key has x &lt; y and z sorted, so that it identifies the
+ * independence fact regardless of the order of the variables, as
+ * {@link IndependenceFact} does. An ordered key keeps the variables in the
+ * order they were given, as the labels of the tests do.
+ *
+ * @author agent (agent@local)
+ */
+public final class IndependenceFactKey {
+
+    private final int[] vars;
+    private final int hash;
+
+    private IndependenceFactKey(int[] vars) {
+        this.vars = vars;
+        this.hash = Arrays.hashCode(vars);
+    }
+
+    /**
+     * Create a key that keeps the variables in the given order.
+     *
+     * @param vars column indices of x, y and then z
+     * @return ordered key
+     */
+    public static IndependenceFactKey ordered(int[] vars) {
+        if (vars.length < 2) {
+            throw new IllegalArgumentException("A test of independence requires at least two variables.");
+        }
+
+        return new IndependenceFactKey(vars.clone());
+    }
+
+    /**
+     * Create a key with x &lt; y and z sorted.
+     *
+     * @param vars column indices of x, y and then z
+     * @return canonical key
+     */
+    public static IndependenceFactKey canonical(int[] vars) {
+        if (vars.length < 2) {
+            throw new IllegalArgumentException("A test of independence requires at least two variables.");
+        }
+
+        int[] canonicalVars = vars.clone();
+        if (canonicalVars[0] > canonicalVars[1]) {
+            canonicalVars[0] = vars[1];
+            canonicalVars[1] = vars[0];
+        }
+        Arrays.sort(canonicalVars, 2, canonicalVars.length);
+
+        return new IndependenceFactKey(canonicalVars);
+    }
+
+    /**
+     * Get the column indices of x, y and then z.
+     *
+     * @return a copy of the column indices
+     */
+    public int[] getVariables() {
+        return vars.clone();
+    }
+
+    public int getX() {
+        return vars[0];
+    }
+
+    public int getY() {
+        return vars[1];
+    }
+
+    public int[] getZ() {
+        return Arrays.copyOfRange(vars, 2, vars.length);
+    }
+
+    /**
+     * Convert the key back to an independence fact.
+     *
+     * @param nodes variables of the data set, in column order
+     * @return independence fact
+     */
+    public IndependenceFact toIndependenceFact(List<Node> nodes) {
+        return new IndependenceFact(nodes.get(vars[0]), nodes.get(vars[1]), getZNodes(nodes));
+    }
+
+    /**
+     * Render the label of the test, for example P(X1,X2|X3).
+     *
+     * @param nodes variables of the data set, in column order
+     * @return label of the test
+     */
+    public String toLabel(List<Node> nodes) {
+        return StringUtils.toString(nodes.get(vars[0]), nodes.get(vars[1]), getZNodes(nodes));
+    }
+
+    private Node[] getZNodes(List<Node> nodes) {
+        Node[] z = new Node[vars.length - 2];
+        for (int i = 0; i < z.length; i++) {
+            z[i] = nodes.get(vars[i + 2]);
+        }
+
+        return z;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof IndependenceFactKey)) {
+            return false;
+        }
+
+        IndependenceFactKey other = (IndependenceFactKey) obj;
+
+        return hash == other.hash && Arrays.equals(vars, other.vars);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(vars);
+    }
+
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.independence;
+
+import edu.cmu.tetrad.graph.Node;
+import edu.pitt.dbmi.causal.experiment.util.StringUtils;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Debug trace of the tests done by the calibrating test of independence. The
+ * fields of each test are written as primitives into a preallocated binary
+ * buffer. When the buffer is full, or when the trace is flushed, the records
+ * are handed over as a block and the buffer starts over. A block is formatted
+ * into CSV lines only when it is dumped, typically on the thread writing the
+ * trace to a file.
+ *
+ * A trace is used by a single test and is not thread-safe.
+ *
+ * @author agent (agent@local)
+ */
+public final class IndependenceTrace {
+
+    /**
+     * Header of the CSV lines.
+     */
+    public static final String HEADER = "test of independence,bc inference,c,b,m,n,r,return value,is independent (d-sep),is independent (coin flip)";
+
+    /**
+     * Default number of records in a block.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Size of the fixed fields of a record: the number of variables, the
+     * posterior, c, b, m, n, r, the returned probability and the flags.
+     */
+    private static final int FIXED_RECORD_SIZE = Integer.BYTES + 5 * Double.BYTES + 2 * Integer.BYTES + 1;
+
+    /**
+     * Largest buffer allocated unless a single record needs more.
+     */
+    private static final int MAX_BUFFER_SIZE = 256 * 1024;
+
+    private static final byte D_SEP_INDEPENDENT = 1;
+    private static final byte INDEPENDENT = 2;
+
+    private final List<Node> nodes;
+    private final Consumer<? super Records> output;
+    private final int capacity;
+    private final int bufferSize;
+
+    private ByteBuffer buffer;
+    private int numberOfRecords;
+
+    public IndependenceTrace(List<Node> nodes, Consumer<? super Records> output) {
+        this(nodes, output, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a trace handing over blocks of up to the given number of
+     * records. A block holds fewer records when the buffer is full.
+     *
+     * @param nodes variables of the data set the column indices refer to
+     * @param output receives the blocks of records
+     * @param capacity number of records in a block
+     */
+    public IndependenceTrace(List<Node> nodes, Consumer<? super Records> output, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1.");
+        }
+
+        this.nodes = nodes;
+        this.output = output;
+        this.capacity = capacity;
+        long maxRecordSize = FIXED_RECORD_SIZE + (long) nodes.size() * Integer.BYTES;
+        this.bufferSize = (int) Math.min(capacity * maxRecordSize, Math.max(MAX_BUFFER_SIZE, maxRecordSize));
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * Create a trace that adds the CSV line of each test to the given list as
+     * soon as the test is recorded.
+     *
+     * @param nodes variables of the data set the column indices refer to
+     * @param lines receives the lines
+     * @return trace writing to the list
+     */
+    public static IndependenceTrace toList(List<Node> nodes, List<String> lines) {
+        return new IndependenceTrace(nodes, records -> records.forEachLine(lines::add), 1);
+    }
+
+    /**
+     * Record a test.
+     *
+     * @param cols column indices of x, y and then z, as the test was asked
+     * @param bciIndependent posterior probability of independence
+     * @param c estimated fraction of independent tests
+     * @param b probability of calling a dependent test independent
+     * @param m number of independent tests
+     * @param n number of tests
+     * @param r random number drawn for the test
+     * @param p probability of independence returned
+     * @param dSepIndependent independence by d-separation in the true graph
+     * @param independent independence returned
+     */
+    public void record(int[] cols, double bciIndependent, double c, double b, int m, int n, double r, double p, boolean dSepIndependent, boolean independent) {
+        if (buffer.remaining() < FIXED_RECORD_SIZE + cols.length * Integer.BYTES) {
+            flush();
+        }
+
+        buffer.putInt(cols.length);
+        for (int col : cols) {
+            buffer.putInt(col);
+        }
+        buffer.putDouble(bciIndependent)
+                .putDouble(c)
+                .putDouble(b)
+                .putInt(m)
+                .putInt(n)
+                .putDouble(r)
+                .putDouble(p)
+                .put((byte) ((dSepIndependent ? D_SEP_INDEPENDENT : 0) | (independent ? INDEPENDENT : 0)));
+
+        if (++numberOfRecords == capacity) {
+            flush();
+        }
+    }
+
+    /**
+     * Hand over the records in the buffer, if any.
+     */
+    public void flush() {
+        if (numberOfRecords == 0) {
+            return;
+        }
+
+        buffer.flip();
+        output.accept(new Records(nodes, buffer, numberOfRecords));
+
+        // the block handed over keeps the buffer
+        buffer = ByteBuffer.allocate(bufferSize);
+        numberOfRecords = 0;
+    }
+
+    /**
+     * Block of records handed over by a trace.
+     */
+    public static final class Records {
+
+        private final List<Node> nodes;
+        private final ByteBuffer buffer;
+        private final int numberOfRecords;
+
+        private Records(List<Node> nodes, ByteBuffer buffer, int numberOfRecords) {
+            this.nodes = nodes;
+            this.buffer = buffer;
+            this.numberOfRecords = numberOfRecords;
+        }
+
+        /**
+         * Format each record into a CSV line.
+         *
+         * @param lines receives the lines, in the order the tests were done
+         */
+        public void forEachLine(Consumer<String> lines) {
+            ByteBuffer records = buffer.duplicate();
+            for (int i = 0; i < numberOfRecords; i++) {
+                int numOfVars = records.getInt();
+                Node x = nodes.get(records.getInt());
+                Node y = nodes.get(records.getInt());
+                Node[] z = new Node[numOfVars - 2];
+                for (int j = 0; j < z.length; j++) {
+                    z[j] = nodes.get(records.getInt());
+                }
+                double bciIndependent = records.getDouble();
+                double c = records.getDouble();
+                double b = records.getDouble();
+                int m = records.getInt();
+                int n = records.getInt();
+                double r = records.getDouble();
+                double p = records.getDouble();
+                byte flags = records.get();
+
+                lines.accept(String.format("\"%s\",%f,%f,%f,%d,%d,%f,%f,%s,%s",
+                        StringUtils.toString(x, y, z),
+                        bciIndependent, c, b, m, n, r, p,
+                        (flags & D_SEP_INDEPENDENT) != 0,
+                        (flags & INDEPENDENT) != 0));
+            }
+        }
+
+        /**
+         * Format the records into CSV lines.
+         *
+         * @return the lines, separated by line separators
+         */
+        public String toCsv() {
+            StringBuilder csv = new StringBuilder();
+            forEachLine(line -> {
+                if (csv.length() > 0) {
+                    csv.append(System.lineSeparator());
+                }
+                csv.append(line);
+            });
+
+            return csv.toString();
+        }
+
+        /**
+         * Write the block in binary form, to be read back by
+         * {@link #readFrom(List, DataInput)}.
+         *
+         * @param output binary output
+         * @throws IOException if the block cannot be written
+         */
+        public void writeTo(DataOutput output) throws IOException {
+            output.writeInt(numberOfRecords);
+            output.writeInt(buffer.remaining());
+            output.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+
+        /**
+         * Read a block written by {@link #writeTo(DataOutput)}.
+         *
+         * @param nodes variables of the data set the column indices refer to
+         * @param input binary input
+         * @return block of records
+         * @throws IOException if the block cannot be read
+         */
+        public static Records readFrom(List<Node> nodes, DataInput input) throws IOException {
+            int numberOfRecords = input.readInt();
+            byte[] records = new byte[input.readInt()];
+            input.readFully(records);
+
+            return new Records(nodes, ByteBuffer.wrap(records), numberOfRecords);
+        }
+
+        public List<Node> getNodes() {
+            return nodes;
+        }
+
+        public int getNumberOfRecords() {
+            return numberOfRecords;
+        }
+
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.independence;
+
+import edu.cmu.tetrad.data.DataSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe store of the BCInference posterior probabilities of
+ * independence, shared by all the searches of a run. The posteriors are kept
+ * separately for each data set and prior equivalent sample size, since they
+ * depend on both.
+ *
+ * @author agent (agent@local)
+ */
+public class PosteriorCache {
+
+    private final Map<Scope, Map<IndependenceFactKey, Double>> posteriors = new ConcurrentHashMap<>();
+
+    /**
+     * Get the posteriors computed on the given data set with the given prior
+     * equivalent sample size. The returned map is thread-safe.
+     *
+     * @param dataSet data set the posteriors are computed on
+     * @param priorEquivalentSampleSize prior equivalent sample size
+     * @return map from independence facts to their posterior probabilities
+     */
+    public Map<IndependenceFactKey, Double> getPosteriors(DataSet dataSet, double priorEquivalentSampleSize) {
+        return getPosteriors(dataSet, null, priorEquivalentSampleSize);
+    }
+
+    /**
+     * Get the posteriors computed on a sample of the given data set, given by
+     * the number of times each row is drawn, with the given prior equivalent
+     * sample size. The returned map is thread-safe.
+     *
+     * @param dataSet data set the sample is drawn from
+     * @param rowCounts number of times each row is drawn, or null if each row
+     * is counted once
+     * @param priorEquivalentSampleSize prior equivalent sample size
+     * @return map from independence facts to their posterior probabilities
+     */
+    public Map<IndependenceFactKey, Double> getPosteriors(DataSet dataSet, int[] rowCounts, double priorEquivalentSampleSize) {
+        return posteriors.computeIfAbsent(new Scope(dataSet, rowCounts, priorEquivalentSampleSize), k -> new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Get the total number of posteriors stored.
+     *
+     * @return number of posteriors
+     */
+    public int size() {
+        return posteriors.values().stream()
+                .mapToInt(Map::size)
+                .sum();
+    }
+
+    public void clear() {
+        posteriors.clear();
+    }
+
+    /**
+     * Data sets and row counts are compared by identity, which is cheaper than
+     * comparing their content and is what the searches of a run share.
+     */
+    private static final class Scope {
+
+        private final DataSet dataSet;
+        private final int[] rowCounts;
+        private final double priorEquivalentSampleSize;
+
+        private Scope(DataSet dataSet, int[] rowCounts, double priorEquivalentSampleSize) {
+            this.dataSet = dataSet;
+            this.rowCounts = rowCounts;
+            this.priorEquivalentSampleSize = priorEquivalentSampleSize;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 31 * System.identityHashCode(dataSet) + System.identityHashCode(rowCounts);
+
+            return 31 * hash + Double.hashCode(priorEquivalentSampleSize);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Scope)) {
+                return false;
+            }
+
+            Scope other = (Scope) obj;
+
+            return dataSet == other.dataSet
+                    && rowCounts == other.rowCounts
+                    && Double.compare(priorEquivalentSampleSize, other.priorEquivalentSampleSize) == 0;
+        }
+
+    }
+
+}
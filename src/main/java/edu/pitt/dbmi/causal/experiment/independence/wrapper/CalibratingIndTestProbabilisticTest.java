@@ -11,9 +11,13 @@ import edu.cmu.tetrad.util.Params;
 import edu.pitt.dbmi.causal.experiment.calibration.GeneralValue;
 import edu.pitt.dbmi.causal.experiment.independence.CalibratingIndTestProbabilistic;
 import edu.pitt.dbmi.causal.experiment.independence.IndTestProbabilistic;
+import edu.pitt.dbmi.causal.experiment.independence.IndependenceFactKey;
+import edu.pitt.dbmi.causal.experiment.independence.IndependenceTrace;
+import edu.pitt.dbmi.causal.experiment.independence.PosteriorCache;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  *
@@ -25,11 +29,26 @@ public class CalibratingIndTestProbabilisticTest implements IndependenceWrapper
 
     private static final long serialVersionUID = 23L;
 
-    public IndependenceTest getTest(DataModel dataSet, Parameters parameters, IndTestDSep indTestDSeperation, Set<GeneralValue> generalValues, Set<String> condProbLabels, List<String> debugOutputs) {
-        CalibratingIndTestProbabilistic test = new CalibratingIndTestProbabilistic(SimpleDataLoader.getDiscreteDataSet(dataSet), indTestDSeperation, generalValues, condProbLabels, debugOutputs);
+    public IndependenceTest getTest(DataModel dataSet, Parameters parameters, IndTestDSep indTestDSeperation, Set<GeneralValue> generalValues, Set<IndependenceFactKey> condProbLabels, List<String> debugOutputs) {
+        return getTest(dataSet, parameters, indTestDSeperation, generalValues, condProbLabels, debugOutputs, null);
+    }
+
+    public IndependenceTest getTest(DataModel dataSet, Parameters parameters, IndTestDSep indTestDSeperation, Set<GeneralValue> generalValues, Set<IndependenceFactKey> condProbLabels, List<String> debugOutputs, PosteriorCache posteriorCache) {
+        return getTest(dataSet, parameters, indTestDSeperation,
+                (generalValues == null) ? null : generalValues::add,
+                condProbLabels,
+                (debugOutputs == null) ? null : IndependenceTrace.toList(dataSet.getVariables(), debugOutputs),
+                posteriorCache);
+    }
+
+    public IndependenceTest getTest(DataModel dataSet, Parameters parameters, IndTestDSep indTestDSeperation, Consumer<GeneralValue> generalValues, Set<IndependenceFactKey> condProbLabels, IndependenceTrace trace, PosteriorCache posteriorCache) {
+        CalibratingIndTestProbabilistic test = new CalibratingIndTestProbabilistic(SimpleDataLoader.getDiscreteDataSet(dataSet), indTestDSeperation, generalValues, condProbLabels, trace);
         test.setThreshold(parameters.getBoolean(Params.NO_RANDOMLY_DETERMINED_INDEPENDENCE));
         test.setCutoff(parameters.getDouble(Params.CUTOFF_IND_TEST));
         test.setPriorEquivalentSampleSize(parameters.getDouble(Params.PRIOR_EQUIVALENT_SAMPLE_SIZE));
+        if (posteriorCache != null) {
+            test.setPosteriorCache(posteriorCache);
+        }
 
         return test;
     }
@@ -10,6 +10,8 @@ import edu.cmu.tetrad.util.Parameters;
 import edu.cmu.tetrad.util.Params;
 import edu.pitt.dbmi.causal.experiment.calibration.GeneralValue;
 import edu.pitt.dbmi.causal.experiment.independence.IndTestProbabilistic;
+import edu.pitt.dbmi.causal.experiment.independence.IndependenceFactKey;
+import edu.pitt.dbmi.causal.experiment.independence.PosteriorCache;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -24,7 +26,7 @@ public class ProbabilisticTest implements IndependenceWrapper {
 
     private static final long serialVersionUID = 23L;
 
-    public IndependenceTest getTest(DataModel dataSet, Parameters parameters, IndTestDSep indTestDSeperation, Set<GeneralValue> generalValues, Set<String> condProbLabels) {
+    public IndependenceTest getTest(DataModel dataSet, Parameters parameters, IndTestDSep indTestDSeperation, Set<GeneralValue> generalValues, Set<IndependenceFactKey> condProbLabels) {
         IndTestProbabilistic test = new IndTestProbabilistic(SimpleDataLoader.getDiscreteDataSet(dataSet), indTestDSeperation, generalValues, condProbLabels);
         test.setThreshold(parameters.getBoolean(Params.NO_RANDOMLY_DETERMINED_INDEPENDENCE));
         test.setCutoff(parameters.getDouble(Params.CUTOFF_IND_TEST));
@@ -35,10 +37,46 @@ public class ProbabilisticTest implements IndependenceWrapper {
 
     @Override
     public IndependenceTest getTest(DataModel dataSet, Parameters parameters) {
+        return getTest(dataSet, parameters, (PosteriorCache) null);
+    }
+
+    /**
+     * Get a test whose posteriors are shared with the other tests on the same
+     * data set through the given cache.
+     *
+     * @param dataSet data set
+     * @param parameters test parameters
+     * @param posteriorCache cache of posteriors, or null for posteriors of
+     * this test only
+     * @return test of independence
+     */
+    public IndependenceTest getTest(DataModel dataSet, Parameters parameters, PosteriorCache posteriorCache) {
         IndTestProbabilistic test = new IndTestProbabilistic(SimpleDataLoader.getDiscreteDataSet(dataSet));
         test.setThreshold(parameters.getBoolean(Params.NO_RANDOMLY_DETERMINED_INDEPENDENCE));
         test.setCutoff(parameters.getDouble(Params.CUTOFF_IND_TEST));
         test.setPriorEquivalentSampleSize(parameters.getDouble(Params.PRIOR_EQUIVALENT_SAMPLE_SIZE));
+        if (posteriorCache != null) {
+            test.setPosteriorCache(posteriorCache);
+        }
+
+        return test;
+    }
+
+    /**
+     * Get a test on a sample of the data set given by the number of times each
+     * row is drawn, without copying the sample.
+     *
+     * @param dataSet data set the sample is drawn from
+     * @param rowCounts number of times each row is drawn, or null to count
+     * each row once
+     * @param parameters test parameters
+     * @return test of independence
+     */
+    public IndependenceTest getTest(DataModel dataSet, int[] rowCounts, Parameters parameters) {
+        IndTestProbabilistic test = new IndTestProbabilistic(SimpleDataLoader.getDiscreteDataSet(dataSet), rowCounts);
+        test.setThreshold(parameters.getBoolean(Params.NO_RANDOMLY_DETERMINED_INDEPENDENCE));
+        test.setCutoff(parameters.getDouble(Params.CUTOFF_IND_TEST));
+        test.setPriorEquivalentSampleSize(parameters.getDouble(Params.PRIOR_EQUIVALENT_SAMPLE_SIZE));
 
         return test;
     }
@@ -18,10 +18,38 @@
  */
 package edu.pitt.dbmi.causal.experiment.run;
 
+import edu.cmu.tetrad.graph.EdgeTypeProbability.EdgeType;
+import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.util.Parameters;
+import edu.cmu.tetrad.util.Params;
+import edu.cmu.tetrad.util.RandomUtil;
+import edu.pitt.dbmi.causal.experiment.calibration.GraphEvaluation;
+import edu.pitt.dbmi.causal.experiment.calibration.GraphStatistics;
 import edu.pitt.dbmi.causal.experiment.data.SimulatedData;
+import edu.pitt.dbmi.causal.experiment.tetrad.LegalPagChecker;
+import edu.pitt.dbmi.causal.experiment.util.FileIO;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.nio.file.Path;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 
 /**
  *
@@ -38,6 +66,23 @@ public abstract class AbstractRunner {
     protected final SimulatedData simulatedData;
     protected final Parameters parameters;
 
+    /**
+     * Number of searches run concurrently.
+     */
+    protected int numOfThreads = NUM_THREADS;
+
+    /**
+     * Rule for stopping the searches early, null to always run all of them.
+     * Set from the parameters by the PAG sampling runners.
+     */
+    protected EdgeConvergence edgeConvergence;
+
+    /**
+     * Whether the cheap necessary conditions for a legal PAG are checked
+     * before tetrad's check.
+     */
+    protected boolean legalPagPrechecking = true;
+
     public AbstractRunner(SimulatedData simulatedData, Parameters parameters) {
         this.simulatedData = simulatedData;
         this.parameters = parameters;
@@ -45,6 +90,352 @@ public abstract class AbstractRunner {
 
     public abstract void run(Path parentOutDir) throws Exception;
 
+    /**
+     * Run randomized searches concurrently until the given number of them
+     * return a legal PAG.
+     *
+     * @param numOfLegalPags number of legal PAGs wanted
+     * @param search runs the search with the given (zero-based) index
+     * @return summary of the searches
+     * @throws InterruptedException
+     * @throws ExecutionException if a search fails
+     * @see #runSearches(int, IntFunction, Function, Consumer)
+     */
+    protected SearchRuns runSearches(int numOfLegalPags, IntFunction<Graph> search) throws InterruptedException, ExecutionException {
+        return runSearches(numOfLegalPags, Integer::valueOf, search::apply);
+    }
+
+    /**
+     * Run searches concurrently until the given number of them return a legal
+     * PAG.
+     *
+     * @param <T> type of the input of a search
+     * @param numOfLegalPags number of legal PAGs wanted
+     * @param input creates the input of the search with the given (zero-based)
+     * index
+     * @param search runs a search on the given input and returns its graph
+     * @return summary of the searches
+     * @throws InterruptedException
+     * @throws ExecutionException if a search fails
+     * @see #runSearches(int, IntFunction, Function, Consumer)
+     */
+    protected <T> SearchRuns runSearches(int numOfLegalPags, IntFunction<T> input, Function<T, Graph> search) throws InterruptedException, ExecutionException {
+        return runSearches(numOfLegalPags, input, search, searchInput -> {
+        });
+    }
+
+    /**
+     * Run searches concurrently until the given number of them return a legal
+     * PAG. A search is started whenever a thread is free, as long as the
+     * searches started may not give enough legal PAGs, so the searches run are
+     * the same as if they were run one after another. Each graph is checked
+     * for being a legal PAG on the thread of its search.
+     *
+     * The results are added to the summary in search order, as soon as the
+     * searches before them are done, so that at most one graph per thread is
+     * held at a time. If a stopping rule is set, the run stops at the search
+     * whose PAG makes the edge-type probabilities converge. Searches after
+     * that one are dropped. The input of each search added is passed to the
+     * given consumer on the calling thread, in search order, so a search can
+     * leave what it records in its input and have it written out only if the
+     * search is kept.
+     *
+     * The input of each search is created on the calling thread, in search
+     * order, and each search gets its own seed, drawn in search order from the
+     * seed parameter. The graphs are not reproducible, though: tetrad's
+     * discrete variables hash by identity, so the searches visit the variables
+     * in an order that can change from run to run.
+     *
+     * @param <T> type of the input of a search
+     * @param numOfLegalPags number of legal PAGs wanted
+     * @param input creates the input of the search with the given (zero-based)
+     * index
+     * @param search runs a search on the given input and returns its graph
+     * @param added receives the input of each search added to the summary
+     * @return summary of the searches
+     * @throws InterruptedException
+     * @throws ExecutionException if a search fails
+     */
+    protected <T> SearchRuns runSearches(int numOfLegalPags, IntFunction<T> input, Function<T, Graph> search, Consumer<T> added) throws InterruptedException, ExecutionException {
+        LegalPagChecker legalPagChecker = new LegalPagChecker(legalPagPrechecking);
+        SearchRuns searchRuns = new SearchRuns((edgeConvergence == null) ? null : edgeConvergence.newMonitor(), legalPagChecker);
+        if (numOfLegalPags <= 0) {
+            return searchRuns;
+        }
+
+        Random seeds = new Random(getSeed());
+
+        // tetrad keeps a random generator per thread in a map that is not
+        // thread-safe, so each thread registers its own before any search starts
+        RandomUtil.getInstance();
+        CountDownLatch registered = new CountDownLatch(numOfThreads);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                numOfThreads, numOfThreads,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                worker -> new Thread(() -> {
+                    synchronized (RandomUtil.class) {
+                        RandomUtil.getInstance();
+                    }
+                    registered.countDown();
+                    worker.run();
+                }));
+        executor.prestartAllCoreThreads();
+        registered.await();
+
+        CompletionService<IndexedResult<T>> completionService = new ExecutorCompletionService<>(executor);
+        try {
+            // results done before the searches ahead of them
+            Map<Integer, IndexedResult<T>> pendingResults = new HashMap<>();
+            int numOfSubmitted = 0;
+            int numOfRunning = 0;
+            int numOfIllegalPags = 0;
+            boolean converged = false;
+            while (!converged) {
+                // start another search whenever a thread is free and the
+                // searches started may not give enough legal PAGs
+                while (numOfRunning < numOfThreads && numOfSubmitted - numOfIllegalPags < numOfLegalPags) {
+                    submit(completionService, numOfSubmitted++, input, search, legalPagChecker, seeds.nextLong());
+                    numOfRunning++;
+                }
+                if (numOfRunning == 0) {
+                    break;
+                }
+
+                IndexedResult<T> indexedResult = completionService.take().get();
+                numOfRunning--;
+                if (indexedResult.result.isLegalPag()) {
+                    System.out.println("Search returns legal PAG.");
+                } else {
+                    System.out.println("Search does not return legal PAG.");
+                    numOfIllegalPags++;
+                }
+                pendingResults.put(indexedResult.index, indexedResult);
+
+                // results are added in search order, whatever order the
+                // searches finish in
+                while (!converged && pendingResults.containsKey(searchRuns.getNumberOfSearches())) {
+                    IndexedResult<T> nextResult = pendingResults.remove(searchRuns.getNumberOfSearches());
+                    converged = searchRuns.add(nextResult.result);
+                    added.accept(nextResult.input);
+                }
+            }
+
+            if (converged) {
+                // searches still running past the stopping point are dropped
+                System.out.printf("Edge-type probabilities converged after %d searches.%n", searchRuns.getNumberOfSearches());
+            }
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        return searchRuns;
+    }
+
+    private <T> void submit(CompletionService<IndexedResult<T>> completionService, int index, IntFunction<T> input, Function<T, Graph> search, LegalPagChecker legalPagChecker, long seed) {
+        T searchInput = input.apply(index);
+        completionService.submit(() -> {
+            System.out.printf("Starting search: %d%n", index + 1);
+            RandomUtil.getInstance().setSeed(seed);
+
+            Graph graph = search.apply(searchInput);
+
+            return new IndexedResult<>(index, searchInput, new SearchResult(graph, legalPagChecker.check(graph)));
+        });
+    }
+
+    /**
+     * Save the data, statistics and plots of each edge type evaluated in its
+     * own subdirectory, tail_arrow for instance. The edge types are saved
+     * concurrently.
+     *
+     * @param graphEvaluation evaluation of the search graph against the true
+     * graph
+     * @param edgeTypes edge types to save
+     * @param dirOut parent directory of the subdirectories
+     * @param title title of the plots, followed by the edge type
+     * @param name name of the data series, preceded by the edge type
+     * @throws IOException if a subdirectory cannot be created
+     * @throws InterruptedException
+     * @throws ExecutionException if an edge type cannot be saved
+     */
+    protected void saveEdgeTypeStatistics(GraphEvaluation graphEvaluation, EdgeType[] edgeTypes, Path dirOut, String title, String name) throws IOException, InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(numOfThreads, edgeTypes.length));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (EdgeType edgeType : edgeTypes) {
+                String[] names = getEdgeTypeNames(edgeType);
+                Path edgeTypeDir = FileIO.createSubdirectory(dirOut, names[0]);
+                String prefix = edgeType.name();
+                // only the tail-arrow calibration plot names its series after the edge type
+                String calibrationName = (edgeType == EdgeType.ta) ? prefix + "_" + name : name;
+                futures.add(executor.submit(() -> {
+                    GraphStatistics graphStats = new GraphStatistics(graphEvaluation, edgeType);
+                    graphStats.saveGraphData(edgeTypeDir.resolve(prefix + "_edge_data.csv"));
+                    graphStats.saveStatistics(edgeTypeDir.resolve(prefix + "_statistics.txt"));
+                    graphStats.saveCalibrationPlot(
+                            title + ": " + names[1], calibrationName,
+                            1000, 1000,
+                            edgeTypeDir.resolve(prefix + "_calibration.png"));
+                    graphStats.saveROCPlot(title + ": " + names[1], prefix + "_" + name,
+                            1000, 1000, edgeTypeDir.resolve(prefix + "_roc.png"));
+
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Get the names of an edge type.
+     *
+     * @param edgeType edge type
+     * @return name of the subdirectory and name in the plot titles
+     */
+    private static String[] getEdgeTypeNames(EdgeType edgeType) {
+        switch (edgeType) {
+            case ta:
+                return new String[]{"tail_arrow", "Tail-Arrow"};
+            case ca:
+                return new String[]{"circle_arrow", "Circle-Arrow"};
+            case cc:
+                return new String[]{"circle_circle", "Circle-Circle"};
+            case aa:
+                return new String[]{"arrow_arrow", "Arrow-Arrow"};
+            default:
+                throw new IllegalArgumentException(String.format("No names for edge type %s.", edgeType));
+        }
+    }
+
+    /**
+     * Get the seed for the randomized searches from the seed parameter, or
+     * from the clock if the parameter is not set.
+     *
+     * @return seed
+     */
+    protected long getSeed() {
+        long seed = parameters.getLong(Params.SEED);
+
+        return (seed < 0) ? System.nanoTime() : seed;
+    }
+
+    public int getNumOfThreads() {
+        return numOfThreads;
+    }
+
+    public void setNumOfThreads(int numOfThreads) {
+        if (numOfThreads < 1) {
+            throw new IllegalArgumentException("Number of threads must be at least 1.");
+        }
+
+        this.numOfThreads = numOfThreads;
+    }
+
+    public EdgeConvergence getEdgeConvergence() {
+        return edgeConvergence;
+    }
+
+    /**
+     * Set the rule for stopping the searches once the edge-type probabilities
+     * converge.
+     *
+     * @param edgeConvergence stopping rule, or null to always run until the
+     * number of legal PAGs wanted
+     */
+    public void setEdgeConvergence(EdgeConvergence edgeConvergence) {
+        this.edgeConvergence = edgeConvergence;
+    }
+
+    public boolean isLegalPagPrechecking() {
+        return legalPagPrechecking;
+    }
+
+    /**
+     * Set whether the cheap necessary conditions for a legal PAG are checked
+     * before tetrad's check. The graphs accepted are the same either way.
+     *
+     * @param legalPagPrechecking true to check the cheap conditions first
+     */
+    public void setLegalPagPrechecking(boolean legalPagPrechecking) {
+        this.legalPagPrechecking = legalPagPrechecking;
+    }
+
+    /**
+     * Print why the searches stopped.
+     *
+     * @param searchRuns summary of the searches
+     * @param writer run details
+     */
+    protected void printStopping(SearchRuns searchRuns, PrintStream writer) {
+        EdgeConvergence.Monitor convergenceMonitor = searchRuns.getConvergenceMonitor();
+
+        writer.println("Stopping");
+        writer.println("--------------------");
+        if (convergenceMonitor == null) {
+            writer.println("Stopping rule: none");
+            writer.println("Stopping reason: number of PAGs reached");
+        } else {
+            writer.printf("Stopping rule: %s%n", convergenceMonitor.getRule());
+            if (convergenceMonitor.isConverged()) {
+                writer.printf("Stopping reason: edge-type probabilities converged after %d valid PAGs%n", convergenceMonitor.getNumOfPags());
+            } else {
+                writer.println("Stopping reason: number of PAGs reached before the edge-type probabilities converged");
+            }
+            writer.printf("Last measure: %f%n", convergenceMonitor.getValue());
+        }
+    }
+
+    /**
+     * Print the parameters of the stopping rule.
+     *
+     * @param parameters parameters of the run
+     * @param writer run details
+     */
+    protected void printEdgeConvergenceParameters(Parameters parameters, PrintStream writer) {
+        EdgeConvergence rule = EdgeConvergence.fromParameters(parameters);
+        if (rule == null) {
+            writer.printf("Edge convergence measure: %s%n", EdgeConvergence.NONE);
+        } else {
+            writer.printf("Edge convergence measure: %s%n", rule.getMeasure());
+            writer.printf("Edge convergence tolerance: %s%n", rule.getTolerance());
+            writer.printf("Edge convergence consecutive PAGs: %d%n", rule.getNumOfConsecutivePags());
+        }
+    }
+
+    /**
+     * Print the cost of checking the graphs for legal PAGs and why graphs
+     * were rejected.
+     *
+     * @param searchRuns summary of the searches
+     * @param writer run details
+     */
+    protected void printLegalityChecks(SearchRuns searchRuns, PrintStream writer) {
+        LegalPagChecker legalPagChecker = searchRuns.getLegalPagChecker();
+
+        writer.println("PAG Legality Checks");
+        writer.println("--------------------");
+        writer.printf("Prechecks: %s%n", legalPagChecker.isPrechecking() ? "Yes" : "No");
+        writer.printf("Number of checks: %d%n", legalPagChecker.getNumberOfChecks());
+        writer.printf("Number of cache hits: %d%n", legalPagChecker.getNumberOfCacheHits());
+        writer.printf("Number of precheck rejections: %d%n", legalPagChecker.getNumberOfPrecheckRejections());
+        writer.printf("Number of full checks: %d%n", legalPagChecker.getNumberOfFullChecks());
+        writer.printf("Check time: %,d ms%n", TimeUnit.NANOSECONDS.toMillis(legalPagChecker.getCheckTime()));
+        writer.printf("Full check time: %,d ms%n", TimeUnit.NANOSECONDS.toMillis(legalPagChecker.getFullCheckTime()));
+        for (LegalPagChecker.Reason reason : LegalPagChecker.Reason.values()) {
+            int numOfRejections = legalPagChecker.getNumberOfRejections(reason);
+            if (numOfRejections > 0) {
+                writer.printf("Rejected, %s: %d%n", reason.getDescription(), numOfRejections);
+            }
+        }
+    }
+
     protected String getParameterValue(Parameters parameters, String name) {
         String paramValue = String.valueOf(parameters.get(name));
         if (paramValue.equals("true")) {
@@ -56,4 +447,18 @@ public abstract class AbstractRunner {
         return paramValue;
     }
 
+    private static final class IndexedResult<T> {
+
+        private final int index;
+        private final T input;
+        private final SearchResult result;
+
+        private IndexedResult(int index, T input, SearchResult result) {
+            this.index = index;
+            this.input = input;
+            this.result = result;
+        }
+
+    }
+
 }
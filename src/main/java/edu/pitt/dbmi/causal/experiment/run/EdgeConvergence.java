@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.run;
+
+import edu.cmu.tetrad.graph.EdgeTypeProbability.EdgeType;
+import edu.cmu.tetrad.util.Parameters;
+import edu.pitt.dbmi.causal.experiment.tetrad.EdgeTypeFrequencies;
+
+/**
+ * Stopping rule for randomized searches based on the convergence of the
+ * edge-type probabilities. The legal PAGs are added one at a time, in search
+ * order, and the probability of each edge type of each pair of nodes is the
+ * fraction of the PAGs having that edge type between the pair. The searches
+ * can stop once the measure of the probabilities has stayed below the
+ * tolerance for the given number of consecutive PAGs.
+ *
+ * @author agent (agent@local)
+ */
+public final class EdgeConvergence {
+
+    /**
+     * Measure of the edge-type probabilities compared to the tolerance.
+     */
+    public enum Measure {
+
+        /**
+         * Largest change of an edge-type probability made by the last PAG.
+         */
+        MAX_CHANGE("largest change in an edge-type probability"),
+        /**
+         * Largest half-width of the 95% Wilson score interval of an edge-type
+         * probability. Unlike the normal approximation, the interval of a
+         * probability of 0 or 1 does not collapse to a point.
+         */
+        HALF_WIDTH("largest half-width of the 95% confidence interval of an edge-type probability");
+
+        private final String description;
+
+        private Measure(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+    }
+
+    /**
+     * Name of the parameter of the measure, MAX_CHANGE or HALF_WIDTH. The
+     * searches are not stopped early if it is not set or set to none.
+     */
+    public static final String MEASURE = "edgeConvergenceMeasure";
+
+    /**
+     * Name of the parameter of the tolerance.
+     */
+    public static final String TOLERANCE = "edgeConvergenceTolerance";
+
+    /**
+     * Name of the parameter of the number of consecutive PAGs.
+     */
+    public static final String NUM_OF_CONSECUTIVE_PAGS = "edgeConvergenceConsecutivePags";
+
+    public static final String NONE = "none";
+
+    public static final double DEFAULT_TOLERANCE = 0.01;
+
+    public static final int DEFAULT_NUM_OF_CONSECUTIVE_PAGS = 10;
+
+    private static final double Z = 1.959963984540054;
+
+    private static final int NUM_OF_EDGE_TYPES = EdgeType.values().length;
+
+    private final Measure measure;
+    private final double tolerance;
+    private final int numOfConsecutivePags;
+
+    /**
+     * Create a stopping rule.
+     *
+     * @param measure measure of the edge-type probabilities
+     * @param tolerance value the measure has to be below
+     * @param numOfConsecutivePags number of consecutive PAGs the measure has
+     * to be below the tolerance
+     */
+    public EdgeConvergence(Measure measure, double tolerance, int numOfConsecutivePags) {
+        if (measure == null) {
+            throw new IllegalArgumentException("Measure is required.");
+        }
+        if (!(tolerance > 0)) {
+            throw new IllegalArgumentException("Tolerance must be positive.");
+        }
+        if (numOfConsecutivePags < 1) {
+            throw new IllegalArgumentException("Number of consecutive PAGs must be at least 1.");
+        }
+
+        this.measure = measure;
+        this.tolerance = tolerance;
+        this.numOfConsecutivePags = numOfConsecutivePags;
+    }
+
+    /**
+     * Create the stopping rule given by the parameters. The tolerance and the
+     * number of consecutive PAGs take their default values if not set.
+     *
+     * @param parameters parameters of the run
+     * @return stopping rule, or null if the measure is not set or set to none
+     */
+    public static EdgeConvergence fromParameters(Parameters parameters) {
+        String measure = parameters.getString(MEASURE, NONE);
+        if (measure == null || measure.trim().isEmpty() || measure.trim().equalsIgnoreCase(NONE)) {
+            return null;
+        }
+
+        Measure edgeMeasure;
+        try {
+            edgeMeasure = Measure.valueOf(measure.trim().toUpperCase());
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalArgumentException(
+                    String.format("Unknown edge convergence measure %s.", measure), exception);
+        }
+
+        return new EdgeConvergence(
+                edgeMeasure,
+                parameters.getDouble(TOLERANCE, DEFAULT_TOLERANCE),
+                parameters.getInt(NUM_OF_CONSECUTIVE_PAGS, DEFAULT_NUM_OF_CONSECUTIVE_PAGS));
+    }
+
+    /**
+     * Create a monitor for a new run of searches.
+     *
+     * @return monitor with no PAGs
+     */
+    public Monitor newMonitor() {
+        return new Monitor();
+    }
+
+    public Measure getMeasure() {
+        return measure;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public int getNumOfConsecutivePags() {
+        return numOfConsecutivePags;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s below %s for %d consecutive PAGs",
+                measure.getDescription(), tolerance, numOfConsecutivePags);
+    }
+
+    /**
+     * Convergence of the running edge-type probabilities of a run of
+     * searches. A monitor is used by a single thread.
+     */
+    public final class Monitor {
+
+        private int numOfPags;
+        private int numOfPagsBelowTolerance;
+        private double value = Double.NaN;
+
+        private Monitor() {
+        }
+
+        /**
+         * Update the measure after the next legal PAG is added to the
+         * frequencies.
+         *
+         * @param frequencies edge-type frequencies of the PAGs so far
+         * @return true if the probabilities have converged
+         */
+        public boolean add(EdgeTypeFrequencies frequencies) {
+            numOfPags = frequencies.getNumberOfGraphs();
+
+            double n = numOfPags;
+            double max = (measure == Measure.MAX_CHANGE && numOfPags == 1) ? Double.POSITIVE_INFINITY : 0;
+            if (numOfPags > 1 || measure == Measure.HALF_WIDTH) {
+                int numOfPairs = frequencies.getNumberOfPairs();
+                for (int pair = 0; pair < numOfPairs; pair++) {
+                    int lastEdgeType = frequencies.getLastEdgeType(pair);
+                    for (int type = 0; type < NUM_OF_EDGE_TYPES; type++) {
+                        int count = frequencies.getCount(pair, type);
+                        max = Math.max(max, (measure == Measure.MAX_CHANGE)
+                                ? change(count, type == lastEdgeType, n)
+                                : halfWidth(count / n, n));
+                    }
+                }
+            }
+
+            value = max;
+            if (value < tolerance) {
+                numOfPagsBelowTolerance++;
+            } else {
+                numOfPagsBelowTolerance = 0;
+            }
+
+            return isConverged();
+        }
+
+        /**
+         * Change of a probability made by the last PAG.
+         *
+         * @param count number of PAGs having the edge type, including the
+         * last one
+         * @param added true if the last PAG has the edge type
+         * @param n number of PAGs
+         * @return absolute change of the probability
+         */
+        private double change(int count, boolean added, double n) {
+            int previousCount = added ? count - 1 : count;
+
+            return Math.abs(count / n - previousCount / (n - 1));
+        }
+
+        private double halfWidth(double p, double n) {
+            double z2 = Z * Z;
+
+            return Z / (1 + z2 / n) * Math.sqrt(p * (1 - p) / n + z2 / (4 * n * n));
+        }
+
+        public boolean isConverged() {
+            return numOfPagsBelowTolerance >= numOfConsecutivePags;
+        }
+
+        public int getNumOfPags() {
+            return numOfPags;
+        }
+
+        /**
+         * Get the measure after the last PAG added.
+         *
+         * @return value of the measure, NaN if no PAG was added
+         */
+        public double getValue() {
+            return value;
+        }
+
+        public EdgeConvergence getRule() {
+            return EdgeConvergence.this;
+        }
+
+    }
+
+}
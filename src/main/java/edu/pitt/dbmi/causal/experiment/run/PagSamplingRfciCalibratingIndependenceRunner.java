@@ -8,31 +8,30 @@ import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.search.Rfci;
 import edu.cmu.tetrad.search.test.IndTestDSep;
-import edu.cmu.tetrad.search.utils.GraphSearchUtils;
-import edu.cmu.tetrad.util.GraphSampling;
 import edu.cmu.tetrad.util.Parameters;
 import edu.cmu.tetrad.util.Params;
-import edu.pitt.dbmi.causal.experiment.calibration.EdgeValue;
 import edu.pitt.dbmi.causal.experiment.calibration.GeneralValue;
+import edu.pitt.dbmi.causal.experiment.calibration.GeneralValueRecorder;
 import edu.pitt.dbmi.causal.experiment.calibration.GeneralValueStatistics;
-import edu.pitt.dbmi.causal.experiment.calibration.GraphData;
-import edu.pitt.dbmi.causal.experiment.calibration.GraphStatistics;
+import edu.pitt.dbmi.causal.experiment.calibration.GraphEvaluation;
 import edu.pitt.dbmi.causal.experiment.data.SimulatedData;
+import edu.pitt.dbmi.causal.experiment.independence.IndependenceFactKey;
+import edu.pitt.dbmi.causal.experiment.independence.IndependenceTrace;
+import edu.pitt.dbmi.causal.experiment.independence.PosteriorCache;
 import edu.pitt.dbmi.causal.experiment.independence.wrapper.CalibratingIndTestProbabilisticTest;
-import static edu.pitt.dbmi.causal.experiment.run.AbstractRunner.DATETIME_FORMATTER;
 import edu.pitt.dbmi.causal.experiment.tetrad.Graphs;
 import edu.pitt.dbmi.causal.experiment.util.FileIO;
 import edu.pitt.dbmi.causal.experiment.util.GraphDetails;
+import edu.pitt.dbmi.causal.experiment.util.RecordSink;
 import java.io.PrintStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -44,20 +43,27 @@ import java.util.stream.Collectors;
  */
 public class PagSamplingRfciCalibratingIndependenceRunner extends PagSamplingRfciRunner {
 
+
     public PagSamplingRfciCalibratingIndependenceRunner(SimulatedData simulatedData, Parameters parameters) {
         super(simulatedData, parameters);
     }
 
-    protected Graph runSearch(DataModel dataModel, Parameters parameters, Set<GeneralValue> generalValues, Set<String> condProbLabels, List<String> debugOutputs) {
+    protected Graph runSearch(DataModel dataModel, Parameters parameters, Consumer<GeneralValue> generalValues, Set<IndependenceFactKey> condProbLabels, Consumer<IndependenceTrace.Records> debugOutputs, PosteriorCache posteriorCache) {
         Graph trueGraph = createGraph(dataModel, simulatedData.getPagFromDagGraph());
         IndTestDSep indTestDSeperation = new IndTestDSep(trueGraph, true);
+        IndependenceTrace trace = (debugOutputs == null) ? null : new IndependenceTrace(dataModel.getVariables(), debugOutputs);
 
-        Rfci rfci = new Rfci((new CalibratingIndTestProbabilisticTest()).getTest(dataModel, parameters, indTestDSeperation, generalValues, condProbLabels, debugOutputs));
+        Rfci rfci = new Rfci((new CalibratingIndTestProbabilisticTest()).getTest(dataModel, parameters, indTestDSeperation, generalValues, condProbLabels, trace, posteriorCache));
         rfci.setDepth(parameters.getInt(Params.DEPTH));
         rfci.setMaxPathLength(parameters.getInt(Params.MAX_PATH_LENGTH));
         rfci.setVerbose(parameters.getBoolean(Params.VERBOSE));
 
-        return rfci.search();
+        Graph graph = rfci.search();
+        if (trace != null) {
+            trace.flush();
+        }
+
+        return graph;
     }
 
     @Override
@@ -69,94 +75,41 @@ public class PagSamplingRfciCalibratingIndependenceRunner extends PagSamplingRfc
         final LocalDateTime startDateTime = LocalDateTime.now();
         final long startTime = System.nanoTime();
 
-        int numOfSearchRuns = 0;
-        List<Graph> graphs = new LinkedList<>();
-        Set<GeneralValue> generalValues = new HashSet<>();
-        Set<String> condProbLabels = new HashSet<>();
-        List<String> debugOutputs = new LinkedList<>();
-        int numRandomizedSearchModels = parameters.getInt(Params.NUM_RANDOMIZED_SEARCH_MODELS);
-        while (graphs.size() < numRandomizedSearchModels) {
-            System.out.printf("Starting search: %d%n", numOfSearchRuns + 1);
-            Graph graph = runSearch(dataSet, parameters, generalValues, condProbLabels, debugOutputs);
-            if (GraphSearchUtils.isLegalPag(graph).isLegalPag()) {
-                System.out.println("Search returns legal PAG.");
-                graphs.add(graph);
-            } else {
-                System.out.println("Search does not return legal PAG.");
-            }
-            numOfSearchRuns++;
+        // the values and debug output of the tests are written out as the
+        // searches are added to the run, in search order, each test recorded
+        // once over all the searches
+        Path outputFile = Paths.get(dirOut.toString(), "independence_test_data.csv");
+        Path debugOutputFile = Paths.get(dirOut.toString(), "debug_output.csv");
+        SearchRuns searchRuns;
+        GeneralValueStatistics genValStats;
+        final long endTime;
+        try (GeneralValueRecorder generalValues = new GeneralValueRecorder(outputFile);
+                RecordSink<IndependenceTrace.Records> debugOutputs = new RecordSink<>(debugOutputFile, IndependenceTrace.HEADER, IndependenceTrace.Records::toCsv);
+                SearchTestSegments segments = new SearchTestSegments()) {
+            PosteriorCache posteriorCache = new PosteriorCache();  // posteriors shared by all searches
+            Set<IndependenceFactKey> condProbLabels = new HashSet<>();
+            int numRandomizedSearchModels = parameters.getInt(Params.NUM_RANDOMIZED_SEARCH_MODELS);
+            searchRuns = runSearches(numRandomizedSearchModels,
+                    segments::open,
+                    SearchTestSegments.recording(records -> runSearch(dataSet, parameters, records.getGeneralValues(), records.getCondProbLabels(), records.getDebugOutputs(), posteriorCache)),
+                    records -> records.drainTo(condProbLabels, generalValues, debugOutputs));
+
+            endTime = System.nanoTime();
+            genValStats = generalValues.getStatistics();
         }
 
-        final long endTime = System.nanoTime();
+        int numOfSearchRuns = searchRuns.getNumberOfSearches();
+
         final LocalDateTime endDateTime = LocalDateTime.now();
         final long duration = endTime - startTime;
 
-        Graph searchGraph = GraphSampling.createGraphWithHighProbabilityEdges(graphs);
-
-        // tail-arrow (directed)
-        Path edgeTypeDir = FileIO.createSubdirectory(dirOut, "tail_arrow");
-        String edgeTypeOutputDir = edgeTypeDir.toString();
-        Set<EdgeValue> graphData = GraphData.examineDirectEdge(searchGraph, pagFromDagGraph);
-        Set<EdgeValue> edgeData = GraphData.examineEdges(searchGraph, pagFromDagGraph);
-        GraphStatistics graphStats = new GraphStatistics(graphData, edgeData);
-        graphStats.saveGraphData(Paths.get(edgeTypeOutputDir, "ta_edge_data.csv"));
-        graphStats.saveStatistics(Paths.get(edgeTypeOutputDir, "ta_statistics.txt"));
-        graphStats.saveCalibrationPlot(
-                "PAG Sampling RFCI: Tail-Arrow", "ta_pag-sampling-rfci",
-                1000, 1000,
-                Paths.get(edgeTypeOutputDir, "ta_calibration.png"));
-        graphStats.saveROCPlot("PAG Sampling RFCI: Tail-Arrow", "ta_pag-sampling-rfci",
-                1000, 1000, Paths.get(edgeTypeOutputDir, "ta_roc.png"));
-
-        // circle-arrow
-        edgeTypeDir = FileIO.createSubdirectory(dirOut, "circle_arrow");
-        edgeTypeOutputDir = edgeTypeDir.toString();
-        graphData = GraphData.examineCircleArrowEdge(searchGraph, pagFromDagGraph);
-        edgeData = GraphData.examineEdges(searchGraph, pagFromDagGraph);
-        graphStats = new GraphStatistics(graphData, edgeData);
-        graphStats.saveGraphData(Paths.get(edgeTypeOutputDir, "ca_edge_data.csv"));
-        graphStats.saveStatistics(Paths.get(edgeTypeOutputDir, "ca_statistics.txt"));
-        graphStats.saveCalibrationPlot(
-                "PAG Sampling RFCI: Circle-Arrow", "pag-sampling-rfci",
-                1000, 1000,
-                Paths.get(edgeTypeOutputDir, "ca_calibration.png"));
-        graphStats.saveROCPlot("PAG Sampling RFCI: Circle-Arrow", "ca_pag-sampling-rfci",
-                1000, 1000, Paths.get(edgeTypeOutputDir, "ca_roc.png"));
-
-        // circle-circle
-        edgeTypeDir = FileIO.createSubdirectory(dirOut, "circle_circle");
-        edgeTypeOutputDir = edgeTypeDir.toString();
-        graphData = GraphData.examineCircleCircleEdge(searchGraph, pagFromDagGraph);
-        edgeData = GraphData.examineEdges(searchGraph, pagFromDagGraph);
-        graphStats = new GraphStatistics(graphData, edgeData);
-        graphStats.saveGraphData(Paths.get(edgeTypeOutputDir, "cc_edge_data.csv"));
-        graphStats.saveStatistics(Paths.get(edgeTypeOutputDir, "cc_statistics.txt"));
-        graphStats.saveCalibrationPlot(
-                "PAG Sampling RFCI: Circle-Circle", "pag-sampling-rfci",
-                1000, 1000,
-                Paths.get(edgeTypeOutputDir, "cc_calibration.png"));
-        graphStats.saveROCPlot("PAG Sampling RFCI: Circle-Circle", "cc_pag-sampling-rfci",
-                1000, 1000, Paths.get(edgeTypeOutputDir, "cc_roc.png"));
-
-        // arrow-arrow
-        edgeTypeDir = FileIO.createSubdirectory(dirOut, "arrow_arrow");
-        edgeTypeOutputDir = edgeTypeDir.toString();
-        graphData = GraphData.examineArrowArrowEdge(searchGraph, pagFromDagGraph);
-        edgeData = GraphData.examineEdges(searchGraph, pagFromDagGraph);
-        graphStats = new GraphStatistics(graphData, edgeData);
-        graphStats.saveGraphData(Paths.get(edgeTypeOutputDir, "aa_edge_data.csv"));
-        graphStats.saveStatistics(Paths.get(edgeTypeOutputDir, "aa_statistics.txt"));
-        graphStats.saveCalibrationPlot(
-                "PAG Sampling RFCI: Arrow-Arrow", "pag-sampling-rfci",
-                1000, 1000,
-                Paths.get(edgeTypeOutputDir, "aa_calibration.png"));
-        graphStats.saveROCPlot("PAG Sampling RFCI: Arrow-Arrow", "aa_pag-sampling-rfci",
-                1000, 1000, Paths.get(edgeTypeOutputDir, "aa_roc.png"));
+        Graph searchGraph = searchRuns.createGraphWithHighProbabilityEdges();
+
+        GraphEvaluation graphEvaluation = new GraphEvaluation(searchGraph, pagFromDagGraph);
+        saveEdgeTypeStatistics(graphEvaluation, GraphEvaluation.EDGE_TYPES, dirOut, "PAG Sampling RFCI", "pag-sampling-rfci");
 
         String outputDir = dirOut.toString();
 
-        GeneralValueStatistics genValStats = new GeneralValueStatistics(generalValues);
-        genValStats.saveData(Paths.get(outputDir, "independence_test_data.csv"));
         genValStats.saveStatistics(Paths.get(outputDir, "independence_test_stats.txt"));
         genValStats.saveCalibrationPlot(
                 "PAG Sampling RFCI: Probabilistic Test", "probabilistic",
@@ -202,23 +155,20 @@ public class PagSamplingRfciCalibratingIndependenceRunner extends PagSamplingRfc
             writer.println("--------------------");
             writer.printf("Number of searches: %d%n", numOfSearchRuns);
             writer.println();
+            printStopping(searchRuns, writer);
+            writer.println();
             writer.println("PAG Counts");
             writer.println("--------------------");
-            writer.printf("Number of valid PAGs: %d%n", graphs.size());
-            writer.printf("Number of invalid PAGs: %d%n", numOfSearchRuns - graphs.size());
+            writer.printf("Number of valid PAGs: %d%n", searchRuns.getNumberOfLegalPags());
+            writer.printf("Number of invalid PAGs: %d%n", searchRuns.getNumberOfIllegalPags());
+            writer.println();
+            printLegalityChecks(searchRuns, writer);
             writer.println();
 
             writer.println("High-Edge-Probability Graph");
             writer.println("========================================");
             writer.println(searchGraph.toString().replaceAll(" - ", " ... ").trim());
         }
-
-        if (!debugOutputs.isEmpty()) {
-            try (PrintStream writer = new PrintStream(Paths.get(outputDir, "debug_output.csv").toFile())) {
-                writer.println("test of independence,bc inference,c,b,m,n,r,return value,is independent (d-sep),is independent (coin flip)");
-                debugOutputs.forEach(writer::println);
-            }
-        }
     }
 
     @Override
@@ -18,18 +18,17 @@
  */
 package edu.pitt.dbmi.causal.experiment.run;
 
-import edu.cmu.tetrad.algcomparison.independence.ProbabilisticTest;
 import edu.cmu.tetrad.data.DataModel;
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.search.Rfci;
-import edu.cmu.tetrad.search.utils.GraphSearchUtils;
-import edu.cmu.tetrad.util.GraphSampling;
 import edu.cmu.tetrad.util.ParamDescriptions;
 import edu.cmu.tetrad.util.Parameters;
 import edu.cmu.tetrad.util.Params;
 import edu.pitt.dbmi.causal.experiment.calibration.GraphStatistics;
 import edu.pitt.dbmi.causal.experiment.data.SimulatedData;
+import edu.pitt.dbmi.causal.experiment.independence.PosteriorCache;
+import edu.pitt.dbmi.causal.experiment.independence.wrapper.ProbabilisticTest;
 import edu.pitt.dbmi.causal.experiment.tetrad.Graphs;
 import edu.pitt.dbmi.causal.experiment.util.FileIO;
 import edu.pitt.dbmi.causal.experiment.util.GraphDetails;
@@ -37,8 +36,6 @@ import java.io.PrintStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -51,6 +48,7 @@ public class PagSamplingRfciRunner extends AbstractRunner {
 
     public PagSamplingRfciRunner(SimulatedData simulatedData, Parameters parameters) {
         super(simulatedData, parameters);
+        this.edgeConvergence = EdgeConvergence.fromParameters(parameters);
     }
 
     @Override
@@ -62,26 +60,16 @@ public class PagSamplingRfciRunner extends AbstractRunner {
         final LocalDateTime startDateTime = LocalDateTime.now();
         final long startTime = System.nanoTime();
 
-        int numOfSearchRuns = 0;
-        List<Graph> graphs = new LinkedList<>();
+        PosteriorCache posteriorCache = new PosteriorCache();  // posteriors shared by all searches
         int numRandomizedSearchModels = parameters.getInt(Params.NUM_RANDOMIZED_SEARCH_MODELS);
-        while (graphs.size() < numRandomizedSearchModels) {
-            System.out.printf("Starting search: %d%n", numOfSearchRuns + 1);
-            Graph graph = runSearch(dataSet, parameters);
-            if (GraphSearchUtils.isLegalPag(graph).isLegalPag()) {
-                System.out.println("Search returns legal PAG.");
-                graphs.add(graph);
-            } else {
-                System.out.println("Search does not return legal PAG.");
-            }
-            numOfSearchRuns++;
-        }
+        SearchRuns searchRuns = runSearches(numRandomizedSearchModels, i -> runSearch(dataSet, parameters, posteriorCache));
+        int numOfSearchRuns = searchRuns.getNumberOfSearches();
 
         final long endTime = System.nanoTime();
         final LocalDateTime endDateTime = LocalDateTime.now();
         final long duration = endTime - startTime;
 
-        Graph searchGraph = GraphSampling.createGraphWithHighProbabilityEdges(graphs);
+        Graph searchGraph = searchRuns.createGraphWithHighProbabilityEdges();
 
         String outputDir = dirOut.toString();
         GraphStatistics graphCalibration = new GraphStatistics(searchGraph, pagFromDagGraph);
@@ -127,10 +115,14 @@ public class PagSamplingRfciRunner extends AbstractRunner {
             writer.println("--------------------");
             writer.printf("Number of searches: %d%n", numOfSearchRuns);
             writer.println();
+            printStopping(searchRuns, writer);
+            writer.println();
             writer.println("PAG Counts");
             writer.println("--------------------");
-            writer.printf("Number of valid PAGs: %d%n", graphs.size());
-            writer.printf("Number of invalid PAGs: %d%n", numOfSearchRuns - graphs.size());
+            writer.printf("Number of valid PAGs: %d%n", searchRuns.getNumberOfLegalPags());
+            writer.printf("Number of invalid PAGs: %d%n", searchRuns.getNumberOfIllegalPags());
+            writer.println();
+            printLegalityChecks(searchRuns, writer);
             writer.println();
 
             writer.println("High-Edge-Probability Graph");
@@ -147,6 +139,7 @@ public class PagSamplingRfciRunner extends AbstractRunner {
         writer.printf("%s: %s%n",
                 paramDescs.get(Params.NUM_RANDOMIZED_SEARCH_MODELS).getShortDescription(),
                 getParameterValue(parameters, Params.NUM_RANDOMIZED_SEARCH_MODELS));
+        printEdgeConvergenceParameters(parameters, writer);
         writer.println();
 
         writer.println("RFCI");
@@ -176,7 +169,11 @@ public class PagSamplingRfciRunner extends AbstractRunner {
     }
 
     protected Graph runSearch(DataModel dataModel, Parameters parameters) {
-        Rfci rfci = new Rfci((new ProbabilisticTest()).getTest(dataModel, parameters));
+        return runSearch(dataModel, parameters, null);
+    }
+
+    protected Graph runSearch(DataModel dataModel, Parameters parameters, PosteriorCache posteriorCache) {
+        Rfci rfci = new Rfci((new ProbabilisticTest()).getTest(dataModel, parameters, posteriorCache));
         rfci.setDepth(parameters.getInt(Params.DEPTH));
         rfci.setMaxPathLength(parameters.getInt(Params.MAX_PATH_LENGTH));
         rfci.setVerbose(parameters.getBoolean(Params.VERBOSE));
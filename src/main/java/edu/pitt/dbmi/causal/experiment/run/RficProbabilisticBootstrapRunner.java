@@ -18,18 +18,17 @@
  */
 package edu.pitt.dbmi.causal.experiment.run;
 
-import edu.cmu.tetrad.algcomparison.independence.ProbabilisticTest;
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.search.Rfci;
-import edu.cmu.tetrad.search.utils.GraphSearchUtils;
-import edu.cmu.tetrad.util.GraphSampling;
 import edu.cmu.tetrad.util.ParamDescriptions;
 import edu.cmu.tetrad.util.Parameters;
 import edu.cmu.tetrad.util.Params;
 import edu.pitt.dbmi.causal.experiment.calibration.GraphStatistics;
 import edu.pitt.dbmi.causal.experiment.data.SimulatedData;
+import edu.pitt.dbmi.causal.experiment.independence.wrapper.ProbabilisticTest;
 import edu.pitt.dbmi.causal.experiment.tetrad.Graphs;
+import edu.pitt.dbmi.causal.experiment.util.DataResampler;
 import edu.pitt.dbmi.causal.experiment.util.DataSampling;
 import edu.pitt.dbmi.causal.experiment.util.FileIO;
 import edu.pitt.dbmi.causal.experiment.util.GraphDetails;
@@ -37,10 +36,7 @@ import java.io.PrintStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.concurrent.TimeUnit;
-import org.apache.commons.math3.random.RandomGenerator;
 
 /**
  *
@@ -60,51 +56,30 @@ public class RficProbabilisticBootstrapRunner extends AbstractRunner {
         DataSet dataSet = simulatedData.getDataSet();
         Path dirOut = FileIO.createSubdirectory(parentOutDir, "rfic_probabilistic_bootstrap");
 
-        RandomGenerator randGen = DataSampling.createRandomGenerator(parameters);
-        List<DataSet> dataSets = DataSampling.sample(dataSet, parameters, randGen);
+        // samples are drawn as row indices and searched as row counts over
+        // the original data, without copying them
+        DataResampler resampler = new DataResampler(dataSet, parameters, DataSampling.createRandomGenerator(parameters));
+        int numOfDataSamples = resampler.getNumberOfSamples();
 
         // start the timer
         final LocalDateTime startDateTime = LocalDateTime.now();
         final long startTime = System.nanoTime();
 
-        // run searches on sample data
-        int numOfSearchRuns = 0;
-        List<Graph> graphs = new LinkedList<>();
-        for (DataSet data : dataSets) {
-            System.out.printf("Starting search: %d%n", numOfSearchRuns + 1);
-            Graph graph = runSearch(data, parameters);
-            if (GraphSearchUtils.isLegalPag(graph).isLegalPag()) {
-                System.out.println("Search returns legal PAG.");
-                graphs.add(graph);
-            } else {
-                System.out.println("Search does not return legal PAG.");
-            }
-            numOfSearchRuns++;
-        }
-
-        // continue to run searches until the number of desire graphs has reached
-        int numOfAdditionalDataSampling = 0;
-        while (graphs.size() < dataSets.size()) {
-            DataSet sampleData = DataSampling.sampleWithReplacement(dataSet, randGen);
-            System.out.printf("Starting search: %d%n", numOfSearchRuns + 1);
-            Graph graph = runSearch(sampleData, parameters);
-            if (GraphSearchUtils.isLegalPag(graph).isLegalPag()) {
-                System.out.println("Search returns legal PAG.");
-                graphs.add(graph);
-            } else {
-                System.out.println("Search does not return legal PAG.");
-            }
-
-            numOfAdditionalDataSampling++;
-            numOfSearchRuns++;
-        }
+        // run searches on sample data, replacing each sample that does not
+        // give a legal PAG with another sample drawn with replacement
+        SearchRuns searchRuns = runSearches(
+                numOfDataSamples,
+                i -> resampler.next(),
+                rows -> runSearch(dataSet, resampler.getRowCounts(rows), parameters));
+        int numOfSearchRuns = searchRuns.getNumberOfSearches();
+        int numOfAdditionalDataSampling = Math.max(numOfSearchRuns - numOfDataSamples, 0);
 
         // stop the timer
         final long endTime = System.nanoTime();
         final LocalDateTime endDateTime = LocalDateTime.now();
         final long duration = endTime - startTime;
 
-        Graph searchGraph = GraphSampling.createGraphWithHighProbabilityEdges(graphs);
+        Graph searchGraph = searchRuns.createGraphWithHighProbabilityEdges();
 
         String outputDir = dirOut.toString();
         GraphStatistics graphCalibration = new GraphStatistics(searchGraph, pagFromDagGraph);
@@ -136,7 +111,7 @@ public class RficProbabilisticBootstrapRunner extends AbstractRunner {
             writer.println("========================================");
             writer.printf("Variables: %d%n", dataSet.getNumColumns());
             writer.printf("Cases: %d%n", dataSet.getNumRows());
-            writer.printf("Data Samples: %d%n", dataSets.size());
+            writer.printf("Data Samples: %d%n", numOfDataSamples);
             writer.println();
 
             writer.println("Search Run Details");
@@ -151,15 +126,19 @@ public class RficProbabilisticBootstrapRunner extends AbstractRunner {
             writer.println("--------------------");
             writer.printf("Number of searches: %d%n", numOfSearchRuns);
             writer.println();
+            printStopping(searchRuns, writer);
+            writer.println();
             writer.println("Data Sampling");
             writer.println("--------------------");
-            writer.printf("Number of initial data sampling: %d%n", dataSets.size());
+            writer.printf("Number of initial data sampling: %d%n", numOfDataSamples);
             writer.printf("Number of additional data sampling: %d%n", numOfAdditionalDataSampling);
             writer.println();
             writer.println("PAG Counts");
             writer.println("--------------------");
-            writer.printf("Number of valid PAGs: %d%n", graphs.size());
-            writer.printf("Number of invalid PAGs: %d%n", numOfSearchRuns - graphs.size());
+            writer.printf("Number of valid PAGs: %d%n", searchRuns.getNumberOfLegalPags());
+            writer.printf("Number of invalid PAGs: %d%n", searchRuns.getNumberOfIllegalPags());
+            writer.println();
+            printLegalityChecks(searchRuns, writer);
             writer.println();
 
             writer.println("High-Edge-Probability Graph");
@@ -213,8 +192,8 @@ public class RficProbabilisticBootstrapRunner extends AbstractRunner {
                 getParameterValue(parameters, Params.RESAMPLING_WITH_REPLACEMENT));
     }
 
-    private Graph runSearch(DataSet dataSet, Parameters parameters) {
-        Rfci rfci = new Rfci((new ProbabilisticTest()).getTest(dataSet, parameters));
+    private Graph runSearch(DataSet dataSet, int[] rowCounts, Parameters parameters) {
+        Rfci rfci = new Rfci((new ProbabilisticTest()).getTest(dataSet, rowCounts, parameters));
         rfci.setDepth(parameters.getInt(Params.DEPTH));
         rfci.setMaxPathLength(parameters.getInt(Params.MAX_PATH_LENGTH));
         rfci.setVerbose(parameters.getBoolean(Params.VERBOSE));
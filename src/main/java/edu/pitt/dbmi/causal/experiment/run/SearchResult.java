@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.run;
+
+import edu.cmu.tetrad.graph.Graph;
+import edu.pitt.dbmi.causal.experiment.tetrad.LegalPagChecker;
+
+/**
+ * Output of a single randomized search: the graph and whether it is a legal
+ * PAG.
+ *
+ * @author agent (agent@local)
+ */
+public class SearchResult {
+
+    private final Graph graph;
+
+    private final LegalPagChecker.Reason illegalPagReason;
+
+    /**
+     * Create the result of a search.
+     *
+     * @param graph graph returned by the search
+     * @param illegalPagReason why the graph is not a legal PAG, null if it is
+     */
+    public SearchResult(Graph graph, LegalPagChecker.Reason illegalPagReason) {
+        this.graph = graph;
+        this.illegalPagReason = illegalPagReason;
+    }
+
+    public Graph getGraph() {
+        return graph;
+    }
+
+    public boolean isLegalPag() {
+        return illegalPagReason == null;
+    }
+
+    public LegalPagChecker.Reason getIllegalPagReason() {
+        return illegalPagReason;
+    }
+
+}
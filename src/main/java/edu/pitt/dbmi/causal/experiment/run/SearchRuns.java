@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.run;
+
+import edu.cmu.tetrad.graph.Graph;
+import edu.pitt.dbmi.causal.experiment.tetrad.EdgeTypeFrequencies;
+import edu.pitt.dbmi.causal.experiment.tetrad.LegalPagChecker;
+
+/**
+ * Summary of a run of randomized searches. The results of the searches are
+ * added in search order: the legal PAGs are folded into the edge-type
+ * frequencies and then dropped.
+ *
+ * @author agent (agent@local)
+ */
+public final class SearchRuns {
+
+    private final EdgeTypeFrequencies edgeTypeFrequencies = new EdgeTypeFrequencies();
+
+    private final EdgeConvergence.Monitor convergenceMonitor;
+
+    private final LegalPagChecker legalPagChecker;
+
+    private int numOfSearches;
+    private boolean converged;
+
+    SearchRuns(EdgeConvergence.Monitor convergenceMonitor, LegalPagChecker legalPagChecker) {
+        this.convergenceMonitor = convergenceMonitor;
+        this.legalPagChecker = legalPagChecker;
+    }
+
+    /**
+     * Add the result of the next search.
+     *
+     * @param searchResult result of the search
+     * @return true if the edge-type probabilities have converged
+     */
+    boolean add(SearchResult searchResult) {
+        numOfSearches++;
+        if (searchResult.isLegalPag()) {
+            edgeTypeFrequencies.add(searchResult.getGraph());
+            if (convergenceMonitor != null) {
+                converged = convergenceMonitor.add(edgeTypeFrequencies);
+            }
+        }
+
+        return converged;
+    }
+
+    /**
+     * Create the graph with the edges of highest probability over the legal
+     * PAGs.
+     *
+     * @return graph with the edges of highest probability
+     */
+    public Graph createGraphWithHighProbabilityEdges() {
+        return edgeTypeFrequencies.createGraphWithHighProbabilityEdges();
+    }
+
+    public EdgeTypeFrequencies getEdgeTypeFrequencies() {
+        return edgeTypeFrequencies;
+    }
+
+    /**
+     * Get the convergence of the edge-type probabilities.
+     *
+     * @return convergence monitor, null if the run had no stopping rule
+     */
+    public EdgeConvergence.Monitor getConvergenceMonitor() {
+        return convergenceMonitor;
+    }
+
+    /**
+     * Get the checker of the graphs of the searches, with its statistics.
+     *
+     * @return legal PAG checker
+     */
+    public LegalPagChecker getLegalPagChecker() {
+        return legalPagChecker;
+    }
+
+    public boolean isConverged() {
+        return converged;
+    }
+
+    public int getNumberOfSearches() {
+        return numOfSearches;
+    }
+
+    public int getNumberOfLegalPags() {
+        return edgeTypeFrequencies.getNumberOfGraphs();
+    }
+
+    public int getNumberOfIllegalPags() {
+        return numOfSearches - edgeTypeFrequencies.getNumberOfGraphs();
+    }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.run;
+
+import edu.cmu.tetrad.graph.Node;
+import edu.pitt.dbmi.causal.experiment.calibration.GeneralValue;
+import edu.pitt.dbmi.causal.experiment.independence.IndependenceFactKey;
+import edu.pitt.dbmi.causal.experiment.independence.IndependenceTrace;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Tests done by a single search: the value of each test, recorded once in the
+ * order the search first did it, and the debug trace. The values and the
+ * trace go through the ring buffer of the run into the segment of the search,
+ * so the records do not depend on the other searches running at the same
+ * time. Only the tests done are kept in memory, to tell whether the search
+ * did a test before. The records are passed on once the search is added to
+ * the run, in search order.
+ *
+ * The records are used by a single search and are not thread-safe.
+ *
+ * @author agent (agent@local)
+ */
+final class SearchTestRecords {
+
+    private final SearchTestSegments segments;
+
+    private final int index;
+
+    /**
+     * Completed once all the records of the search are written to its
+     * segment.
+     */
+    private final CompletableFuture<Path> segment;
+
+    /**
+     * Tests done by the search, in the order of the values.
+     */
+    private final Set<IndependenceFactKey> condProbLabels = new LinkedHashSet<>();
+
+    /**
+     * Nodes of the trace records, the same for all the blocks of the search.
+     */
+    private volatile List<Node> traceNodes;
+
+    SearchTestRecords(SearchTestSegments segments, int index, CompletableFuture<Path> segment) {
+        this.segments = segments;
+        this.index = index;
+        this.segment = segment;
+    }
+
+    /**
+     * Get the tests done by the search so far. A value is added for each test
+     * added to the set.
+     *
+     * @return tests done by the search
+     */
+    Set<IndependenceFactKey> getCondProbLabels() {
+        return condProbLabels;
+    }
+
+    /**
+     * Get the consumer of the value of each test not done before by the
+     * search.
+     *
+     * @return adds a value to the records
+     */
+    Consumer<GeneralValue> getGeneralValues() {
+        return value -> segments.put(index, value);
+    }
+
+    /**
+     * Get the consumer of the debug trace of the search.
+     *
+     * @return adds a block of trace records to the records
+     */
+    Consumer<IndependenceTrace.Records> getDebugOutputs() {
+        return records -> {
+            if (traceNodes == null) {
+                traceNodes = records.getNodes();
+            }
+            segments.put(index, records);
+        };
+    }
+
+    /**
+     * End the records of the search, once the search is done.
+     */
+    void end() {
+        segments.end(index);
+    }
+
+    /**
+     * Pass on the values of the tests not recorded by the searches before,
+     * in the order the search did them, and the debug trace. Waits for the
+     * segment of the search to be written, and deletes it afterward.
+     *
+     * @param condProbLabels tests recorded by the searches before
+     * @param generalValues receives the values of the tests not recorded
+     * before
+     * @param debugOutputs receives the blocks of trace records, or null to
+     * drop them
+     */
+    void drainTo(Set<IndependenceFactKey> condProbLabels, Consumer<GeneralValue> generalValues, Consumer<IndependenceTrace.Records> debugOutputs) {
+        Path file = getSegment();
+        try {
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                Iterator<IndependenceFactKey> labels = this.condProbLabels.iterator();
+                int type;
+                while ((type = input.read()) != -1) {
+                    if (type == SearchTestSegments.GENERAL_VALUE) {
+                        GeneralValue value = new GeneralValue(input.readUTF(), input.readDouble(), input.readInt());
+                        if (condProbLabels.add(labels.next())) {
+                            generalValues.accept(value);
+                        }
+                    } else {
+                        IndependenceTrace.Records records = IndependenceTrace.Records.readFrom(traceNodes, input);
+                        if (debugOutputs != null) {
+                            debugOutputs.accept(records);
+                        }
+                    }
+                }
+            }
+            Files.delete(file);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        } finally {
+            this.condProbLabels.clear();
+        }
+    }
+
+    private Path getSegment() {
+        try {
+            return segment.get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the tests of the search.", exception);
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException((IOException) cause);
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.run;
+
+import edu.pitt.dbmi.causal.experiment.calibration.GeneralValue;
+import edu.pitt.dbmi.causal.experiment.independence.IndependenceTrace;
+import edu.pitt.dbmi.causal.experiment.util.RecordSink;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Temporary segments holding the tests recorded by the searches of a run, one
+ * segment per search. The searches put their records into a bounded ring
+ * buffer shared by all the searches, and a background thread appends each
+ * record to the segment of its search. A segment is read back and deleted
+ * once its search is added to the run, so the records are passed on in
+ * search order while a search waiting for the ones before it holds no records
+ * in memory.
+ *
+ * @author agent (agent@local)
+ */
+final class SearchTestSegments implements Closeable {
+
+    static final byte GENERAL_VALUE = 0;
+    static final byte DEBUG_OUTPUT = 1;
+
+    /**
+     * Marks the end of the records of a search.
+     */
+    private static final Object END = new Object();
+
+    private final Path directory;
+
+    private final RecordSink<Record> sink;
+
+    /**
+     * Segment of each search whose records are not written out yet,
+     * completed once all its records are written.
+     */
+    private final Map<Integer, CompletableFuture<Path>> segments = new HashMap<>();
+
+    private boolean closed;
+
+    SearchTestSegments() throws IOException {
+        this(RecordSink.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create the segments in a new temporary directory.
+     *
+     * @param capacity number of records the shared buffer holds
+     * @throws IOException if the directory cannot be created
+     */
+    SearchTestSegments(int capacity) throws IOException {
+        this.directory = Files.createTempDirectory("search-tests");
+        this.sink = new RecordSink<>(new SegmentWriter(), "search-test-segments", capacity);
+    }
+
+    /**
+     * Open the records of a search. Called on the thread running the
+     * searches, in search order.
+     *
+     * @param index index of the search
+     * @return records of the search
+     */
+    SearchTestRecords open(int index) {
+        CompletableFuture<Path> segment = new CompletableFuture<>();
+        synchronized (segments) {
+            if (closed) {
+                segment.completeExceptionally(new IOException("The segments are closed."));
+            } else {
+                segments.put(index, segment);
+            }
+        }
+
+        return new SearchTestRecords(this, index, segment);
+    }
+
+    /**
+     * Wrap a search so that the segment of its records ends once the search
+     * is done.
+     *
+     * @param search runs a search on its records
+     * @return the search, ending the segment of its records
+     */
+    static <R> Function<SearchTestRecords, R> recording(Function<SearchTestRecords, R> search) {
+        return records -> {
+            R result = search.apply(records);
+            records.end();
+
+            return result;
+        };
+    }
+
+    void put(int index, Object record) {
+        sink.accept(new Record(index, record));
+    }
+
+    void end(int index) {
+        sink.accept(new Record(index, END));
+    }
+
+    /**
+     * Stop the background writer and delete the segments left, those of
+     * searches dropped from the run.
+     *
+     * @throws IOException if writing the records failed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            sink.close();
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                Iterator<Path> iterator = files.iterator();
+                while (iterator.hasNext()) {
+                    Files.deleteIfExists(iterator.next());
+                }
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private static final class Record {
+
+        private final int index;
+        private final Object record;
+
+        private Record(int index, Object record) {
+            this.index = index;
+            this.record = record;
+        }
+
+    }
+
+    /**
+     * Appends the records to the segments of their searches, on the writer
+     * thread.
+     */
+    private final class SegmentWriter implements RecordSink.RecordWriter<Record> {
+
+        private final Map<Integer, DataOutputStream> outputs = new HashMap<>();
+
+        @Override
+        public void write(Record record) throws IOException {
+            Path file = directory.resolve(String.format("search-%d.bin", record.index));
+            DataOutputStream output = outputs.get(record.index);
+            if (output == null) {
+                output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+                outputs.put(record.index, output);
+            }
+
+            if (record.record == END) {
+                outputs.remove(record.index).close();
+                CompletableFuture<Path> segment;
+                synchronized (segments) {
+                    segment = segments.remove(record.index);
+                }
+                segment.complete(file);
+            } else if (record.record instanceof GeneralValue) {
+                GeneralValue value = (GeneralValue) record.record;
+                output.writeByte(GENERAL_VALUE);
+                output.writeUTF(value.getLabel());
+                output.writeDouble(value.getPredictedValue());
+                output.writeInt(value.getObservedValue());
+            } else {
+                output.writeByte(DEBUG_OUTPUT);
+                ((IndependenceTrace.Records) record.record).writeTo(output);
+            }
+        }
+
+        /**
+         * Close the segments still open. Searches still waiting for their
+         * segment are told that it will not be written.
+         */
+        @Override
+        public void close() throws IOException {
+            IOException error = null;
+            for (DataOutputStream output : outputs.values()) {
+                try {
+                    output.close();
+                } catch (IOException exception) {
+                    error = exception;
+                }
+            }
+            outputs.clear();
+
+            synchronized (segments) {
+                closed = true;
+                segments.values().forEach(segment -> segment.completeExceptionally(new IOException("The segment of the search was not written.")));
+                segments.clear();
+            }
+
+            if (error != null) {
+                throw error;
+            }
+        }
+
+    }
+
+}
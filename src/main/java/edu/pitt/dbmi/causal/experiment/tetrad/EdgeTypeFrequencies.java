@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.tetrad;
+
+import edu.cmu.tetrad.graph.Edge;
+import edu.cmu.tetrad.graph.EdgeListGraph;
+import edu.cmu.tetrad.graph.EdgeTypeProbability;
+import edu.cmu.tetrad.graph.EdgeTypeProbability.EdgeType;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.graph.Node;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts of the edge types between each pair of nodes over a sequence of
+ * graphs. Each graph is folded into the counts as soon as it is added and is
+ * not kept, so the memory used depends only on the number of nodes.
+ *
+ * The graph built from the counts is the one built by tetrad's
+ * GraphSampling.createGraphWithHighProbabilityEdges from the list of graphs,
+ * in the order they were added. The only difference is that edge types of
+ * equal probability are listed in a fixed order, where tetrad lists them in
+ * hash order.
+ *
+ * The counts are not thread-safe.
+ *
+ * @author agent (agent@local)
+ */
+public final class EdgeTypeFrequencies {
+
+    private static final EdgeType[] EDGE_TYPES = EdgeType.values();
+
+    private static final Edge.Property[] PROPERTIES = Edge.Property.values();
+
+    private static final byte UNSEEN = 0;
+    private static final byte FORWARD = 1;
+    private static final byte BACKWARD = 2;
+
+    private List<Node> nodes;
+    private Map<String, Integer> nodeIndices;
+
+    /**
+     * Number of graphs having each edge type, for each pair of nodes. The
+     * edge type is from the node of lower index to the one of higher index.
+     */
+    private int[] counts;
+
+    /**
+     * PAG colorings of the last edge of each type, for each pair of nodes,
+     * encoded in order.
+     */
+    private int[] properties;
+
+    /**
+     * Direction of the first edge between each pair of nodes: whether its
+     * first node is the node of lower index.
+     */
+    private byte[] directions;
+
+    /**
+     * Edge type of each pair of nodes in the last graph added.
+     */
+    private int[] lastEdgeTypes;
+
+    private int numOfGraphs;
+
+    public EdgeTypeFrequencies() {
+    }
+
+    /**
+     * Add the PAG colorings to the graph and fold its edges into the counts.
+     *
+     * @param graph graph over the same nodes as the first graph
+     */
+    public void add(Graph graph) {
+        if (nodes == null) {
+            initialize(graph.getNodes());
+        }
+
+        GraphUtils.addPagColoring(graph);
+
+        Arrays.fill(lastEdgeTypes, EdgeType.nil.ordinal());
+        for (Edge edge : graph.getEdges()) {
+            int index1 = getNodeIndex(edge.getNode1());
+            int index2 = getNodeIndex(edge.getNode2());
+            int pair = getPairIndex(index1, index2);
+
+            EdgeType edgeType = (index1 < index2)
+                    ? Edges.getEdgeType(edge, edge.getNode1(), edge.getNode2())
+                    : Edges.getEdgeType(edge, edge.getNode2(), edge.getNode1());
+            lastEdgeTypes[pair] = edgeType.ordinal();
+            properties[pair * EDGE_TYPES.length + edgeType.ordinal()] = encode(edge.getProperties());
+            if (directions[pair] == UNSEEN) {
+                directions[pair] = (index1 < index2) ? FORWARD : BACKWARD;
+            }
+        }
+
+        for (int pair = 0; pair < lastEdgeTypes.length; pair++) {
+            counts[pair * EDGE_TYPES.length + lastEdgeTypes[pair]]++;
+        }
+        numOfGraphs++;
+    }
+
+    /**
+     * Create the graph whose edges are the edge types of highest probability,
+     * each edge listing the probabilities of all the edge types between its
+     * nodes. A pair of nodes gets an edge, possibly of type nil, if any graph
+     * has an edge between them.
+     *
+     * @return graph with the edges of highest probability
+     */
+    public Graph createGraphWithHighProbabilityEdges() {
+        if (numOfGraphs == 0) {
+            return new EdgeListGraph();
+        }
+
+        Node[] sortedNodes = nodes.toArray(new Node[nodes.size()]);
+        Arrays.sort(sortedNodes);
+        Graph graph = new EdgeListGraph(Arrays.asList(sortedNodes));
+
+        // the pairs are named by their first edge and added in name order
+        List<int[]> pairs = new ArrayList<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            for (int j = i + 1; j < nodes.size(); j++) {
+                byte direction = directions[getPairIndex(i, j)];
+                if (direction == FORWARD) {
+                    pairs.add(new int[]{i, j});
+                } else if (direction == BACKWARD) {
+                    pairs.add(new int[]{j, i});
+                }
+            }
+        }
+        pairs.sort(Comparator
+                .comparing((int[] pair) -> nodes.get(pair[0]).getName())
+                .thenComparing(pair -> nodes.get(pair[1]).getName()));
+
+        for (int[] pair : pairs) {
+            String node1 = nodes.get(pair[0]).getName();
+            String node2 = nodes.get(pair[1]).getName();
+            List<EdgeTypeProbability> edgeTypeProbabilities = getEdgeTypeProbabilities(pair[0], pair[1]);
+
+            Edge edge = Edges.createEdge(edgeTypeProbabilities.get(0).getEdgeType(), graph.getNode(node1), graph.getNode(node2));
+            boolean reversed = !(node1.equals(edge.getNode1().getName()) && node2.equals(edge.getNode2().getName()));
+            for (EdgeTypeProbability edgeTypeProbability : edgeTypeProbabilities) {
+                if (reversed) {
+                    edgeTypeProbability.setEdgeType(Edges.getReversed(edgeTypeProbability.getEdgeType()));
+                }
+                edge.addEdgeTypeProbability(edgeTypeProbability);
+            }
+            edge.setProbability(edge.getEdgeTypeProbabilities().stream()
+                    .filter(edgeTypeProbability -> edgeTypeProbability.getEdgeType() != EdgeType.nil)
+                    .mapToDouble(EdgeTypeProbability::getProbability)
+                    .sum());
+
+            graph.addEdge(edge);
+        }
+
+        return graph;
+    }
+
+    /**
+     * Get the probabilities of the edge types from one node to the other, in
+     * decreasing order of probability.
+     */
+    private List<EdgeTypeProbability> getEdgeTypeProbabilities(int index1, int index2) {
+        int offset = getPairIndex(index1, index2) * EDGE_TYPES.length;
+        boolean backward = index1 > index2;
+        double n = numOfGraphs;
+
+        List<EdgeTypeProbability> edgeTypeProbabilities = new ArrayList<>();
+        for (EdgeType edgeType : EDGE_TYPES) {
+            if (edgeType == EdgeType.nil) {
+                continue;
+            }
+
+            int type = (backward ? Edges.getReversed(edgeType) : edgeType).ordinal();
+            int count = counts[offset + type];
+            if (count > 0) {
+                edgeTypeProbabilities.add(new EdgeTypeProbability(edgeType, decode(properties[offset + type]), count / n));
+            }
+        }
+
+        int numOfNils = counts[offset + EdgeType.nil.ordinal()];
+        if (numOfNils > 0 && numOfNils < numOfGraphs) {
+            edgeTypeProbabilities.add(new EdgeTypeProbability(EdgeType.nil, numOfNils / n));
+        }
+
+        // stable sort, ties stay in edge type order
+        edgeTypeProbabilities.sort((p1, p2) -> Double.compare(p2.getProbability(), p1.getProbability()));
+
+        return edgeTypeProbabilities;
+    }
+
+    private void initialize(List<Node> nodes) {
+        this.nodes = new ArrayList<>(nodes);
+        this.nodeIndices = new HashMap<>();
+        for (Node node : nodes) {
+            nodeIndices.put(node.getName(), nodeIndices.size());
+        }
+
+        int numOfPairs = nodes.size() * (nodes.size() - 1) / 2;
+        this.counts = new int[numOfPairs * EDGE_TYPES.length];
+        this.properties = new int[numOfPairs * EDGE_TYPES.length];
+        this.directions = new byte[numOfPairs];
+        this.lastEdgeTypes = new int[numOfPairs];
+    }
+
+    private int getNodeIndex(Node node) {
+        Integer index = nodeIndices.get(node.getName());
+        if (index == null) {
+            throw new IllegalArgumentException(String.format("Node %s is not in the first graph.", node.getName()));
+        }
+
+        return index;
+    }
+
+    /**
+     * Get the index of a pair of nodes in the upper triangle of the adjacency
+     * matrix, row by row.
+     *
+     * @param index1 index of one node
+     * @param index2 index of the other node
+     * @return index of the pair
+     */
+    public int getPairIndex(int index1, int index2) {
+        int i = Math.min(index1, index2);
+        int j = Math.max(index1, index2);
+
+        return i * (2 * nodes.size() - i - 1) / 2 + (j - i - 1);
+    }
+
+    /**
+     * Encode the properties, in order, as digits in base one more than the
+     * number of properties.
+     */
+    private static int encode(List<Edge.Property> edgeProperties) {
+        int code = 0;
+        for (int i = edgeProperties.size() - 1; i >= 0; i--) {
+            code = code * (PROPERTIES.length + 1) + edgeProperties.get(i).ordinal() + 1;
+        }
+
+        return code;
+    }
+
+    private static List<Edge.Property> decode(int code) {
+        List<Edge.Property> edgeProperties = new ArrayList<>();
+        for (; code > 0; code /= PROPERTIES.length + 1) {
+            edgeProperties.add(PROPERTIES[code % (PROPERTIES.length + 1) - 1]);
+        }
+
+        return edgeProperties;
+    }
+
+    /**
+     * Get the number of graphs having the given edge type between a pair of
+     * nodes.
+     *
+     * @param pair index of the pair
+     * @param edgeType ordinal of the edge type, from the node of lower index
+     * to the one of higher index
+     * @return number of graphs
+     */
+    public int getCount(int pair, int edgeType) {
+        return counts[pair * EDGE_TYPES.length + edgeType];
+    }
+
+    /**
+     * Get the edge type of a pair of nodes in the last graph added.
+     *
+     * @param pair index of the pair
+     * @return ordinal of the edge type, from the node of lower index to the
+     * one of higher index
+     */
+    public int getLastEdgeType(int pair) {
+        return lastEdgeTypes[pair];
+    }
+
+    public int getNumberOfPairs() {
+        return (lastEdgeTypes == null) ? 0 : lastEdgeTypes.length;
+    }
+
+    public int getNumberOfGraphs() {
+        return numOfGraphs;
+    }
+
+}
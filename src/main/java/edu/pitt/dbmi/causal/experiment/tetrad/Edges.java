@@ -119,6 +119,37 @@ public final class Edges {
         }
     }
 
+    /**
+     * Create an edge of the given type between the nodes, the way tetrad does
+     * for the graph with the edges of highest probability. An edge of type nil
+     * has null endpoints.
+     *
+     * @param edgeType type of the edge from node1 to node2
+     * @param node1 first node
+     * @param node2 second node
+     * @return edge between the nodes
+     */
+    public static Edge createEdge(EdgeType edgeType, Node node1, Node node2) {
+        switch (edgeType) {
+            case ta:
+                return new Edge(node1, node2, Endpoint.TAIL, Endpoint.ARROW);
+            case at:
+                return new Edge(node1, node2, Endpoint.ARROW, Endpoint.TAIL);
+            case ca:
+                return new Edge(node1, node2, Endpoint.CIRCLE, Endpoint.ARROW);
+            case ac:
+                return new Edge(node1, node2, Endpoint.ARROW, Endpoint.CIRCLE);
+            case cc:
+                return new Edge(node1, node2, Endpoint.CIRCLE, Endpoint.CIRCLE);
+            case aa:
+                return new Edge(node1, node2, Endpoint.ARROW, Endpoint.ARROW);
+            case tt:
+                return new Edge(node1, node2, Endpoint.TAIL, Endpoint.TAIL);
+            default:
+                return new Edge(node1, node2, Endpoint.NULL, Endpoint.NULL);
+        }
+    }
+
     public static EdgeType getReversed(EdgeType edgeType) {
         switch (edgeType) {
             case ac:
@@ -0,0 +1,417 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.tetrad;
+
+import edu.cmu.tetrad.graph.Edge;
+import edu.cmu.tetrad.graph.Endpoint;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.graph.NodeType;
+import edu.cmu.tetrad.search.utils.GraphSearchUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks whether graphs are legal PAGs with tetrad's
+ * GraphSearchUtils.isLegalPag, keeping track of the time spent and of why
+ * graphs are rejected.
+ *
+ * Graphs with the same nodes and edges get the same answer, so the answers
+ * are cached by the edge set of the graph. Optionally, necessary conditions
+ * that are cheap to check are checked first: every node is measured, the
+ * directed edges have no cycle, and no bidirected edge has a directed path
+ * between its nodes. The MAG tetrad derives from a PAG keeps the directed and
+ * bidirected edges of the PAG, so a graph failing one of these is not a legal
+ * PAG either.
+ *
+ * The checker is thread-safe.
+ *
+ * @author agent (agent@local)
+ */
+public final class LegalPagChecker {
+
+    /**
+     * Why a graph is not a legal PAG.
+     */
+    public enum Reason {
+
+        NOT_MEASURED("node not measured"),
+        DIRECTED_CYCLE("directed cycle"),
+        ALMOST_CYCLE("directed path between the nodes of a bidirected edge"),
+        INVALID_EDGE("edge of the implied MAG not directed, bidirected or undirected"),
+        NOT_MAXIMAL("inducing path between non-adjacent nodes of the implied MAG"),
+        UNDIRECTED_EDGE("undirected edge next to a parent or spouse in the implied MAG"),
+        NOT_RECOVERED("PAG of the implied MAG is not the graph"),
+        OTHER("other");
+
+        private final String description;
+
+        private Reason(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * Classify the reason tetrad gives for a graph not being a legal PAG.
+         *
+         * @param message reason given by GraphSearchUtils.isLegalPag
+         * @return reason
+         */
+        public static Reason of(String message) {
+            if (message.endsWith(" is not measured")) {
+                return NOT_MEASURED;
+            } else if (message.startsWith("Acyclicity violated")) {
+                return DIRECTED_CYCLE;
+            } else if (message.startsWith("Bidirected edge semantics violated")) {
+                return ALMOST_CYCLE;
+            } else if (message.startsWith("There is more than one edge") || message.contains("should be directed, bidirected, or undirected")) {
+                return INVALID_EDGE;
+            } else if (message.startsWith("This is not maximal")) {
+                return NOT_MAXIMAL;
+            } else if (message.startsWith("For undirected edge")) {
+                return UNDIRECTED_EDGE;
+            } else if (message.startsWith("Could be a MAG")) {
+                return NOT_RECOVERED;
+            } else {
+                return OTHER;
+            }
+        }
+
+    }
+
+    /**
+     * Default maximum number of answers cached.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    private static final Reason[] REASONS = Reason.values();
+
+    private final boolean prechecking;
+    private final Map<GraphKey, Reason> cache;
+
+    /**
+     * Identifier of each node name, used in the graph keys.
+     */
+    private final Map<String, Integer> nodeIds = new ConcurrentHashMap<>();
+    private final AtomicInteger numOfNodeIds = new AtomicInteger();
+
+    private final AtomicLong numOfChecks = new AtomicLong();
+    private final AtomicLong numOfCacheHits = new AtomicLong();
+    private final AtomicLong numOfPrecheckRejections = new AtomicLong();
+    private final AtomicLong numOfFullChecks = new AtomicLong();
+    private final AtomicLong checkTime = new AtomicLong();
+    private final AtomicLong fullCheckTime = new AtomicLong();
+    private final AtomicIntegerArray rejections = new AtomicIntegerArray(REASONS.length);
+
+    public LegalPagChecker(boolean prechecking) {
+        this(prechecking, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Create a checker.
+     *
+     * @param prechecking true to check the cheap necessary conditions before
+     * running tetrad's check
+     * @param cacheSize maximum number of answers cached, 0 for no cache
+     */
+    public LegalPagChecker(boolean prechecking, int cacheSize) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("Cache size must be non-negative.");
+        }
+
+        this.prechecking = prechecking;
+        this.cache = new LinkedHashMap<GraphKey, Reason>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<GraphKey, Reason> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Check whether the graph is a legal PAG.
+     *
+     * @param graph graph returned by a search
+     * @return null if the graph is a legal PAG, otherwise why it is not
+     */
+    public Reason check(Graph graph) {
+        long startTime = System.nanoTime();
+        numOfChecks.incrementAndGet();
+
+        Reason reason;
+        boolean cached;
+        GraphKey key = new GraphKey(graph);
+        synchronized (cache) {
+            cached = cache.containsKey(key);
+            reason = cache.get(key);
+        }
+        if (cached) {
+            numOfCacheHits.incrementAndGet();
+        } else {
+            reason = prechecking ? precheck(graph) : null;
+            if (reason != null) {
+                numOfPrecheckRejections.incrementAndGet();
+            } else {
+                long fullCheckStartTime = System.nanoTime();
+                GraphSearchUtils.LegalPagRet legalPag = GraphSearchUtils.isLegalPag(graph);
+                fullCheckTime.addAndGet(System.nanoTime() - fullCheckStartTime);
+                numOfFullChecks.incrementAndGet();
+
+                reason = legalPag.isLegalPag() ? null : Reason.of(legalPag.getReason());
+            }
+
+            synchronized (cache) {
+                cache.put(key, reason);
+            }
+        }
+
+        if (reason != null) {
+            rejections.incrementAndGet(reason.ordinal());
+        }
+        checkTime.addAndGet(System.nanoTime() - startTime);
+
+        return reason;
+    }
+
+    /**
+     * Check the necessary conditions that do not need the implied MAG.
+     *
+     * @param graph graph to check
+     * @return reason the graph is not a legal PAG, null if the conditions
+     * hold
+     */
+    private static Reason precheck(Graph graph) {
+        List<Node> nodes = graph.getNodes();
+        Map<Node, Integer> indices = new HashMap<>();
+        for (Node node : nodes) {
+            if (node.getNodeType() != NodeType.MEASURED) {
+                return Reason.NOT_MEASURED;
+            }
+            indices.put(node, indices.size());
+        }
+
+        // children of each node along the directed edges
+        int numOfNodes = nodes.size();
+        List<List<Integer>> children = new ArrayList<>(numOfNodes);
+        for (int i = 0; i < numOfNodes; i++) {
+            children.add(new ArrayList<>());
+        }
+        List<int[]> bidirectedEdges = new ArrayList<>();
+        for (Edge edge : graph.getEdges()) {
+            int index1 = indices.get(edge.getNode1());
+            int index2 = indices.get(edge.getNode2());
+            Endpoint endpoint1 = edge.getEndpoint1();
+            Endpoint endpoint2 = edge.getEndpoint2();
+            if (endpoint1 == Endpoint.TAIL && endpoint2 == Endpoint.ARROW) {
+                children.get(index1).add(index2);
+            } else if (endpoint1 == Endpoint.ARROW && endpoint2 == Endpoint.TAIL) {
+                children.get(index2).add(index1);
+            } else if (endpoint1 == Endpoint.ARROW && endpoint2 == Endpoint.ARROW) {
+                bidirectedEdges.add(new int[]{index1, index2});
+            }
+        }
+
+        int[] order = topologicalOrder(children);
+        if (order == null) {
+            return Reason.DIRECTED_CYCLE;
+        }
+
+        if (!bidirectedEdges.isEmpty()) {
+            // descendants of each node, children first
+            BitSet[] descendants = new BitSet[numOfNodes];
+            for (int i = numOfNodes - 1; i >= 0; i--) {
+                int node = order[i];
+                descendants[node] = new BitSet(numOfNodes);
+                for (int child : children.get(node)) {
+                    descendants[node].set(child);
+                    descendants[node].or(descendants[child]);
+                }
+            }
+
+            for (int[] edge : bidirectedEdges) {
+                if (descendants[edge[0]].get(edge[1]) || descendants[edge[1]].get(edge[0])) {
+                    return Reason.ALMOST_CYCLE;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Sort the nodes so that parents come before their children.
+     *
+     * @param children children of each node
+     * @return nodes in topological order, null if there is a directed cycle
+     */
+    private static int[] topologicalOrder(List<List<Integer>> children) {
+        int numOfNodes = children.size();
+        int[] numOfParents = new int[numOfNodes];
+        children.forEach(nodeChildren -> nodeChildren.forEach(child -> numOfParents[child]++));
+
+        int[] order = new int[numOfNodes];
+        int head = 0;
+        int tail = 0;
+        for (int node = 0; node < numOfNodes; node++) {
+            if (numOfParents[node] == 0) {
+                order[tail++] = node;
+            }
+        }
+        while (head < tail) {
+            for (int child : children.get(order[head++])) {
+                if (--numOfParents[child] == 0) {
+                    order[tail++] = child;
+                }
+            }
+        }
+
+        return (tail == numOfNodes) ? order : null;
+    }
+
+    private int getNodeId(Node node) {
+        return nodeIds.computeIfAbsent(node.getName(), name -> numOfNodeIds.getAndIncrement());
+    }
+
+    public boolean isPrechecking() {
+        return prechecking;
+    }
+
+    public long getNumberOfChecks() {
+        return numOfChecks.get();
+    }
+
+    public long getNumberOfCacheHits() {
+        return numOfCacheHits.get();
+    }
+
+    public long getNumberOfPrecheckRejections() {
+        return numOfPrecheckRejections.get();
+    }
+
+    /**
+     * Get the number of graphs checked with tetrad's check.
+     *
+     * @return number of full checks
+     */
+    public long getNumberOfFullChecks() {
+        return numOfFullChecks.get();
+    }
+
+    /**
+     * Get the total time spent checking, cache lookups included.
+     *
+     * @return time in nanoseconds
+     */
+    public long getCheckTime() {
+        return checkTime.get();
+    }
+
+    /**
+     * Get the time spent in tetrad's check.
+     *
+     * @return time in nanoseconds
+     */
+    public long getFullCheckTime() {
+        return fullCheckTime.get();
+    }
+
+    /**
+     * Get the number of graphs rejected for the given reason, cache hits
+     * included.
+     *
+     * @param reason reason of the rejection
+     * @return number of graphs
+     */
+    public int getNumberOfRejections(Reason reason) {
+        return rejections.get(reason.ordinal());
+    }
+
+    /**
+     * Nodes and edges of a graph, by node identifiers.
+     */
+    private final class GraphKey {
+
+        private final int[] nodes;
+        private final long[] edges;
+        private final int hash;
+
+        private GraphKey(Graph graph) {
+            nodes = graph.getNodes().stream()
+                    .mapToInt(LegalPagChecker.this::getNodeId)
+                    .sorted()
+                    .toArray();
+
+            edges = new long[graph.getNumEdges()];
+            int i = 0;
+            for (Edge edge : graph.getEdges()) {
+                int id1 = getNodeId(edge.getNode1());
+                int id2 = getNodeId(edge.getNode2());
+                int endpoint1 = edge.getEndpoint1().ordinal();
+                int endpoint2 = edge.getEndpoint2().ordinal();
+                edges[i++] = (id1 < id2)
+                        ? encode(id1, id2, endpoint1, endpoint2)
+                        : encode(id2, id1, endpoint2, endpoint1);
+            }
+            Arrays.sort(edges);
+
+            hash = 31 * Arrays.hashCode(nodes) + Arrays.hashCode(edges);
+        }
+
+        private long encode(int id1, int id2, int endpoint1, int endpoint2) {
+            return ((((long) id1 << 28) | id2) << 8) | (endpoint1 << 4) | endpoint2;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof GraphKey)) {
+                return false;
+            }
+
+            GraphKey other = (GraphKey) obj;
+
+            return hash == other.hash
+                    && Arrays.equals(nodes, other.nodes)
+                    && Arrays.equals(edges, other.edges);
+        }
+
+    }
+
+}
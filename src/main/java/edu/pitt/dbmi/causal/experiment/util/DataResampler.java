@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.util;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.util.Parameters;
+import edu.cmu.tetrad.util.Params;
+import java.util.stream.Stream;
+import org.apache.commons.math3.random.RandomGenerator;
+
+/**
+ * Lazy source of the resamples of a data set. A resample is drawn only when
+ * it is requested and is kept as the indices of the rows of the original data
+ * set, so the data are copied only while a resample is being searched. The
+ * resamples are drawn in the same order and from the same random numbers as
+ * {@link DataSampling#sample(DataSet, Parameters, RandomGenerator)}.
+ *
+ * @author agent (agent@local)
+ */
+public final class DataResampler {
+
+    private final DataSet dataSet;
+    private final RandomGenerator randomGenerator;
+
+    private final int numberOfResampling;
+    private final boolean addOriginalDataset;
+
+    private int numberOfDraws;
+
+    public DataResampler(DataSet dataSet, Parameters parameters, RandomGenerator randomGenerator) {
+        this.dataSet = dataSet;
+        this.randomGenerator = randomGenerator;
+
+        // resampling without replacement is not supported, as in DataSampling
+        this.numberOfResampling = parameters.getBoolean(Params.RESAMPLING_WITH_REPLACEMENT)
+                ? parameters.getInt(Params.NUMBER_RESAMPLING)
+                : 0;
+        this.addOriginalDataset = (numberOfResampling > 0) && parameters.getBoolean(Params.ADD_ORIGINAL_DATASET);
+    }
+
+    /**
+     * Get the number of samples set by the parameters, including the original
+     * data set if it is added.
+     *
+     * @return number of samples
+     */
+    public int getNumberOfSamples() {
+        return addOriginalDataset ? numberOfResampling + 1 : numberOfResampling;
+    }
+
+    /**
+     * Draw the next sample. The samples set by the parameters come first,
+     * followed by the original data set if it is added. Any sample after that
+     * is an additional sample drawn with replacement.
+     *
+     * @return row indices of the sample, or null for the original data set
+     */
+    public synchronized int[] next() {
+        int index = numberOfDraws++;
+
+        return (addOriginalDataset && index == numberOfResampling)
+                ? null
+                : DataSampling.sampleRowsWithReplacement(dataSet, randomGenerator);
+    }
+
+    /**
+     * Stream the samples set by the parameters, drawing each one as the
+     * stream is consumed.
+     *
+     * @return row indices of the samples
+     * @see #next()
+     */
+    public Stream<int[]> stream() {
+        return Stream.generate(this::next).limit(getNumberOfSamples());
+    }
+
+    /**
+     * Count the number of times each row of the original data set is drawn in
+     * the given sample.
+     *
+     * @param rows row indices of a sample, or null for the original data set
+     * @return number of times each row is drawn, or null for the original data
+     * set
+     */
+    public int[] getRowCounts(int[] rows) {
+        return (rows == null) ? null : DataSampling.toRowCounts(rows, dataSet.getNumRows());
+    }
+
+    /**
+     * Copy the given rows of the original data set.
+     *
+     * @param rows row indices of a sample, or null for the original data set
+     * @return data of the sample
+     */
+    public DataSet getDataSet(int[] rows) {
+        return (rows == null) ? dataSet : dataSet.subsetRows(rows);
+    }
+
+}
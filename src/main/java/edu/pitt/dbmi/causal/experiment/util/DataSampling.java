@@ -65,6 +65,41 @@ public final class DataSampling {
         return DataUtils.getBootstrapSample(dataSet, dataSet.getNumRows(), randomGenerator);
     }
 
+    /**
+     * Draw the rows of a sample with replacement, the same size as the data
+     * set. The rows are drawn from the random generator exactly as
+     * {@link #sampleWithReplacement(DataSet, RandomGenerator)} draws them.
+     *
+     * @param dataSet data set to sample
+     * @param randomGenerator random generator
+     * @return row indices of the sample
+     */
+    public static int[] sampleRowsWithReplacement(DataSet dataSet, RandomGenerator randomGenerator) {
+        int numOfRows = dataSet.getNumRows();
+        int[] rows = new int[numOfRows];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = randomGenerator.nextInt(numOfRows);
+        }
+
+        return rows;
+    }
+
+    /**
+     * Count the number of times each row of the data set is drawn in a sample.
+     *
+     * @param rows row indices of the sample
+     * @param numberOfRows number of rows in the data set
+     * @return number of times each row is drawn
+     */
+    public static int[] toRowCounts(int[] rows, int numberOfRows) {
+        int[] rowCounts = new int[numberOfRows];
+        for (int row : rows) {
+            rowCounts[row]++;
+        }
+
+        return rowCounts;
+    }
+
     private static List<DataSet> sampleWithReplacement(DataSet dataSet, Parameters parameters, RandomGenerator randomGenerator) {
         List<DataSet> dataSets = new LinkedList<>();
 
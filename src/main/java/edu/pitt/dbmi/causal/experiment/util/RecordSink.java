@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.util;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Writes records as they are produced. Records are put into a bounded ring
+ * buffer and written by a background thread, one line each to a file or
+ * through a {@link RecordWriter}, so that the producers never hold more than
+ * the buffer's worth of records in memory. A producer waits when the buffer is full. Records are written in
+ * the order they are put into the buffer.
+ *
+ * The sink can be shared by any number of producer threads.
+ *
+ * @author agent (agent@local)
+ * @param <T> type of the records
+ */
+public final class RecordSink<T> implements Consumer<T>, Closeable {
+
+    /**
+     * Default number of records the buffer holds.
+     */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    /**
+     * Marks the end of the records.
+     */
+    private static final Object END = new Object();
+
+    private final BlockingQueue<Object> buffer;
+    private final RecordWriter<? super T> recordWriter;
+    private final Thread writerThread;
+
+    private volatile IOException error;
+    private boolean closed;
+
+    /**
+     * Open the file, write the header and start the background writer.
+     *
+     * @param file output file
+     * @param header first line of the file, or null for none
+     * @param formatter formats a record into a line, run on the writer thread
+     * @throws IOException if the file cannot be opened
+     */
+    public RecordSink(Path file, String header, Function<? super T, String> formatter) throws IOException {
+        this(file, header, formatter, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Open the file, write the header and start the background writer.
+     *
+     * @param file output file
+     * @param header first line of the file, or null for none
+     * @param formatter formats a record into a line, run on the writer thread
+     * @param capacity number of records the buffer holds
+     * @throws IOException if the file cannot be opened
+     */
+    public RecordSink(Path file, String header, Function<? super T, String> formatter, int capacity) throws IOException {
+        this(lineWriter(file, header, formatter), "record-sink-" + file.getFileName(), capacity);
+    }
+
+    /**
+     * Start the background writer.
+     *
+     * @param recordWriter writes the records, on the writer thread, and is
+     * closed once the records are written or writing fails
+     * @param name name of the writer thread
+     * @param capacity number of records the buffer holds
+     */
+    public RecordSink(RecordWriter<? super T> recordWriter, String name, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1.");
+        }
+
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.recordWriter = recordWriter;
+
+        this.writerThread = new Thread(this::write, name);
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Put the record into the buffer, waiting while the buffer is full.
+     *
+     * @param record record to write
+     * @throws UncheckedIOException if writing a previous record failed
+     */
+    @Override
+    public void accept(T record) {
+        if (error != null) {
+            throw new UncheckedIOException(error);
+        }
+
+        try {
+            buffer.put(record);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to write a record.", exception);
+        }
+    }
+
+    /**
+     * Write the remaining records and close the file.
+     *
+     * @throws IOException if writing the records failed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            buffer.put(END);
+            writerThread.join();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing the remaining records.", exception);
+        }
+
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void write() {
+        List<Object> records = new ArrayList<>();
+        boolean end = false;
+        try (RecordWriter<? super T> writer = recordWriter) {
+            while (!end) {
+                records.add(buffer.take());
+                buffer.drainTo(records);
+                for (Object record : records) {
+                    if (record == END) {
+                        end = true;
+                        break;
+                    }
+                    writer.write((T) record);
+                }
+                records.clear();
+            }
+        } catch (IOException exception) {
+            error = exception;
+        } catch (InterruptedException | RuntimeException exception) {
+            error = new IOException("Unable to write the records.", exception);
+        }
+
+        // keep taking the records so that the producers are never blocked
+        if (!end && !records.contains(END)) {
+            try {
+                while (buffer.take() != END) {
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static <T> RecordWriter<T> lineWriter(Path file, String header, Function<? super T, String> formatter) throws IOException {
+        BufferedWriter writer = Files.newBufferedWriter(file);
+        if (header != null) {
+            try {
+                writer.write(header);
+                writer.newLine();
+            } catch (IOException exception) {
+                writer.close();
+                throw exception;
+            }
+        }
+
+        return new RecordWriter<T>() {
+            @Override
+            public void write(T record) throws IOException {
+                writer.write(formatter.apply(record));
+                writer.newLine();
+            }
+
+            @Override
+            public void close() throws IOException {
+                writer.close();
+            }
+        };
+    }
+
+    /**
+     * Writes the records taken from the buffer.
+     *
+     * @param <T> type of the records
+     */
+    public interface RecordWriter<T> extends Closeable {
+
+        /**
+         * Write a record, on the writer thread.
+         *
+         * @param record record to write
+         * @throws IOException if the record cannot be written
+         */
+        void write(T record) throws IOException;
+
+    }
+
+}
@@ -14,9 +14,6 @@ import java.util.stream.Collectors;
  */
 public final class StringUtils {
 
-    private static Set<String> setXY = new TreeSet<>();
-    private static Set<String> setZ = new TreeSet<>();
-
     private StringUtils() {
     }
 
@@ -32,16 +29,16 @@ public final class StringUtils {
     }
 
     public static String toStringSorted(Node x, Node y, Node... z) {
+        Set<String> setXY = new TreeSet<>();
         setXY.add(x.getName());
         setXY.add(y.getName());
+
+        Set<String> setZ = new TreeSet<>();
         setZ.addAll(Arrays.stream(z).map(Node::getName).toList());
 
         String xyVars = setXY.stream().collect(Collectors.joining(","));
         String zVars = setZ.stream().collect(Collectors.joining(","));
 
-        setXY.clear();
-        setZ.clear();
-
         return zVars.isBlank()
                 ? String.format("P(%s)", xyVars)
                 : String.format("P(%s|%s)", xyVars, zVars);
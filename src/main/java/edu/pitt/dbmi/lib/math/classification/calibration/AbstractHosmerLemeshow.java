@@ -19,7 +19,7 @@
 package edu.pitt.dbmi.lib.math.classification.calibration;
 
 import edu.pitt.dbmi.lib.math.classification.data.ObservedPredictedValue;
-import java.util.Arrays;
+import edu.pitt.dbmi.lib.math.classification.data.PredictionColumns;
 import java.util.List;
 import org.apache.commons.math3.distribution.ChiSquaredDistribution;
 
@@ -112,29 +112,42 @@ public abstract class AbstractHosmerLemeshow implements HosmerLemeshow {
      */
     protected double averageCalibrationError;
 
+    /**
+     * For subclasses that bin the predictions themselves. They set the
+     * number of predictions and the observed and predicted values, then call
+     * {@link #computeGroups()}.
+     */
+    protected AbstractHosmerLemeshow() {
+    }
+
     public AbstractHosmerLemeshow(List<ObservedPredictedValue> observedPredictedValues) {
-        if (observedPredictedValues == null || observedPredictedValues.isEmpty()) {
+        this(PredictionColumns.of(observedPredictedValues));
+    }
+
+    public AbstractHosmerLemeshow(PredictionColumns predictionColumns) {
+        if (predictionColumns == null) {
             throw new IllegalArgumentException(
-                    "A list of data containing both observed value and predicted value is required.");
+                    "Data containing both observed value and predicted value is required.");
         }
 
-        // copy data to an array
-        ObservedPredictedValue[] data = observedPredictedValues.toArray(ObservedPredictedValue[]::new);
+        numberOfPredictions = predictionColumns.getNumberOfPredictions();
 
-        // sort in ascending order
-        Arrays.sort(data);
-
-        numberOfPredictions = data.length;
-
-        // populate observed values and predicted values
+        // populate observed values and predicted values in ascending order of predicted value
+        int[] order = predictionColumns.getAscendingOrder();
         observedValues = new int[numberOfPredictions];
         predictedValues = new double[numberOfPredictions];
         for (int i = 0; i < numberOfPredictions; i++) {
-            ObservedPredictedValue obsPredVal = data[i];
-            observedValues[i] = obsPredVal.getObservedValue();
-            predictedValues[i] = obsPredVal.getPredictedValue();
+            observedValues[i] = predictionColumns.getObservedValue(order[i]);
+            predictedValues[i] = predictionColumns.getPredictedValue(order[i]);
         }
 
+        computeGroups();
+    }
+
+    /**
+     * Compute the groups, their plot points and the statistics of the test.
+     */
+    protected void computeGroups() {
         int totalNumOfGroups = computeTotalNumberOfGroups();
         groups = new int[totalNumOfGroups];
         numberOfDataPerGroup = new int[totalNumOfGroups];
@@ -19,6 +19,7 @@
 package edu.pitt.dbmi.lib.math.classification.calibration;
 
 import edu.pitt.dbmi.lib.math.classification.data.ObservedPredictedValue;
+import edu.pitt.dbmi.lib.math.classification.data.PredictionColumns;
 import java.util.List;
 
 /**
@@ -31,10 +32,20 @@ import java.util.List;
  */
 public class HosmerLemeshowDecileGroup extends AbstractHosmerLemeshow {
 
+    /**
+     * For subclasses that bin the predictions themselves.
+     */
+    protected HosmerLemeshowDecileGroup() {
+    }
+
     public HosmerLemeshowDecileGroup(List<ObservedPredictedValue> observedPredictedValues) {
         super(observedPredictedValues);
     }
 
+    public HosmerLemeshowDecileGroup(PredictionColumns predictionColumns) {
+        super(predictionColumns);
+    }
+
     @Override
     protected void computePlotPoints() {
         int groupIndex = 0;
@@ -76,17 +87,7 @@ public class HosmerLemeshowDecileGroup extends AbstractHosmerLemeshow {
 
             // compute chart points if there is data in the bin
             if (numOfData > 0) {
-                double xValue = predictedValueSum / numOfData;  // average of the predicted values within the interval
-                double yValue = ((double) numOfPosObserVal) / numOfData;  // # positive divided by (# positive + # negative) with in the interval
-
-                hlExpectedValues[groupIndex] = xValue;
-                hlObservedValues[groupIndex] = yValue;
-                groups[groupIndex] = groupNumber;
-                numberOfDataPerGroup[groupIndex] = numOfData;
-                positiveObservedSumPerGroup[groupIndex] = numOfPosObserVal;
-                predictedSumPerGroup[groupIndex] = predictedValueSum;
-                marginOfErrorPerGroup[groupIndex] = CRITICAL_VALUE * Math.sqrt((xValue * (1 - xValue)) / numOfData);
-                hlChi2PerGroup[groupIndex] = Math.pow(numOfPosObserVal - predictedValueSum, 2) / (predictedValueSum * (1 - (predictedValueSum / numOfData)));
+                setGroup(groupIndex, groupNumber, numOfData, numOfPosObserVal, predictedValueSum);
 
                 groupIndex++;
             }
@@ -96,6 +97,29 @@ public class HosmerLemeshowDecileGroup extends AbstractHosmerLemeshow {
         }
     }
 
+    /**
+     * Compute the chart point and the statistics of a group that has data.
+     *
+     * @param groupIndex index of the group among the groups having data
+     * @param groupNumber number of the decile of the group, starting at 1
+     * @param numOfData number of predictions in the group
+     * @param numOfPosObserVal number of positive observed values in the group
+     * @param predictedValueSum sum of the predicted values in the group
+     */
+    protected void setGroup(int groupIndex, int groupNumber, int numOfData, int numOfPosObserVal, double predictedValueSum) {
+        double xValue = predictedValueSum / numOfData;  // average of the predicted values within the interval
+        double yValue = ((double) numOfPosObserVal) / numOfData;  // # positive divided by (# positive + # negative) with in the interval
+
+        hlExpectedValues[groupIndex] = xValue;
+        hlObservedValues[groupIndex] = yValue;
+        groups[groupIndex] = groupNumber;
+        numberOfDataPerGroup[groupIndex] = numOfData;
+        positiveObservedSumPerGroup[groupIndex] = numOfPosObserVal;
+        predictedSumPerGroup[groupIndex] = predictedValueSum;
+        marginOfErrorPerGroup[groupIndex] = CRITICAL_VALUE * Math.sqrt((xValue * (1 - xValue)) / numOfData);
+        hlChi2PerGroup[groupIndex] = Math.pow(numOfPosObserVal - predictedValueSum, 2) / (predictedValueSum * (1 - (predictedValueSum / numOfData)));
+    }
+
     /**
      * Split groups into intervals and count how many of groups has at least one
      * member.
@@ -0,0 +1,349 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.lib.math.classification.calibration;
+
+import edu.pitt.dbmi.lib.math.classification.data.PredictionColumns;
+import edu.pitt.dbmi.lib.math.classification.data.QuantileSketch;
+import java.util.Arrays;
+
+/**
+ * Accumulates predictions into approximate decile groups of
+ * {@link HosmerLemeshowDecileGroup}, for prediction sets too large to sort.
+ * The predictions are passed over twice: the first pass fills a quantile
+ * sketch of the predicted values, from which the accumulator takes the decile
+ * thresholds; the second pass adds the predictions to the accumulator, which
+ * only updates the count, the number of positive observed values and the sum
+ * of the predicted values of their group.
+ *
+ * A group holds the predicted values above the threshold of the previous
+ * group and up to its own threshold, as in HosmerLemeshowDecileGroup. The
+ * thresholds are the values the sketch estimates at the ranks
+ * HosmerLemeshowDecileGroup takes them from, so their ranks are off by at
+ * most the rank error of the sketch. The second pass counts the predicted
+ * values below and at each threshold, which gives the actual rank error of
+ * the thresholds; the groups are the same as HosmerLemeshowDecileGroup's
+ * when it is 0. Both errors are reported in the summary.
+ *
+ * Accumulators made from the same sketch can be filled by different workers
+ * and merged. An accumulator is not thread-safe.
+ *
+ * @author agent (agent@local)
+ */
+public final class HosmerLemeshowDecileGroupAccumulator {
+
+    /**
+     * Fractions of the predictions at or below the thresholds of the groups,
+     * incremented the way HosmerLemeshowDecileGroup does.
+     */
+    private static final double[] PERCENTS = computePercents();
+
+    private final int sketchSize;
+
+    private final double rankErrorBound;
+
+    /**
+     * Upper bounds, inclusive, of all the groups but the last one.
+     */
+    private final double[] thresholds;
+
+    private final int[] numberOfDataPerGroup = new int[HosmerLemeshow.NUM_OF_INTERVAL];
+
+    private final int[] positiveObservedSumPerGroup = new int[HosmerLemeshow.NUM_OF_INTERVAL];
+
+    private final double[] predictedSumPerGroup = new double[HosmerLemeshow.NUM_OF_INTERVAL];
+
+    /**
+     * Number of predicted values equal to a threshold, counted at the first
+     * group having that threshold.
+     */
+    private final int[] numberOfDataAtThreshold = new int[HosmerLemeshow.NUM_OF_INTERVAL - 1];
+
+    private int numberOfPredictions;
+
+    /**
+     * Create an accumulator for the second pass.
+     *
+     * @param sketch sketch of the predicted values, filled in the first pass
+     */
+    public HosmerLemeshowDecileGroupAccumulator(QuantileSketch sketch) {
+        if (sketch == null || sketch.isEmpty()) {
+            throw new IllegalArgumentException("A sketch of the predicted values is required.");
+        }
+
+        this.sketchSize = sketch.getK();
+        this.rankErrorBound = sketch.getNormalizedRankError();
+        this.thresholds = new double[HosmerLemeshow.NUM_OF_INTERVAL - 1];
+        for (int i = 0; i < thresholds.length; i++) {
+            thresholds[i] = sketch.getValueAtRank(getRank(PERCENTS[i], sketch.getN()));
+        }
+    }
+
+    /**
+     * Compute the approximate decile groups of the predictions, passing over
+     * them twice.
+     *
+     * @param predictionColumns observed and predicted values
+     * @param normalizedRankError rank error of the sketch, as a fraction of
+     * the number of predictions
+     * @return Hosmer-Lemeshow test binning by approximate decile
+     */
+    public static HosmerLemeshow approximate(PredictionColumns predictionColumns, double normalizedRankError) {
+        QuantileSketch sketch = QuantileSketch.withRankError(normalizedRankError);
+        for (double predictedValue : predictionColumns.getPredictedValues()) {
+            sketch.update(predictedValue);
+        }
+
+        HosmerLemeshowDecileGroupAccumulator accumulator = new HosmerLemeshowDecileGroupAccumulator(sketch);
+        accumulator.add(predictionColumns);
+
+        return accumulator.getHosmerLemeshow();
+    }
+
+    /**
+     * Add a prediction.
+     *
+     * @param observedValue actual value, 0 or 1
+     * @param predictedValue value predicted by the classifier
+     */
+    public void add(int observedValue, double predictedValue) {
+        int group = getGroup(predictedValue);
+        numberOfDataPerGroup[group]++;
+        predictedSumPerGroup[group] += predictedValue;
+        if (observedValue == 1) {
+            positiveObservedSumPerGroup[group]++;
+        }
+        if (group < thresholds.length && predictedValue == thresholds[group]) {
+            numberOfDataAtThreshold[group]++;
+        }
+        numberOfPredictions++;
+    }
+
+    /**
+     * Add the predictions, in case order.
+     *
+     * @param predictionColumns observed and predicted values
+     */
+    public void add(PredictionColumns predictionColumns) {
+        int size = predictionColumns.getNumberOfPredictions();
+        for (int i = 0; i < size; i++) {
+            add(predictionColumns.getObservedValue(i), predictionColumns.getPredictedValue(i));
+        }
+    }
+
+    /**
+     * Add the predictions of another accumulator made from the same sketch.
+     *
+     * @param accumulator accumulator to merge into this one
+     */
+    public void merge(HosmerLemeshowDecileGroupAccumulator accumulator) {
+        if (!Arrays.equals(thresholds, accumulator.thresholds)) {
+            throw new IllegalArgumentException("Accumulators with different thresholds cannot be merged.");
+        }
+
+        for (int i = 0; i < HosmerLemeshow.NUM_OF_INTERVAL; i++) {
+            numberOfDataPerGroup[i] += accumulator.numberOfDataPerGroup[i];
+            positiveObservedSumPerGroup[i] += accumulator.positiveObservedSumPerGroup[i];
+            predictedSumPerGroup[i] += accumulator.predictedSumPerGroup[i];
+        }
+        for (int i = 0; i < thresholds.length; i++) {
+            numberOfDataAtThreshold[i] += accumulator.numberOfDataAtThreshold[i];
+        }
+        numberOfPredictions += accumulator.numberOfPredictions;
+    }
+
+    /**
+     * Compute the test of the predictions added so far. The predictions are
+     * not kept, so the test has no observed and predicted values.
+     *
+     * @return Hosmer-Lemeshow test binning by approximate decile
+     */
+    public HosmerLemeshow getHosmerLemeshow() {
+        if (numberOfPredictions == 0) {
+            throw new IllegalStateException("No predictions have been added.");
+        }
+
+        return new AccumulatedDecileGroup(this);
+    }
+
+    /**
+     * Get the largest distance between the rank of a threshold and the rank
+     * it should have, over the predictions added so far.
+     *
+     * @return rank error of the thresholds, as a fraction of the number of
+     * predictions
+     */
+    public double getRankError() {
+        long maxDistance = 0;
+        long numOfDataAtOrBelow = 0;
+        for (int i = 0; i < thresholds.length; i++) {
+            numOfDataAtOrBelow += numberOfDataPerGroup[i];
+
+            int first = i;
+            while (first > 0 && thresholds[first - 1] == thresholds[i]) {
+                first--;
+            }
+            long numOfDataBelow = numOfDataAtOrBelow - numberOfDataAtThreshold[first];
+
+            // the threshold is right if the value of its rank is the threshold
+            long rank = getRank(PERCENTS[i], numberOfPredictions);
+            if (rank < numOfDataBelow) {
+                maxDistance = Math.max(maxDistance, numOfDataBelow - rank);
+            } else if (rank >= numOfDataAtOrBelow) {
+                maxDistance = Math.max(maxDistance, rank - numOfDataAtOrBelow + 1);
+            }
+        }
+
+        return (numberOfPredictions == 0) ? 0 : ((double) maxDistance) / numberOfPredictions;
+    }
+
+    /**
+     * Get the rank error of the sketch the thresholds were taken from.
+     *
+     * @return normalized rank error with 99% confidence
+     */
+    public double getRankErrorBound() {
+        return rankErrorBound;
+    }
+
+    public int getNumberOfPredictions() {
+        return numberOfPredictions;
+    }
+
+    public double[] getThresholds() {
+        return thresholds;
+    }
+
+    /**
+     * Get the first group whose threshold is at or above the value, the last
+     * group if there is none.
+     */
+    private int getGroup(double predictedValue) {
+        if (Double.isNaN(predictedValue)) {
+            return thresholds.length;
+        }
+
+        int low = 0;
+        int high = thresholds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (thresholds[mid] < predictedValue) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Get the rank HosmerLemeshowDecileGroup takes the threshold from.
+     */
+    private static long getRank(double percent, long numOfData) {
+        long rank = (long) (percent * numOfData);
+
+        return (rank < numOfData) ? rank : numOfData - 1;
+    }
+
+    private static double[] computePercents() {
+        double[] percents = new double[HosmerLemeshow.NUM_OF_INTERVAL - 1];
+
+        double percent = 0.10;
+        for (int i = 0; i < percents.length; i++) {
+            percents[i] = percent;
+            percent += 0.10;
+        }
+
+        return percents;
+    }
+
+    /**
+     * Decile groups made from the groups of an accumulator.
+     */
+    private static final class AccumulatedDecileGroup extends HosmerLemeshowDecileGroup {
+
+        private final int[] numberOfDataPerDecile;
+        private final int[] positiveObservedSumPerDecile;
+        private final double[] predictedSumPerDecile;
+
+        private final int sketchSize;
+        private final double rankErrorBound;
+        private final double rankError;
+
+        private String approximationSummary;
+
+        private AccumulatedDecileGroup(HosmerLemeshowDecileGroupAccumulator accumulator) {
+            this.numberOfDataPerDecile = Arrays.copyOf(accumulator.numberOfDataPerGroup, HosmerLemeshow.NUM_OF_INTERVAL);
+            this.positiveObservedSumPerDecile = Arrays.copyOf(accumulator.positiveObservedSumPerGroup, HosmerLemeshow.NUM_OF_INTERVAL);
+            this.predictedSumPerDecile = Arrays.copyOf(accumulator.predictedSumPerGroup, HosmerLemeshow.NUM_OF_INTERVAL);
+            this.sketchSize = accumulator.sketchSize;
+            this.rankErrorBound = accumulator.rankErrorBound;
+            this.rankError = accumulator.getRankError();
+
+            numberOfPredictions = accumulator.numberOfPredictions;
+            observedValues = new int[0];
+            predictedValues = new double[0];
+
+            computeGroups();
+        }
+
+        @Override
+        protected int computeTotalNumberOfGroups() {
+            return (int) Arrays.stream(numberOfDataPerDecile)
+                    .filter(numOfData -> numOfData > 0)
+                    .count();
+        }
+
+        @Override
+        protected void computePlotPoints() {
+            int groupIndex = 0;
+            for (int i = 0; i < HosmerLemeshow.NUM_OF_INTERVAL; i++) {
+                if (numberOfDataPerDecile[i] > 0) {
+                    setGroup(groupIndex, i + 1, numberOfDataPerDecile[i], positiveObservedSumPerDecile[i], predictedSumPerDecile[i]);
+
+                    groupIndex++;
+                }
+            }
+        }
+
+        @Override
+        public String getSummary() {
+            if (approximationSummary == null) {
+                String summary = super.getSummary();
+
+                // add the approximation before the closing line
+                int end = summary.lastIndexOf('\n');
+                StringBuilder dataBuilder = new StringBuilder(summary.substring(0, end));
+                dataBuilder.append("\n\n");
+                dataBuilder.append("Decile Approximation\n");
+                dataBuilder.append("------------------------------------\n");
+                dataBuilder.append(String.format("Quantile Sketch Size (k): %d\n", sketchSize));
+                dataBuilder.append(String.format("Rank Error Bound (99%% confidence): %f\n", rankErrorBound));
+                dataBuilder.append(String.format("Rank Error of the Thresholds: %f", rankError));
+                dataBuilder.append(summary.substring(end));
+
+                approximationSummary = dataBuilder.toString();
+            }
+
+            return approximationSummary;
+        }
+
+    }
+
+}
@@ -19,6 +19,7 @@
 package edu.pitt.dbmi.lib.math.classification.calibration;
 
 import edu.pitt.dbmi.lib.math.classification.data.ObservedPredictedValue;
+import edu.pitt.dbmi.lib.math.classification.data.PredictionColumns;
 import java.util.List;
 
 /**
@@ -30,10 +31,20 @@ import java.util.List;
  */
 public class HosmerLemeshowRiskGroup extends AbstractHosmerLemeshow {
 
+    /**
+     * For subclasses that bin the predictions themselves.
+     */
+    protected HosmerLemeshowRiskGroup() {
+    }
+
     public HosmerLemeshowRiskGroup(List<ObservedPredictedValue> observedPredictedValues) {
         super(observedPredictedValues);
     }
 
+    public HosmerLemeshowRiskGroup(PredictionColumns predictionColumns) {
+        super(predictionColumns);
+    }
+
     @Override
     protected void computePlotPoints() {
         int groupIndex = 0;
@@ -70,26 +81,7 @@ public class HosmerLemeshowRiskGroup extends AbstractHosmerLemeshow {
 
             // compute chart points if there is data in the bin
             if (numOfData > 0) {
-                // average of the predicted values within the interval
-                double xValue = predictedValueSum / numOfData;
-
-                // # positive divided by (# positive + # negative) with in the interval
-                // use Laplace smoothing to ensure posterior probabilities are never zero
-                double yValue = ((double) (numOfPosObserVal + 1)) / (numOfData + 2);
-
-                hlExpectedValues[groupIndex] = xValue;
-                hlObservedValues[groupIndex] = yValue;
-                groups[groupIndex] = groupNumber;
-                numberOfDataPerGroup[groupIndex] = numOfData;
-                positiveObservedSumPerGroup[groupIndex] = numOfPosObserVal;
-                predictedSumPerGroup[groupIndex] = predictedValueSum;
-                marginOfErrorPerGroup[groupIndex] = CRITICAL_VALUE * Math.sqrt((yValue * (1 - yValue)) / numOfData);
-
-                double averagePredictedValues = predictedValueSum / numOfData;
-                if (averagePredictedValues == 1.0) {
-                    averagePredictedValues = 0.99;
-                }
-                hlChi2PerGroup[groupIndex] = Math.pow(numOfPosObserVal - predictedValueSum, 2) / (predictedValueSum * (1 - averagePredictedValues));
+                setGroup(groupIndex, groupNumber, numOfData, numOfPosObserVal, predictedValueSum);
 
                 groupIndex++;
             }
@@ -104,6 +96,38 @@ public class HosmerLemeshowRiskGroup extends AbstractHosmerLemeshow {
         }
     }
 
+    /**
+     * Compute the chart point and the statistics of a group that has data.
+     *
+     * @param groupIndex index of the group among the groups having data
+     * @param groupNumber number of the interval of the group, starting at 1
+     * @param numOfData number of predictions in the group
+     * @param numOfPosObserVal number of positive observed values in the group
+     * @param predictedValueSum sum of the predicted values in the group
+     */
+    protected void setGroup(int groupIndex, int groupNumber, int numOfData, int numOfPosObserVal, double predictedValueSum) {
+        // average of the predicted values within the interval
+        double xValue = predictedValueSum / numOfData;
+
+        // # positive divided by (# positive + # negative) with in the interval
+        // use Laplace smoothing to ensure posterior probabilities are never zero
+        double yValue = ((double) (numOfPosObserVal + 1)) / (numOfData + 2);
+
+        hlExpectedValues[groupIndex] = xValue;
+        hlObservedValues[groupIndex] = yValue;
+        groups[groupIndex] = groupNumber;
+        numberOfDataPerGroup[groupIndex] = numOfData;
+        positiveObservedSumPerGroup[groupIndex] = numOfPosObserVal;
+        predictedSumPerGroup[groupIndex] = predictedValueSum;
+        marginOfErrorPerGroup[groupIndex] = CRITICAL_VALUE * Math.sqrt((yValue * (1 - yValue)) / numOfData);
+
+        double averagePredictedValues = predictedValueSum / numOfData;
+        if (averagePredictedValues == 1.0) {
+            averagePredictedValues = 0.99;
+        }
+        hlChi2PerGroup[groupIndex] = Math.pow(numOfPosObserVal - predictedValueSum, 2) / (predictedValueSum * (1 - averagePredictedValues));
+    }
+
     /**
      * Split groups into intervals and count how many of groups has at least one
      * member.
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.lib.math.classification.calibration;
+
+import edu.pitt.dbmi.lib.math.classification.data.PredictionColumns;
+import java.util.Arrays;
+
+/**
+ * Accumulates predictions into the risk groups of
+ * {@link HosmerLemeshowRiskGroup} as they are made, without keeping them.
+ * The groups are fixed intervals of predicted value, so adding a prediction
+ * only updates the count, the number of positive observed values and the sum
+ * of the predicted values of its interval.
+ *
+ * The intervals have the same bounds as the ones HosmerLemeshowRiskGroup
+ * walks through, the last one taking every prediction from 0.9 up. The test
+ * made from the accumulator has the same groups as HosmerLemeshowRiskGroup
+ * on the same predictions; the sums of the predicted values may differ in the
+ * last bits since they are not added in sorted order.
+ *
+ * An accumulator is not thread-safe. Workers can each fill their own and
+ * merge them.
+ *
+ * @author agent (agent@local)
+ */
+public final class HosmerLemeshowRiskGroupAccumulator {
+
+    /**
+     * Upper bounds, exclusive, of all the intervals but the last one.
+     */
+    private static final double[] THRESHOLDS = computeThresholds();
+
+    private final int[] numberOfDataPerInterval = new int[HosmerLemeshow.NUM_OF_INTERVAL];
+
+    private final int[] positiveObservedSumPerInterval = new int[HosmerLemeshow.NUM_OF_INTERVAL];
+
+    private final double[] predictedSumPerInterval = new double[HosmerLemeshow.NUM_OF_INTERVAL];
+
+    private int numberOfPredictions;
+
+    /**
+     * Add a prediction.
+     *
+     * @param observedValue actual value, 0 or 1
+     * @param predictedValue value predicted by the classifier
+     */
+    public void add(int observedValue, double predictedValue) {
+        int interval = getInterval(predictedValue);
+        numberOfDataPerInterval[interval]++;
+        predictedSumPerInterval[interval] += predictedValue;
+        if (observedValue == 1) {
+            positiveObservedSumPerInterval[interval]++;
+        }
+        numberOfPredictions++;
+    }
+
+    /**
+     * Add a prediction a number of times, as a resample drawing the same
+     * case more than once would.
+     *
+     * @param observedValue actual value, 0 or 1
+     * @param predictedValue value predicted by the classifier
+     * @param count number of times to add the prediction
+     */
+    public void add(int observedValue, double predictedValue, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count must not be negative.");
+        }
+
+        int interval = getInterval(predictedValue);
+        numberOfDataPerInterval[interval] += count;
+        predictedSumPerInterval[interval] += count * predictedValue;
+        positiveObservedSumPerInterval[interval] += (observedValue == 1) ? count : 0;
+        numberOfPredictions += count;
+    }
+
+    /**
+     * Add the predictions, in case order.
+     *
+     * @param predictionColumns observed and predicted values
+     */
+    public void add(PredictionColumns predictionColumns) {
+        int size = predictionColumns.getNumberOfPredictions();
+        for (int i = 0; i < size; i++) {
+            add(predictionColumns.getObservedValue(i), predictionColumns.getPredictedValue(i));
+        }
+    }
+
+    /**
+     * Add the predictions of another accumulator.
+     *
+     * @param accumulator accumulator to merge into this one
+     */
+    public void merge(HosmerLemeshowRiskGroupAccumulator accumulator) {
+        for (int i = 0; i < HosmerLemeshow.NUM_OF_INTERVAL; i++) {
+            numberOfDataPerInterval[i] += accumulator.numberOfDataPerInterval[i];
+            positiveObservedSumPerInterval[i] += accumulator.positiveObservedSumPerInterval[i];
+            predictedSumPerInterval[i] += accumulator.predictedSumPerInterval[i];
+        }
+        numberOfPredictions += accumulator.numberOfPredictions;
+    }
+
+    /**
+     * Compute the test of the predictions added so far. The predictions are
+     * not kept, so the test has no observed and predicted values.
+     *
+     * @return Hosmer-Lemeshow test binning by risk-factor
+     */
+    public HosmerLemeshow getHosmerLemeshow() {
+        if (numberOfPredictions == 0) {
+            throw new IllegalStateException("No predictions have been added.");
+        }
+
+        return new AccumulatedRiskGroup(this);
+    }
+
+    public int getNumberOfPredictions() {
+        return numberOfPredictions;
+    }
+
+    private static int getInterval(double predictedValue) {
+        for (int i = 0; i < THRESHOLDS.length; i++) {
+            if (predictedValue < THRESHOLDS[i]) {
+                return i;
+            }
+        }
+
+        return THRESHOLDS.length;
+    }
+
+    /**
+     * Compute the thresholds the way HosmerLemeshowRiskGroup increments them,
+     * so the bounds are the same to the last bit.
+     */
+    private static double[] computeThresholds() {
+        double[] thresholds = new double[HosmerLemeshow.NUM_OF_INTERVAL - 1];
+
+        double increment = 1.0 / HosmerLemeshow.NUM_OF_INTERVAL;
+        double threshold = increment;
+        for (int i = 0; i < thresholds.length; i++) {
+            thresholds[i] = threshold;
+            threshold += increment;
+        }
+
+        return thresholds;
+    }
+
+    /**
+     * Risk groups made from the intervals of an accumulator.
+     */
+    private static final class AccumulatedRiskGroup extends HosmerLemeshowRiskGroup {
+
+        private final int[] numberOfDataPerInterval;
+        private final int[] positiveObservedSumPerInterval;
+        private final double[] predictedSumPerInterval;
+
+        private AccumulatedRiskGroup(HosmerLemeshowRiskGroupAccumulator accumulator) {
+            this.numberOfDataPerInterval = Arrays.copyOf(accumulator.numberOfDataPerInterval, HosmerLemeshow.NUM_OF_INTERVAL);
+            this.positiveObservedSumPerInterval = Arrays.copyOf(accumulator.positiveObservedSumPerInterval, HosmerLemeshow.NUM_OF_INTERVAL);
+            this.predictedSumPerInterval = Arrays.copyOf(accumulator.predictedSumPerInterval, HosmerLemeshow.NUM_OF_INTERVAL);
+
+            numberOfPredictions = accumulator.numberOfPredictions;
+            observedValues = new int[0];
+            predictedValues = new double[0];
+
+            computeGroups();
+        }
+
+        @Override
+        protected int computeTotalNumberOfGroups() {
+            return (int) Arrays.stream(numberOfDataPerInterval)
+                    .filter(numOfData -> numOfData > 0)
+                    .count();
+        }
+
+        @Override
+        protected void computePlotPoints() {
+            int groupIndex = 0;
+            for (int i = 0; i < HosmerLemeshow.NUM_OF_INTERVAL; i++) {
+                if (numberOfDataPerInterval[i] > 0) {
+                    setGroup(groupIndex, i + 1, numberOfDataPerInterval[i], positiveObservedSumPerInterval[i], predictedSumPerInterval[i]);
+
+                    groupIndex++;
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.lib.math.classification.data;
+
+import java.util.List;
+
+/**
+ * Observed and predicted values held in two parallel arrays, case by case,
+ * instead of a list of {@link ObservedPredictedValue}.
+ *
+ * The order of the cases sorted by predicted value is computed once, when it
+ * is first needed, and shared by everything built from the columns. The sort
+ * is stable and compares the predicted values the way
+ * {@link ObservedPredictedValue#compareTo(ObservedPredictedValue)} does, so
+ * the cases come out in the same order as sorting the list of values would
+ * give, in ascending or descending order.
+ *
+ * @author agent (agent@local)
+ */
+public final class PredictionColumns {
+
+    private final double[] predictedValues;
+
+    private final byte[] observedValues;
+
+    private final int numberOfPositives;
+
+    private final int numberOfNegatives;
+
+    private int[] ascendingOrder;
+
+    private int[] descendingOrder;
+
+    /**
+     * The arrays are used as they are, not copied.
+     *
+     * @param predictedValues value predicted by the classifier for each case
+     * @param observedValues actual value, 0 or 1, of each case
+     */
+    public PredictionColumns(double[] predictedValues, byte[] observedValues) {
+        if (predictedValues == null || observedValues == null || predictedValues.length == 0) {
+            throw new IllegalArgumentException(
+                    "Data containing both observed value and predicted value is required.");
+        }
+        if (predictedValues.length != observedValues.length) {
+            throw new IllegalArgumentException("There must be an observed value for each predicted value.");
+        }
+
+        this.predictedValues = predictedValues;
+        this.observedValues = observedValues;
+
+        int positives = 0;
+        int negatives = 0;
+        for (byte observedValue : observedValues) {
+            if (observedValue == 1) {
+                positives++;
+            } else if (observedValue == 0) {
+                negatives++;
+            }
+        }
+        this.numberOfPositives = positives;
+        this.numberOfNegatives = negatives;
+    }
+
+    /**
+     * Copy a list of observed and predicted values into columns, in list
+     * order.
+     *
+     * @param observedPredictedValues observed and predicted values
+     * @return columns of the values
+     */
+    public static PredictionColumns of(List<ObservedPredictedValue> observedPredictedValues) {
+        if (observedPredictedValues == null || observedPredictedValues.isEmpty()) {
+            throw new IllegalArgumentException(
+                    "A list of data containing both observed value and predicted value is required.");
+        }
+
+        int size = observedPredictedValues.size();
+        double[] predictedValues = new double[size];
+        byte[] observedValues = new byte[size];
+        int index = 0;
+        for (ObservedPredictedValue observedPredictedValue : observedPredictedValues) {
+            predictedValues[index] = observedPredictedValue.getPredictedValue();
+            observedValues[index] = (byte) observedPredictedValue.getObservedValue();
+            index++;
+        }
+
+        return new PredictionColumns(predictedValues, observedValues);
+    }
+
+    /**
+     * Get the cases in ascending order of predicted value, cases having the
+     * same predicted value in case order.
+     *
+     * @return indices of the cases
+     */
+    public synchronized int[] getAscendingOrder() {
+        if (ascendingOrder == null) {
+            ascendingOrder = sortAscending(predictedValues);
+        }
+
+        return ascendingOrder;
+    }
+
+    /**
+     * Get the cases in descending order of predicted value, cases having the
+     * same predicted value in case order. The order is derived from the
+     * ascending order by reversing its runs of equal values.
+     *
+     * @return indices of the cases
+     */
+    public synchronized int[] getDescendingOrder() {
+        if (descendingOrder == null) {
+            int[] ascending = getAscendingOrder();
+            int size = ascending.length;
+
+            descendingOrder = new int[size];
+            int index = 0;
+            int end = size;
+            while (end > 0) {
+                int start = end - 1;
+                while (start > 0 && !(predictedValues[ascending[start - 1]] < predictedValues[ascending[start]])) {
+                    start--;
+                }
+                for (int i = start; i < end; i++) {
+                    descendingOrder[index++] = ascending[i];
+                }
+                end = start;
+            }
+        }
+
+        return descendingOrder;
+    }
+
+    /**
+     * Stable merge sort of the indices of the values.
+     */
+    private static int[] sortAscending(double[] values) {
+        int size = values.length;
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+
+        int[] buffer = new int[size];
+        for (int width = 1; width < size; width *= 2) {
+            for (int low = 0; low < size - width; low += 2 * width) {
+                int mid = low + width;
+                int high = Math.min(low + 2 * width, size);
+
+                int left = low;
+                int right = mid;
+                int index = low;
+                while (left < mid && right < high) {
+                    buffer[index++] = (values[order[right]] < values[order[left]]) ? order[right++] : order[left++];
+                }
+                while (left < mid) {
+                    buffer[index++] = order[left++];
+                }
+                while (right < high) {
+                    buffer[index++] = order[right++];
+                }
+                System.arraycopy(buffer, low, order, low, high - low);
+            }
+        }
+
+        return order;
+    }
+
+    public int getNumberOfPredictions() {
+        return predictedValues.length;
+    }
+
+    public int getNumberOfPositives() {
+        return numberOfPositives;
+    }
+
+    public int getNumberOfNegatives() {
+        return numberOfNegatives;
+    }
+
+    public double getPredictedValue(int index) {
+        return predictedValues[index];
+    }
+
+    public int getObservedValue(int index) {
+        return observedValues[index];
+    }
+
+    public double[] getPredictedValues() {
+        return predictedValues;
+    }
+
+    public byte[] getObservedValues() {
+        return observedValues;
+    }
+
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.lib.math.classification.data;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * KLL quantile sketch (Karnin, Lang and Liberty, 2016) of a stream of values.
+ * The sketch keeps a few hundred values in levels of compactors: a value at
+ * level h stands for 2^h values of the stream. When the sketch is full, the
+ * lowest full level is sorted and every other value, starting at a random
+ * offset, is promoted to the next level; the capacities shrink by a factor
+ * of 2/3 per level below the top one.
+ *
+ * The rank of a value estimated by the sketch is off by at most about
+ * {@link #getNormalizedRankError()} times the number of values, with 99%
+ * confidence, using the empirical bound of the KLL sketch of Apache
+ * DataSketches. Sketches with the same k merge into a sketch of the union of
+ * their streams with the same bound. NaN values are ignored. The smallest and
+ * largest values are kept exactly.
+ *
+ * The random offsets come from a generator with a fixed seed, so a sketch
+ * filled in the same order gives the same estimates. A sketch is not
+ * thread-safe.
+ *
+ * @author agent (agent@local)
+ */
+public final class QuantileSketch {
+
+    /**
+     * Default size, for a rank error of about 1.3%.
+     */
+    public static final int DEFAULT_K = 200;
+
+    /**
+     * Smallest capacity of a level.
+     */
+    private static final int MIN_CAPACITY = 8;
+
+    private static final double CAPACITY_DECAY = 2.0 / 3.0;
+
+    /**
+     * Constants of the empirical single-sided rank error, 2.296 / k^0.9723.
+     */
+    private static final double RANK_ERROR_FACTOR = 2.296;
+    private static final double RANK_ERROR_EXPONENT = 0.9723;
+
+    private static final long SEED = 0x5DEECE66DL;
+
+    private final int k;
+
+    private final Random random = new Random(SEED);
+
+    private double[][] levels;
+
+    private int[] levelSizes;
+
+    private int[] capacities;
+
+    private int totalCapacity;
+
+    private int numOfRetained;
+
+    private long n;
+
+    private double minValue = Double.POSITIVE_INFINITY;
+
+    private double maxValue = Double.NEGATIVE_INFINITY;
+
+    public QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * Create a sketch.
+     *
+     * @param k size of the sketch, the larger the more accurate
+     */
+    public QuantileSketch(int k) {
+        if (k < MIN_CAPACITY) {
+            throw new IllegalArgumentException(
+                    String.format("Size of the sketch must be at least %d.", MIN_CAPACITY));
+        }
+
+        this.k = k;
+        this.levels = new double[][]{new double[k]};
+        this.levelSizes = new int[1];
+        computeCapacities();
+    }
+
+    /**
+     * Create the smallest sketch whose rank error is at most the given
+     * fraction of the number of values.
+     *
+     * @param normalizedRankError rank error, between 0 and 1, exclusive
+     * @return sketch with the rank error
+     */
+    public static QuantileSketch withRankError(double normalizedRankError) {
+        if (!(normalizedRankError > 0 && normalizedRankError < 1)) {
+            throw new IllegalArgumentException("Rank error must be between 0 and 1, exclusive.");
+        }
+
+        int k = (int) Math.ceil(Math.pow(RANK_ERROR_FACTOR / normalizedRankError, 1 / RANK_ERROR_EXPONENT));
+
+        return new QuantileSketch(Math.max(k, MIN_CAPACITY));
+    }
+
+    /**
+     * Add a value of the stream.
+     *
+     * @param value value to add, ignored if NaN
+     */
+    public void update(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+
+        n++;
+        minValue = Math.min(minValue, value);
+        maxValue = Math.max(maxValue, value);
+
+        append(0, value);
+        compress();
+    }
+
+    /**
+     * Add the values of another sketch. A sketch merged with itself holds
+     * its values twice.
+     *
+     * @param sketch sketch of the same size
+     */
+    public void merge(QuantileSketch sketch) {
+        if (sketch.k != k) {
+            throw new IllegalArgumentException("Sketches of different sizes cannot be merged.");
+        }
+
+        // take the levels as they are before appending, in case the sketch
+        // is this one
+        double[][] sketchLevels = sketch.levels.clone();
+        int[] sketchLevelSizes = sketch.levelSizes.clone();
+        for (int level = 0; level < sketchLevels.length; level++) {
+            for (int i = 0; i < sketchLevelSizes[level]; i++) {
+                append(level, sketchLevels[level][i]);
+            }
+        }
+        n += sketch.n;
+        minValue = Math.min(minValue, sketch.minValue);
+        maxValue = Math.max(maxValue, sketch.maxValue);
+
+        compress();
+    }
+
+    /**
+     * Estimate the value of the given rank, the value at that index of the
+     * sorted stream.
+     *
+     * @param rank rank, from 0 to the number of values - 1
+     * @return estimated value of the rank
+     */
+    public double getValueAtRank(long rank) {
+        if (n == 0) {
+            throw new IllegalStateException("The sketch is empty.");
+        }
+        if (rank <= 0) {
+            return minValue;
+        }
+        if (rank >= n - 1) {
+            return maxValue;
+        }
+
+        // walk the retained values in ascending order, merging the sorted levels
+        for (int level = 0; level < levels.length; level++) {
+            Arrays.sort(levels[level], 0, levelSizes[level]);
+        }
+        int[] positions = new int[levels.length];
+        long weight = 0;
+        for (int i = 0; i < numOfRetained; i++) {
+            int minLevel = -1;
+            for (int level = 0; level < levels.length; level++) {
+                if (positions[level] < levelSizes[level]
+                        && (minLevel < 0 || levels[level][positions[level]] < levels[minLevel][positions[minLevel]])) {
+                    minLevel = level;
+                }
+            }
+
+            double value = levels[minLevel][positions[minLevel]++];
+            weight += 1L << minLevel;
+            if (weight > rank) {
+                return value;
+            }
+        }
+
+        return maxValue;
+    }
+
+    /**
+     * Estimate the quantile.
+     *
+     * @param fraction fraction of the values at or below the quantile, from 0
+     * to 1
+     * @return estimated quantile
+     */
+    public double getQuantile(double fraction) {
+        return getValueAtRank((long) (fraction * n));
+    }
+
+    /**
+     * Get the rank error of the sketch, as a fraction of the number of
+     * values.
+     *
+     * @return normalized rank error with 99% confidence
+     */
+    public double getNormalizedRankError() {
+        return RANK_ERROR_FACTOR / Math.pow(k, RANK_ERROR_EXPONENT);
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public long getN() {
+        return n;
+    }
+
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    public double getMinValue() {
+        return minValue;
+    }
+
+    public double getMaxValue() {
+        return maxValue;
+    }
+
+    private void append(int level, double value) {
+        // a merged sketch may have more levels than this one
+        if (level >= levels.length) {
+            int numOfLevels = levels.length;
+            levels = Arrays.copyOf(levels, level + 1);
+            for (int i = numOfLevels; i <= level; i++) {
+                levels[i] = new double[MIN_CAPACITY];
+            }
+            levelSizes = Arrays.copyOf(levelSizes, level + 1);
+            computeCapacities();
+        }
+
+        double[] values = levels[level];
+        if (levelSizes[level] == values.length) {
+            levels[level] = values = Arrays.copyOf(values, 2 * values.length);
+        }
+        values[levelSizes[level]++] = value;
+        numOfRetained++;
+    }
+
+    /**
+     * Compact the lowest full level until the sketch is within its capacity.
+     */
+    private void compress() {
+        while (numOfRetained > totalCapacity) {
+            int level = 0;
+            while (levelSizes[level] < capacities[level]) {
+                level++;
+            }
+            compact(level);
+        }
+    }
+
+    private void compact(int level) {
+        double[] values = levels[level];
+        int size = levelSizes[level];
+        Arrays.sort(values, 0, size);
+
+        // an odd value out stays at this level
+        int numOfPaired = size - (size % 2);
+        int offset = random.nextBoolean() ? 1 : 0;
+        for (int i = offset; i < numOfPaired; i += 2) {
+            append(level + 1, values[i]);
+        }
+
+        if (numOfPaired < size) {
+            values[0] = values[size - 1];
+            levelSizes[level] = 1;
+        } else {
+            levelSizes[level] = 0;
+        }
+        numOfRetained -= numOfPaired;
+    }
+
+    /**
+     * Compute the capacities of the levels, which depend on the number of
+     * levels.
+     */
+    private void computeCapacities() {
+        int numOfLevels = levels.length;
+
+        capacities = new int[numOfLevels];
+        totalCapacity = 0;
+        for (int level = 0; level < numOfLevels; level++) {
+            int depth = numOfLevels - 1 - level;
+            capacities[level] = Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+            totalCapacity += capacities[level];
+        }
+    }
+
+}
@@ -19,7 +19,7 @@
 package edu.pitt.dbmi.lib.math.classification.roc;
 
 /**
- * Confusion Matrix
+ * Confusion Matrix, a view of one row of a {@link ConfusionMatrixTable}.
  *
  * Mar 27, 2012 8:19:09 AM
  *
@@ -27,33 +27,12 @@ package edu.pitt.dbmi.lib.math.classification.roc;
  */
 public class ConfusionMatrix {
 
-    /**
-     * Correctly predicted something to be true (has disease).
-     */
-    private final int truePositives;
-
-    /**
-     * Correctly predicted something to be false (has no disease).
-     */
-    private final int trueNegatives;
-
-    /**
-     * Incorrectly predicted something to be true (has disease) when it is not
-     * (has no disease).
-     */
-    private final int falsePositives;
-
-    /**
-     * Incorrectly predicted something to be false (has no disease) when it is
-     * true (has disease).<br />
-     * Also known as miss, Type II error
-     */
-    private final int falseNegatives;
+    private final ConfusionMatrixTable table;
 
     /**
-     * The threshold at which FP, FN,TP, and TN were calculated.
+     * Row of the table this matrix is.
      */
-    private final double threshold;
+    private final int row;
 
     /**
      *
@@ -65,11 +44,15 @@ public class ConfusionMatrix {
      * were calculated.
      */
     public ConfusionMatrix(int truePositives, int trueNegatives, int falsePositives, int falseNegatives, double threshold) {
-        this.truePositives = truePositives;
-        this.trueNegatives = trueNegatives;
-        this.falsePositives = falsePositives;
-        this.falseNegatives = falseNegatives;
-        this.threshold = threshold;
+        this(new ConfusionMatrixTable(
+                new int[]{truePositives}, new int[]{trueNegatives},
+                new int[]{falsePositives}, new int[]{falseNegatives},
+                new double[]{threshold}), 0);
+    }
+
+    ConfusionMatrix(ConfusionMatrixTable table, int row) {
+        this.table = table;
+        this.row = row;
     }
 
     /**
@@ -78,11 +61,7 @@ public class ConfusionMatrix {
      * @return accuracy
      */
     public double getAccuracy() {
-        int numOfPositives = truePositives + falseNegatives;
-        int numOfNegatives = trueNegatives + falsePositives;
-        int total = numOfPositives + numOfNegatives;
-
-        return (total == 0) ? 0 : ((double) (truePositives + trueNegatives)) / total;
+        return table.getAccuracy(row);
     }
 
     /**
@@ -91,11 +70,7 @@ public class ConfusionMatrix {
      * @return F1 score
      */
     public double getF1score() {
-        int numOfPositives = truePositives + falseNegatives;
-        int numOfPositivesPredicted = truePositives + falsePositives;
-        int denominator = numOfPositives + numOfPositivesPredicted;
-
-        return (denominator == 0) ? 0 : ((double) (2 * truePositives)) / denominator;
+        return table.getF1score(row);
     }
 
     /**
@@ -105,9 +80,7 @@ public class ConfusionMatrix {
      * @return false discovery rate
      */
     public double getFalseDiscoveryRate() {
-        int numOfPositivesPredicted = truePositives + falsePositives;
-
-        return (numOfPositivesPredicted == 0) ? 0 : ((double) falsePositives) / numOfPositivesPredicted;
+        return table.getFalseDiscoveryRate(row);
     }
 
     /**
@@ -118,9 +91,7 @@ public class ConfusionMatrix {
      * @return true positive rate
      */
     public double getTruePositiveRate() {
-        int numOfPositives = truePositives + falseNegatives;
-
-        return (numOfPositives == 0) ? 0 : ((double) truePositives) / numOfPositives;
+        return table.getTruePositiveRate(row);
     }
 
     /**
@@ -130,9 +101,7 @@ public class ConfusionMatrix {
      * @return true negative rate
      */
     public double getTrueNegativeRate() {
-        int numOfNegatives = trueNegatives + falsePositives;
-
-        return (numOfNegatives == 0) ? 0 : ((double) trueNegatives) / numOfNegatives;
+        return table.getTrueNegativeRate(row);
     }
 
     /**
@@ -142,9 +111,7 @@ public class ConfusionMatrix {
      * @return false positive rate
      */
     public double getFalsePositiveRate() {
-        int numOfNegatives = trueNegatives + falsePositives;
-
-        return (numOfNegatives == 0) ? 0 : ((double) falsePositives) / numOfNegatives;
+        return table.getFalsePositiveRate(row);
     }
 
     /**
@@ -154,9 +121,7 @@ public class ConfusionMatrix {
      * @return negative predictive value
      */
     public double getNegativePredictiveValue() {
-        int numOfNegativesPredicted = trueNegatives + falseNegatives;
-
-        return (numOfNegativesPredicted == 0) ? 0 : ((double) trueNegatives) / numOfNegativesPredicted;
+        return table.getNegativePredictiveValue(row);
     }
 
     /**
@@ -166,9 +131,7 @@ public class ConfusionMatrix {
      * @return positive predictive value
      */
     public double getPositivePredictiveValue() {
-        int numOfPositivesPredicted = truePositives + falsePositives;
-
-        return (numOfPositivesPredicted == 0) ? 0 : ((double) truePositives) / numOfPositivesPredicted;
+        return table.getPositivePredictiveValue(row);
     }
 
     /**
@@ -177,11 +140,7 @@ public class ConfusionMatrix {
      * @return
      */
     public double getMisclassificationRate() {
-        int numOfPositives = truePositives + falseNegatives;
-        int numOfNegatives = trueNegatives + falsePositives;
-        int total = numOfPositives + numOfNegatives;
-
-        return (total == 0) ? 0 : ((double) (falsePositives + falseNegatives)) / total;
+        return table.getMisclassificationRate(row);
     }
 
     /**
@@ -190,11 +149,7 @@ public class ConfusionMatrix {
      * @return
      */
     public double getPrevalence() {
-        int numOfPositives = truePositives + falseNegatives;
-        int numOfNegatives = trueNegatives + falsePositives;
-        int total = numOfPositives + numOfNegatives;
-
-        return (total == 0) ? 0 : ((double) numOfPositives) / total;
+        return table.getPrevalence(row);
     }
 
     /**
@@ -204,7 +159,7 @@ public class ConfusionMatrix {
      * @return number of true positives
      */
     public int getTruePositives() {
-        return truePositives;
+        return table.getTruePositives(row);
     }
 
     /**
@@ -214,7 +169,7 @@ public class ConfusionMatrix {
      * @return number of true negatives
      */
     public int getTrueNegatives() {
-        return trueNegatives;
+        return table.getTrueNegatives(row);
     }
 
     /**
@@ -225,7 +180,7 @@ public class ConfusionMatrix {
      * @return number of false positives
      */
     public int getFalsePositives() {
-        return falsePositives;
+        return table.getFalsePositives(row);
     }
 
     /**
@@ -237,7 +192,7 @@ public class ConfusionMatrix {
      * @return number of false negatives
      */
     public int getFalseNegatives() {
-        return falseNegatives;
+        return table.getFalseNegatives(row);
     }
 
     /**
@@ -246,7 +201,7 @@ public class ConfusionMatrix {
      * @return
      */
     public double getThreshold() {
-        return threshold;
+        return table.getThreshold(row);
     }
 
 }
@@ -0,0 +1,300 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.lib.math.classification.roc;
+
+/**
+ * Confusion matrices of a ROC curve, one row per threshold, kept as parallel
+ * columns of counts and thresholds. The rates are computed from the counts
+ * when asked for. A {@link ConfusionMatrix} is a view of one row.
+ *
+ * The columns are used as passed, not copied.
+ *
+ * @author agent (agent@local)
+ */
+public final class ConfusionMatrixTable {
+
+    private final int[] truePositives;
+
+    private final int[] trueNegatives;
+
+    private final int[] falsePositives;
+
+    private final int[] falseNegatives;
+
+    private final double[] thresholds;
+
+    /**
+     *
+     * @param truePositives true positives (TP) of each row
+     * @param trueNegatives true negatives (TN) of each row
+     * @param falsePositives false positives (FP) of each row
+     * @param falseNegatives false negatives (FN) of each row
+     * @param thresholds the threshold (at or above) at which FP, FN,TP, and TN
+     * of each row were calculated
+     */
+    public ConfusionMatrixTable(int[] truePositives, int[] trueNegatives, int[] falsePositives, int[] falseNegatives, double[] thresholds) {
+        if (truePositives == null || trueNegatives == null || falsePositives == null || falseNegatives == null || thresholds == null) {
+            throw new IllegalArgumentException("Counts and thresholds are required.");
+        }
+
+        int numOfRows = thresholds.length;
+        if (truePositives.length != numOfRows
+                || trueNegatives.length != numOfRows
+                || falsePositives.length != numOfRows
+                || falseNegatives.length != numOfRows) {
+            throw new IllegalArgumentException("Counts and thresholds must have the same number of rows.");
+        }
+
+        this.truePositives = truePositives;
+        this.trueNegatives = trueNegatives;
+        this.falsePositives = falsePositives;
+        this.falseNegatives = falseNegatives;
+        this.thresholds = thresholds;
+    }
+
+    /**
+     * Get the confusion matrix of a row.
+     *
+     * @param row row index
+     * @return view of the row
+     */
+    public ConfusionMatrix getConfusionMatrix(int row) {
+        if (row < 0 || row >= thresholds.length) {
+            throw new IndexOutOfBoundsException(
+                    String.format("Row %d is out of bounds for %d rows.", row, thresholds.length));
+        }
+
+        return new ConfusionMatrix(this, row);
+    }
+
+    /**
+     * Get the confusion matrix of each row.
+     *
+     * @return views of the rows
+     */
+    public ConfusionMatrix[] getConfusionMatrices() {
+        ConfusionMatrix[] confusionMatrices = new ConfusionMatrix[thresholds.length];
+        for (int row = 0; row < confusionMatrices.length; row++) {
+            confusionMatrices[row] = new ConfusionMatrix(this, row);
+        }
+
+        return confusionMatrices;
+    }
+
+    /**
+     * Get the true positive rate of each row.
+     *
+     * @return true positive rates
+     */
+    public double[] getTruePositiveRates() {
+        double[] truePositiveRates = new double[thresholds.length];
+        for (int row = 0; row < truePositiveRates.length; row++) {
+            truePositiveRates[row] = getTruePositiveRate(row);
+        }
+
+        return truePositiveRates;
+    }
+
+    /**
+     * Get the false positive rate of each row.
+     *
+     * @return false positive rates
+     */
+    public double[] getFalsePositiveRates() {
+        double[] falsePositiveRates = new double[thresholds.length];
+        for (int row = 0; row < falsePositiveRates.length; row++) {
+            falsePositiveRates[row] = getFalsePositiveRate(row);
+        }
+
+        return falsePositiveRates;
+    }
+
+    /**
+     * Overall, how often is the classifier correct?
+     *
+     * @param row row index
+     * @return accuracy
+     */
+    public double getAccuracy(int row) {
+        int numOfPositives = truePositives[row] + falseNegatives[row];
+        int numOfNegatives = trueNegatives[row] + falsePositives[row];
+        int total = numOfPositives + numOfNegatives;
+
+        return (total == 0) ? 0 : ((double) (truePositives[row] + trueNegatives[row])) / total;
+    }
+
+    /**
+     * A weighted average of the true positive rate (recall) and precision.
+     *
+     * @param row row index
+     * @return F1 score
+     */
+    public double getF1score(int row) {
+        int numOfPositives = truePositives[row] + falseNegatives[row];
+        int numOfPositivesPredicted = truePositives[row] + falsePositives[row];
+        int denominator = numOfPositives + numOfPositivesPredicted;
+
+        return (denominator == 0) ? 0 : ((double) (2 * truePositives[row])) / denominator;
+    }
+
+    /**
+     * FDR = FP / (FP + TP).
+     *
+     * @param row row index
+     * @return false discovery rate
+     */
+    public double getFalseDiscoveryRate(int row) {
+        int numOfPositivesPredicted = truePositives[row] + falsePositives[row];
+
+        return (numOfPositivesPredicted == 0) ? 0 : ((double) falsePositives[row]) / numOfPositivesPredicted;
+    }
+
+    /**
+     * TPR = TP / (TP + FN).
+     *
+     * @param row row index
+     * @return true positive rate
+     */
+    public double getTruePositiveRate(int row) {
+        int numOfPositives = truePositives[row] + falseNegatives[row];
+
+        return (numOfPositives == 0) ? 0 : ((double) truePositives[row]) / numOfPositives;
+    }
+
+    /**
+     * TNR = TN / (TN + FP).
+     *
+     * @param row row index
+     * @return true negative rate
+     */
+    public double getTrueNegativeRate(int row) {
+        int numOfNegatives = trueNegatives[row] + falsePositives[row];
+
+        return (numOfNegatives == 0) ? 0 : ((double) trueNegatives[row]) / numOfNegatives;
+    }
+
+    /**
+     * FPR = FP / (TN + FP).
+     *
+     * @param row row index
+     * @return false positive rate
+     */
+    public double getFalsePositiveRate(int row) {
+        int numOfNegatives = trueNegatives[row] + falsePositives[row];
+
+        return (numOfNegatives == 0) ? 0 : ((double) falsePositives[row]) / numOfNegatives;
+    }
+
+    /**
+     * NPV = TN / (TN + FN).
+     *
+     * @param row row index
+     * @return negative predictive value
+     */
+    public double getNegativePredictiveValue(int row) {
+        int numOfNegativesPredicted = trueNegatives[row] + falseNegatives[row];
+
+        return (numOfNegativesPredicted == 0) ? 0 : ((double) trueNegatives[row]) / numOfNegativesPredicted;
+    }
+
+    /**
+     * PPV = TP / (TP + FP).
+     *
+     * @param row row index
+     * @return positive predictive value
+     */
+    public double getPositivePredictiveValue(int row) {
+        int numOfPositivesPredicted = truePositives[row] + falsePositives[row];
+
+        return (numOfPositivesPredicted == 0) ? 0 : ((double) truePositives[row]) / numOfPositivesPredicted;
+    }
+
+    /**
+     * Overall, how often is it wrong?
+     *
+     * @param row row index
+     * @return misclassification rate
+     */
+    public double getMisclassificationRate(int row) {
+        int numOfPositives = truePositives[row] + falseNegatives[row];
+        int numOfNegatives = trueNegatives[row] + falsePositives[row];
+        int total = numOfPositives + numOfNegatives;
+
+        return (total == 0) ? 0 : ((double) (falsePositives[row] + falseNegatives[row])) / total;
+    }
+
+    /**
+     * How often does the true condition actually occur?
+     *
+     * @param row row index
+     * @return prevalence
+     */
+    public double getPrevalence(int row) {
+        int numOfPositives = truePositives[row] + falseNegatives[row];
+        int numOfNegatives = trueNegatives[row] + falsePositives[row];
+        int total = numOfPositives + numOfNegatives;
+
+        return (total == 0) ? 0 : ((double) numOfPositives) / total;
+    }
+
+    public int getNumberOfRows() {
+        return thresholds.length;
+    }
+
+    public int getTruePositives(int row) {
+        return truePositives[row];
+    }
+
+    public int getTrueNegatives(int row) {
+        return trueNegatives[row];
+    }
+
+    public int getFalsePositives(int row) {
+        return falsePositives[row];
+    }
+
+    public int getFalseNegatives(int row) {
+        return falseNegatives[row];
+    }
+
+    public double getThreshold(int row) {
+        return thresholds[row];
+    }
+
+    public int[] getTruePositives() {
+        return truePositives;
+    }
+
+    public int[] getTrueNegatives() {
+        return trueNegatives;
+    }
+
+    public int[] getFalsePositives() {
+        return falsePositives;
+    }
+
+    public int[] getFalseNegatives() {
+        return falseNegatives;
+    }
+
+    public double[] getThresholds() {
+        return thresholds;
+    }
+
+}
@@ -19,9 +19,8 @@
 package edu.pitt.dbmi.lib.math.classification.roc;
 
 import edu.pitt.dbmi.lib.math.classification.data.ObservedPredictedValue;
+import edu.pitt.dbmi.lib.math.classification.data.PredictionColumns;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 
 /**
@@ -47,7 +46,7 @@ public class DeLongROCCurve implements ROC {
 
     private double[] negativePredictedValues;
 
-    private ConfusionMatrix[] confusionMatrices;
+    private ConfusionMatrixTable confusionMatrixTable;
 
     private int numberOfPositives;
 
@@ -56,39 +55,40 @@ public class DeLongROCCurve implements ROC {
     private double areaUnderRocCurve;
 
     public DeLongROCCurve(List<ObservedPredictedValue> observedPredictedValues) {
-        if (observedPredictedValues == null || observedPredictedValues.isEmpty()) {
+        this(PredictionColumns.of(observedPredictedValues));
+    }
+
+    public DeLongROCCurve(PredictionColumns predictionColumns) {
+        if (predictionColumns == null) {
             throw new IllegalArgumentException(
-                    "A list of data containing both observed value and predicted value is required.");
+                    "Data containing both observed value and predicted value is required.");
         }
 
-        // copy data to an array
-        ObservedPredictedValue[] data = observedPredictedValues.toArray(ObservedPredictedValue[]::new);
-
-        // sort in descending order
-        Arrays.sort(data, Collections.reverseOrder());
+        // cases in descending order of predicted value
+        int[] order = predictionColumns.getDescendingOrder();
 
-        numberOfPositives = (int) Arrays.stream(data)
-                .filter(obsPredVal -> obsPredVal.getObservedValue() == 1)
-                .count();
-        numberOfNegatives = (int) Arrays.stream(data)
-                .filter(obsPredVal -> obsPredVal.getObservedValue() == 0)
-                .count();
+        numberOfPositives = predictionColumns.getNumberOfPositives();
+        numberOfNegatives = predictionColumns.getNumberOfNegatives();
 
         // seperate the values for the positive and negative outcomes
-        positivePredictedValues = Arrays.stream(data)
-                .filter(obsPredVal -> obsPredVal.getObservedValue() == 1)
-                .mapToDouble(obsPredVal -> obsPredVal.getPredictedValue())
-                .toArray();
-        negativePredictedValues = Arrays.stream(data)
-                .filter(obsPredVal -> obsPredVal.getObservedValue() == 0)
-                .mapToDouble(obsPredVal -> obsPredVal.getPredictedValue())
-                .toArray();
-
-        truePositiveRates = new double[data.length];
-        falsePositiveRates = new double[data.length];
-
-        confusionMatrices = computeConfusionMatrices(
-                data,
+        positivePredictedValues = new double[numberOfPositives];
+        negativePredictedValues = new double[numberOfNegatives];
+        int numOfPositives = 0;
+        int numOfNegatives = 0;
+        for (int index : order) {
+            int observedValue = predictionColumns.getObservedValue(index);
+            if (observedValue == 1) {
+                positivePredictedValues[numOfPositives++] = predictionColumns.getPredictedValue(index);
+            } else if (observedValue == 0) {
+                negativePredictedValues[numOfNegatives++] = predictionColumns.getPredictedValue(index);
+            }
+        }
+
+        truePositiveRates = new double[order.length];
+        falsePositiveRates = new double[order.length];
+
+        confusionMatrixTable = computeConfusionMatrixTable(
+                predictionColumns, order,
                 numberOfPositives, numberOfNegatives,
                 truePositiveRates, falsePositiveRates,
                 positivePredictedValues, negativePredictedValues);
@@ -96,32 +96,45 @@ public class DeLongROCCurve implements ROC {
         areaUnderRocCurve = computeAreaUnderRocCurve(truePositiveRates, falsePositiveRates);
     }
 
-    private ConfusionMatrix[] computeConfusionMatrices(
-            ObservedPredictedValue[] data,
+    /**
+     * Compute the confusion matrix at each predicted value. The sensitivity
+     * and specificity at a cutoff are counted by binary search over sorted
+     * copies of the positive and negative predicted values, so the curve is
+     * built in O(n log n).
+     */
+    private ConfusionMatrixTable computeConfusionMatrixTable(
+            PredictionColumns predictionColumns, int[] order,
             int numberOfPositives, int numberOfNegatives,
             double[] truePositiveRates, double[] falsePositiveRates,
             double[] positivePredictedValues, double[] negativePredictedValues) {
-        List<ConfusionMatrix> confusionMatrixList = new LinkedList<>();
+        int[] truePositives = new int[order.length];
+        int[] trueNegatives = new int[order.length];
+        int[] falsePositives = new int[order.length];
+        int[] falseNegatives = new int[order.length];
+        double[] thresholds = new double[order.length];
+
+        double[] sortedPositives = sortAscending(positivePredictedValues);
+        double[] sortedNegatives = sortAscending(negativePredictedValues);
+        int numberOfComparablePositives = countNotNaN(sortedPositives);
 
         int index = 0;
-        for (ObservedPredictedValue observedPredictedValue : data) {
-            double z = observedPredictedValue.getPredictedValue();
-            double sensitivity = sens(z, positivePredictedValues);
-            double specificity = spec(z, negativePredictedValues);
+        for (int caseIndex : order) {
+            double z = predictionColumns.getPredictedValue(caseIndex);
+            double sensitivity = sens(z, sortedPositives, numberOfComparablePositives);
+            double specificity = spec(z, sortedNegatives);
 
-            int truePositive = (int) (sensitivity * numberOfPositives);
-            int falseNegative = numberOfPositives - truePositive;
-            int trueNegative = (int) (specificity * numberOfNegatives);
-            int falsePositive = numberOfNegatives - trueNegative;
-            confusionMatrixList.add(new ConfusionMatrix(truePositive, trueNegative, falsePositive, falseNegative, z));
+            truePositives[index] = (int) (sensitivity * numberOfPositives);
+            falseNegatives[index] = numberOfPositives - truePositives[index];
+            trueNegatives[index] = (int) (specificity * numberOfNegatives);
+            falsePositives[index] = numberOfNegatives - trueNegatives[index];
+            thresholds[index] = z;
 
             truePositiveRates[index] = sensitivity;
             falsePositiveRates[index] = 1 - specificity;
             index++;
         }
 
-        return confusionMatrixList.stream()
-                .toArray(ConfusionMatrix[]::new);
+        return new ConfusionMatrixTable(truePositives, trueNegatives, falsePositives, falseNegatives, thresholds);
     }
 
     private double computeAreaUnderRocCurve(double[] truePositiveRates, double[] falsePositiveRates) {
@@ -145,28 +158,74 @@ public class DeLongROCCurve implements ROC {
         return areaUnderCurve;
     }
 
-    private final double spec(double z, double[] negativePredictedValues) {
-        int sum = 0;
-        int n = negativePredictedValues.length;
-        for (int i = 0; i < n; i++) {
-            if (negativePredictedValues[i] < z) {
-                sum++;
-            }
-        }
+    /**
+     * Fraction of the negative predicted values below the cutoff.
+     *
+     * @param z cutoff
+     * @param sortedNegatives negative predicted values in ascending order
+     * @return specificity
+     */
+    private double spec(double z, double[] sortedNegatives) {
+        int sum = countBelow(z, sortedNegatives);
+        int n = sortedNegatives.length;
 
         return ((double) sum) / n;
     }
 
-    private final double sens(double z, double[] positivePredictedValues) {
-        int sum = 0;
-        int m = positivePredictedValues.length;
-        for (int i = 0; i < m; i++) {
-            if (positivePredictedValues[i] >= z) {
-                sum++;
+    /**
+     * Fraction of the positive predicted values at or above the cutoff.
+     *
+     * @param z cutoff
+     * @param sortedPositives positive predicted values in ascending order
+     * @param numberOfComparablePositives number of positive predicted values
+     * that are not NaN
+     * @return sensitivity
+     */
+    private double sens(double z, double[] sortedPositives, int numberOfComparablePositives) {
+        int m = sortedPositives.length;
+        int sum = Double.isNaN(z)
+                ? 0
+                : numberOfComparablePositives - countBelow(z, sortedPositives);
+
+        return ((double) sum) / m;
+    }
+
+    /**
+     * Count the values less than z.
+     *
+     * @param z cutoff
+     * @param sortedValues values in ascending order, NaN last
+     * @return number of values less than z
+     */
+    private static int countBelow(double z, double[] sortedValues) {
+        int low = 0;
+        int high = sortedValues.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedValues[mid] < z) {
+                low = mid + 1;
+            } else {
+                high = mid;
             }
         }
 
-        return ((double) sum) / m;
+        return low;
+    }
+
+    private static int countNotNaN(double[] sortedValues) {
+        int count = sortedValues.length;
+        while (count > 0 && Double.isNaN(sortedValues[count - 1])) {
+            count--;
+        }
+
+        return count;
+    }
+
+    private static double[] sortAscending(double[] values) {
+        double[] sortedValues = values.clone();
+        Arrays.sort(sortedValues);
+
+        return sortedValues;
     }
 
     @Override
@@ -189,7 +248,12 @@ public class DeLongROCCurve implements ROC {
 
     @Override
     public ConfusionMatrix[] getConfusionMatrices() {
-        return confusionMatrices;
+        return confusionMatrixTable.getConfusionMatrices();
+    }
+
+    @Override
+    public ConfusionMatrixTable getConfusionMatrixTable() {
+        return confusionMatrixTable;
     }
 
     @Override
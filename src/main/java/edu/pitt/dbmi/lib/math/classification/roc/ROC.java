@@ -65,6 +65,14 @@ public interface ROC {
      */
     public ConfusionMatrix[] getConfusionMatrices();
 
+    /**
+     * Get the confusion matrices calculated for each threshold, as a table
+     * with a row per threshold.
+     *
+     * @return confusion matrix table
+     */
+    public ConfusionMatrixTable getConfusionMatrixTable();
+
     /**
      * Get number of positive cases.
      *
@@ -19,9 +19,8 @@
 package edu.pitt.dbmi.lib.math.classification.roc;
 
 import edu.pitt.dbmi.lib.math.classification.data.ObservedPredictedValue;
+import edu.pitt.dbmi.lib.math.classification.data.PredictionColumns;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 
 /**
@@ -47,7 +46,7 @@ public class ROCCurve implements ROC {
 
     private double[] negativePredictedValues;
 
-    private ConfusionMatrix[] confusionMatrices;
+    private ConfusionMatrixTable confusionMatrixTable;
 
     private int numberOfPositives;
 
@@ -56,54 +55,51 @@ public class ROCCurve implements ROC {
     private double areaUnderRocCurve;
 
     public ROCCurve(List<ObservedPredictedValue> observedPredictedValues) {
-        if (observedPredictedValues == null || observedPredictedValues.isEmpty()) {
+        this(PredictionColumns.of(observedPredictedValues));
+    }
+
+    public ROCCurve(PredictionColumns predictionColumns) {
+        if (predictionColumns == null) {
             throw new IllegalArgumentException(
-                    "A list of data containing both observed value and predicted value is required.");
+                    "Data containing both observed value and predicted value is required.");
         }
 
-        // copy data to an array
-        ObservedPredictedValue[] data = observedPredictedValues.toArray(ObservedPredictedValue[]::new);
+        // cases in descending order of predicted value
+        int[] order = predictionColumns.getDescendingOrder();
 
-        // sort in descending order
-        Arrays.sort(data, Collections.reverseOrder());
-
-        this.numberOfPositives = (int) Arrays.stream(data)
-                .filter(obsPredVal -> obsPredVal.getObservedValue() == 1)
-                .count();
-        this.numberOfNegatives = (int) Arrays.stream(data)
-                .filter(obsPredVal -> obsPredVal.getObservedValue() == 0)
-                .count();
+        this.numberOfPositives = predictionColumns.getNumberOfPositives();
+        this.numberOfNegatives = predictionColumns.getNumberOfNegatives();
 
         // seperate the values for the positive and negative outcomes
-        positivePredictedValues = Arrays.stream(data)
-                .filter(obsPredVal -> obsPredVal.getObservedValue() == 1)
-                .mapToDouble(obsPredVal -> obsPredVal.getPredictedValue())
-                .toArray();
-        negativePredictedValues = Arrays.stream(data)
-                .filter(obsPredVal -> obsPredVal.getObservedValue() == 0)
-                .mapToDouble(obsPredVal -> obsPredVal.getPredictedValue())
-                .toArray();
-
-        this.confusionMatrices = computeConfusionMatrices(data, numberOfPositives, numberOfNegatives);
-
-        this.areaUnderRocCurve = computeAreaUnderRocCurve(confusionMatrices);
-
-        this.truePositiveRates = Arrays.stream(confusionMatrices)
-                .mapToDouble(confusionMaxtrice -> confusionMaxtrice.getTruePositiveRate())
-                .toArray();
-        this.falsePositiveRates = Arrays.stream(confusionMatrices)
-                .mapToDouble(confusionMaxtrice -> confusionMaxtrice.getFalsePositiveRate())
-                .toArray();
+        positivePredictedValues = new double[numberOfPositives];
+        negativePredictedValues = new double[numberOfNegatives];
+        int numOfPositives = 0;
+        int numOfNegatives = 0;
+        for (int index : order) {
+            int observedValue = predictionColumns.getObservedValue(index);
+            if (observedValue == 1) {
+                positivePredictedValues[numOfPositives++] = predictionColumns.getPredictedValue(index);
+            } else if (observedValue == 0) {
+                negativePredictedValues[numOfNegatives++] = predictionColumns.getPredictedValue(index);
+            }
+        }
+
+        this.confusionMatrixTable = computeConfusionMatrixTable(predictionColumns, order, numberOfPositives, numberOfNegatives);
+
+        this.truePositiveRates = confusionMatrixTable.getTruePositiveRates();
+        this.falsePositiveRates = confusionMatrixTable.getFalsePositiveRates();
+
+        this.areaUnderRocCurve = computeAreaUnderRocCurve(truePositiveRates, falsePositiveRates);
     }
 
-    private double computeAreaUnderRocCurve(ConfusionMatrix[] confusionMatrices) {
+    private double computeAreaUnderRocCurve(double[] truePositiveRates, double[] falsePositiveRates) {
         double areaUnderCurve = 0;
 
         double x1, x2, y1, y2;
         x1 = y1 = 0;
-        for (ConfusionMatrix confusionMatrix : confusionMatrices) {
-            x2 = confusionMatrix.getFalsePositiveRate();
-            y2 = confusionMatrix.getTruePositiveRate();
+        for (int i = 0; i < falsePositiveRates.length; i++) {
+            x2 = falsePositiveRates[i];
+            y2 = truePositiveRates[i];
 
             // compute the area using trapezoid method
             double base = Math.abs(x1 - x2);
@@ -117,22 +113,39 @@ public class ROCCurve implements ROC {
         return areaUnderCurve;
     }
 
-    private ConfusionMatrix[] computeConfusionMatrices(ObservedPredictedValue[] observedPredictedValues, int numberOfPositives, int numberOfNegatives) {
-        List<ConfusionMatrix> confusionMatrixList = new LinkedList<>();
+    /**
+     * Compute the confusion matrix at each distinct predicted value, in
+     * descending order, after the one at the initial threshold of -1.0
+     * predicting every case negative. There are at most as many rows as cases
+     * plus one.
+     */
+    private ConfusionMatrixTable computeConfusionMatrixTable(PredictionColumns predictionColumns, int[] order, int numberOfPositives, int numberOfNegatives) {
+        int capacity = order.length + 1;
+        int[] truePositives = new int[capacity];
+        int[] trueNegatives = new int[capacity];
+        int[] falsePositives = new int[capacity];
+        int[] falseNegatives = new int[capacity];
+        double[] thresholds = new double[capacity];
+        int numOfRows = 0;
 
         int falsePositive = 0;  // incorrectly labeled as belonging to the positive class (also known as false alarm, Type I error)
         int truePositive = 0;  // the number of items correctly labeled as belonging to the positive class
         int trueNegative = numberOfNegatives;
         int falseNegative = numberOfPositives;  // items which were not labeled as belonging to the positive class but should have been (also known as miss, Type II error)
         double threshold = -1.0;
-        for (ObservedPredictedValue observedPredictedValue : observedPredictedValues) {
-            if (observedPredictedValue.getPredictedValue() != threshold) {
-                confusionMatrixList.add(
-                        new ConfusionMatrix(truePositive, trueNegative, falsePositive, falseNegative, threshold));
-                threshold = observedPredictedValue.getPredictedValue();
+        for (int index : order) {
+            double predictedValue = predictionColumns.getPredictedValue(index);
+            if (predictedValue != threshold) {
+                truePositives[numOfRows] = truePositive;
+                trueNegatives[numOfRows] = trueNegative;
+                falsePositives[numOfRows] = falsePositive;
+                falseNegatives[numOfRows] = falseNegative;
+                thresholds[numOfRows] = threshold;
+                numOfRows++;
+                threshold = predictedValue;
             }
 
-            if (observedPredictedValue.getObservedValue() == 1) {
+            if (predictionColumns.getObservedValue(index) == 1) {
                 truePositive++;
                 falseNegative--;
             } else {
@@ -140,11 +153,19 @@ public class ROCCurve implements ROC {
                 trueNegative--;
             }
         }
-        confusionMatrixList.add(
-                new ConfusionMatrix(truePositive, trueNegative, falsePositive, falseNegative, threshold));
-
-        return confusionMatrixList.stream()
-                .toArray(ConfusionMatrix[]::new);
+        truePositives[numOfRows] = truePositive;
+        trueNegatives[numOfRows] = trueNegative;
+        falsePositives[numOfRows] = falsePositive;
+        falseNegatives[numOfRows] = falseNegative;
+        thresholds[numOfRows] = threshold;
+        numOfRows++;
+
+        return new ConfusionMatrixTable(
+                Arrays.copyOf(truePositives, numOfRows),
+                Arrays.copyOf(trueNegatives, numOfRows),
+                Arrays.copyOf(falsePositives, numOfRows),
+                Arrays.copyOf(falseNegatives, numOfRows),
+                Arrays.copyOf(thresholds, numOfRows));
     }
 
     @Override
@@ -169,7 +190,12 @@ public class ROCCurve implements ROC {
 
     @Override
     public ConfusionMatrix[] getConfusionMatrices() {
-        return confusionMatrices;
+        return confusionMatrixTable.getConfusionMatrices();
+    }
+
+    @Override
+    public ConfusionMatrixTable getConfusionMatrixTable() {
+        return confusionMatrixTable;
     }
 
     @Override
@@ -0,0 +1,438 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.lib.math.classification.roc;
+
+import edu.pitt.dbmi.lib.math.classification.data.PredictionColumns;
+import java.util.Arrays;
+
+/**
+ * ROC curve of predictions added one at a time, in bounded memory. Only the
+ * number of positive and negative cases per predicted value is kept.
+ *
+ * The predicted values are counted exactly as long as there are at most a
+ * given number of distinct values, as with a classifier that outputs a
+ * handful of probabilities; the curve is then the same as {@link ROCCurve}'s.
+ * Past that number, the counts are moved to fixed bins of equal width over
+ * [0, 1], a value p falling in bin floor(p * number of bins), the values
+ * outside [0, 1] in the first or last bin.
+ *
+ * The number of bins is a power of two, so that each point of the binned
+ * curve is the exact point of the curve at the lower bound of its bin: only
+ * the curve between the bounds is interpolated. The area under the binned
+ * curve counts the pairs of a positive and a negative case in the same bin
+ * as ties, so it is off from the exact area by at most half the fraction of
+ * the pairs in the same bin, which is {@link #getAreaUnderRocCurveError()}.
+ *
+ * ROCs with the same number of bins merge into the ROC of all their
+ * predictions. Predictions whose predicted value is NaN or whose observed
+ * value is neither 0 nor 1 are not counted. A ROC is not thread-safe.
+ *
+ * @author agent (agent@local)
+ */
+public class StreamingROC implements ROC {
+
+    public static final int DEFAULT_NUMBER_OF_BINS = 1 << 16;
+
+    public static final int DEFAULT_MAX_DISTINCT_VALUES = 4096;
+
+    private final int numberOfBins;
+
+    private final int maxDistinctValues;
+
+    /**
+     * Distinct predicted values in ascending order, or the lower bounds of
+     * the bins once binned.
+     */
+    private double[] values;
+
+    private int[] positiveCounts;
+
+    private int[] negativeCounts;
+
+    private int numberOfValues;
+
+    private boolean binned;
+
+    private int numberOfPositives;
+
+    private int numberOfNegatives;
+
+    private ConfusionMatrixTable confusionMatrixTable;
+
+    private double[] truePositiveRates;
+
+    private double[] falsePositiveRates;
+
+    private double areaUnderRocCurve;
+
+    public StreamingROC() {
+        this(DEFAULT_NUMBER_OF_BINS, DEFAULT_MAX_DISTINCT_VALUES);
+    }
+
+    /**
+     * Create an empty ROC.
+     *
+     * @param numberOfBins number of bins over [0, 1], a power of two
+     * @param maxDistinctValues largest number of distinct predicted values
+     * counted exactly
+     */
+    public StreamingROC(int numberOfBins, int maxDistinctValues) {
+        if (numberOfBins < 1 || Integer.bitCount(numberOfBins) != 1) {
+            throw new IllegalArgumentException("Number of bins must be a power of two.");
+        }
+        if (maxDistinctValues < 0) {
+            throw new IllegalArgumentException("Number of distinct values cannot be negative.");
+        }
+
+        this.numberOfBins = numberOfBins;
+        this.maxDistinctValues = maxDistinctValues;
+
+        int capacity = Math.max(1, Math.min(16, maxDistinctValues));
+        this.values = new double[capacity];
+        this.positiveCounts = new int[capacity];
+        this.negativeCounts = new int[capacity];
+    }
+
+    /**
+     * Create the ROC of the predictions.
+     *
+     * @param predictionColumns observed and predicted values
+     */
+    public StreamingROC(PredictionColumns predictionColumns) {
+        this();
+        add(predictionColumns);
+    }
+
+    /**
+     * Add a prediction.
+     *
+     * @param observedValue actual value, 1 for a positive case and 0 for a
+     * negative one
+     * @param predictedValue value predicted by the classifier
+     */
+    public void add(int observedValue, double predictedValue) {
+        add(observedValue, predictedValue, 1);
+    }
+
+    /**
+     * Add the predictions, in case order.
+     *
+     * @param predictionColumns observed and predicted values
+     */
+    public void add(PredictionColumns predictionColumns) {
+        int size = predictionColumns.getNumberOfPredictions();
+        for (int i = 0; i < size; i++) {
+            add(predictionColumns.getObservedValue(i), predictionColumns.getPredictedValue(i));
+        }
+    }
+
+    /**
+     * Add the predictions of another ROC.
+     *
+     * @param roc ROC with the same number of bins
+     */
+    public void merge(StreamingROC roc) {
+        if (roc.numberOfBins != numberOfBins) {
+            throw new IllegalArgumentException("ROCs with different numbers of bins cannot be merged.");
+        }
+
+        if (roc.binned) {
+            toBins();
+        }
+        for (int i = 0; i < roc.numberOfValues; i++) {
+            add(1, roc.values[i], roc.positiveCounts[i]);
+            add(0, roc.values[i], roc.negativeCounts[i]);
+        }
+    }
+
+    private void add(int observedValue, double predictedValue, int count) {
+        if (count == 0 || Double.isNaN(predictedValue) || (observedValue != 1 && observedValue != 0)) {
+            return;
+        }
+
+        int index = binned ? getBin(predictedValue) : getValueIndex(predictedValue);
+        if (index < 0) {
+            index = -(index + 1);
+            if (numberOfValues < maxDistinctValues) {
+                insertValue(index, predictedValue);
+            } else {
+                toBins();
+                index = getBin(predictedValue);
+            }
+        }
+
+        if (observedValue == 1) {
+            positiveCounts[index] += count;
+            numberOfPositives += count;
+        } else {
+            negativeCounts[index] += count;
+            numberOfNegatives += count;
+        }
+
+        confusionMatrixTable = null;
+    }
+
+    /**
+     * Find the predicted value among the distinct values.
+     *
+     * @return index of the value, or -(insertion point + 1) if it is new
+     */
+    private int getValueIndex(double predictedValue) {
+        int low = 0;
+        int high = numberOfValues - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < predictedValue) {
+                low = mid + 1;
+            } else if (values[mid] > predictedValue) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+
+        return -(low + 1);
+    }
+
+    private void insertValue(int index, double predictedValue) {
+        if (numberOfValues == values.length) {
+            int capacity = Math.min(2 * values.length, maxDistinctValues);
+            values = Arrays.copyOf(values, capacity);
+            positiveCounts = Arrays.copyOf(positiveCounts, capacity);
+            negativeCounts = Arrays.copyOf(negativeCounts, capacity);
+        }
+
+        int numOfMoved = numberOfValues - index;
+        System.arraycopy(values, index, values, index + 1, numOfMoved);
+        System.arraycopy(positiveCounts, index, positiveCounts, index + 1, numOfMoved);
+        System.arraycopy(negativeCounts, index, negativeCounts, index + 1, numOfMoved);
+        values[index] = predictedValue;
+        positiveCounts[index] = 0;
+        negativeCounts[index] = 0;
+        numberOfValues++;
+    }
+
+    private int getBin(double predictedValue) {
+        if (predictedValue < 0) {
+            return 0;
+        }
+
+        return (int) Math.min(numberOfBins - 1, Math.floor(predictedValue * numberOfBins));
+    }
+
+    /**
+     * Move the counts of the distinct values to the bins.
+     */
+    private void toBins() {
+        if (binned) {
+            return;
+        }
+
+        int[] binPositiveCounts = new int[numberOfBins];
+        int[] binNegativeCounts = new int[numberOfBins];
+        for (int i = 0; i < numberOfValues; i++) {
+            int bin = getBin(values[i]);
+            binPositiveCounts[bin] += positiveCounts[i];
+            binNegativeCounts[bin] += negativeCounts[i];
+        }
+
+        values = new double[numberOfBins];
+        for (int bin = 0; bin < numberOfBins; bin++) {
+            values[bin] = ((double) bin) / numberOfBins;
+        }
+        positiveCounts = binPositiveCounts;
+        negativeCounts = binNegativeCounts;
+        numberOfValues = numberOfBins;
+        binned = true;
+    }
+
+    /**
+     * Compute the confusion matrix at each distinct value, or bin, in
+     * descending order, the way ROCCurve does, predicting the cases at or
+     * above the value positive.
+     */
+    private void computeCurve() {
+        if (confusionMatrixTable != null) {
+            return;
+        }
+        if (numberOfPositives + numberOfNegatives == 0) {
+            throw new IllegalStateException("No predictions have been added.");
+        }
+
+        int capacity = numberOfValues + 1;
+        int[] truePositives = new int[capacity];
+        int[] falsePositives = new int[capacity];
+        double[] thresholds = new double[capacity];
+        int numOfRows = 0;
+
+        int truePositive = 0;
+        int falsePositive = 0;
+        thresholds[numOfRows++] = -1.0;
+        for (int i = numberOfValues - 1; i >= 0; i--) {
+            if (positiveCounts[i] == 0 && negativeCounts[i] == 0) {
+                continue;
+            }
+
+            truePositive += positiveCounts[i];
+            falsePositive += negativeCounts[i];
+            truePositives[numOfRows] = truePositive;
+            falsePositives[numOfRows] = falsePositive;
+            thresholds[numOfRows] = values[i];
+            numOfRows++;
+        }
+
+        int[] trueNegatives = new int[numOfRows];
+        int[] falseNegatives = new int[numOfRows];
+        for (int row = 0; row < numOfRows; row++) {
+            trueNegatives[row] = numberOfNegatives - falsePositives[row];
+            falseNegatives[row] = numberOfPositives - truePositives[row];
+        }
+        confusionMatrixTable = new ConfusionMatrixTable(
+                Arrays.copyOf(truePositives, numOfRows), trueNegatives,
+                Arrays.copyOf(falsePositives, numOfRows), falseNegatives,
+                Arrays.copyOf(thresholds, numOfRows));
+
+        truePositiveRates = confusionMatrixTable.getTruePositiveRates();
+        falsePositiveRates = confusionMatrixTable.getFalsePositiveRates();
+
+        // compute the area using trapezoid method
+        double areaUnderCurve = 0;
+        for (int i = 1; i < numOfRows; i++) {
+            double base = Math.abs(falsePositiveRates[i - 1] - falsePositiveRates[i]);
+            double height = (truePositiveRates[i - 1] + truePositiveRates[i]) / 2;
+            areaUnderCurve += base * height;
+        }
+        areaUnderRocCurve = areaUnderCurve;
+    }
+
+    /**
+     * Get the largest difference between the area under the curve and the
+     * area under the curve of the exact predicted values.
+     *
+     * @return error of the area, 0 if the predicted values are counted
+     * exactly
+     */
+    public double getAreaUnderRocCurveError() {
+        if (!binned || numberOfPositives == 0 || numberOfNegatives == 0) {
+            return 0;
+        }
+
+        double numOfTiedPairs = 0;
+        for (int i = 0; i < numberOfValues; i++) {
+            numOfTiedPairs += ((double) positiveCounts[i]) * negativeCounts[i];
+        }
+
+        return numOfTiedPairs / (2.0 * numberOfPositives * numberOfNegatives);
+    }
+
+    /**
+     * Check whether the predicted values are counted exactly.
+     *
+     * @return true if the counts are kept per distinct predicted value, false
+     * if they are binned
+     */
+    public boolean isExact() {
+        return !binned;
+    }
+
+    public int getNumberOfBins() {
+        return numberOfBins;
+    }
+
+    @Override
+    public double[] getTruePositiveRates() {
+        computeCurve();
+
+        return truePositiveRates;
+    }
+
+    @Override
+    public double[] getFalsePositiveRates() {
+        computeCurve();
+
+        return falsePositiveRates;
+    }
+
+    /**
+     * Get the predicted values of the positive cases in descending order,
+     * the lower bounds of their bins once binned. The values are expanded
+     * from the counts on each call.
+     *
+     * @return predicted values of the positive cases
+     */
+    @Override
+    public double[] getPositivePredictedValues() {
+        return expand(positiveCounts, numberOfPositives);
+    }
+
+    /**
+     * Get the predicted values of the negative cases in descending order,
+     * the lower bounds of their bins once binned. The values are expanded
+     * from the counts on each call.
+     *
+     * @return predicted values of the negative cases
+     */
+    @Override
+    public double[] getNegativePredictedValues() {
+        return expand(negativeCounts, numberOfNegatives);
+    }
+
+    private double[] expand(int[] counts, int total) {
+        double[] predictedValues = new double[total];
+        int index = 0;
+        for (int i = numberOfValues - 1; i >= 0; i--) {
+            Arrays.fill(predictedValues, index, index + counts[i], values[i]);
+            index += counts[i];
+        }
+
+        return predictedValues;
+    }
+
+    @Override
+    public ConfusionMatrix[] getConfusionMatrices() {
+        computeCurve();
+
+        return confusionMatrixTable.getConfusionMatrices();
+    }
+
+    @Override
+    public ConfusionMatrixTable getConfusionMatrixTable() {
+        computeCurve();
+
+        return confusionMatrixTable;
+    }
+
+    @Override
+    public int getNumberOfPositives() {
+        return numberOfPositives;
+    }
+
+    @Override
+    public int getNumberOfNegatives() {
+        return numberOfNegatives;
+    }
+
+    @Override
+    public double getAreaUnderRocCurve() {
+        computeCurve();
+
+        return areaUnderRocCurve;
+    }
+
+}
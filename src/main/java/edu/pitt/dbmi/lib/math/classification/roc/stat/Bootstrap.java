@@ -0,0 +1,338 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.lib.math.classification.roc.stat;
+
+import edu.pitt.dbmi.lib.math.classification.calibration.HosmerLemeshow;
+import edu.pitt.dbmi.lib.math.classification.calibration.HosmerLemeshowRiskGroupAccumulator;
+import edu.pitt.dbmi.lib.math.classification.data.PredictionColumns;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Bootstrap confidence intervals of the area under the ROC curve and of the
+ * calibration errors of the Hosmer-Lemeshow risk groups. Each replicate draws
+ * as many cases as there are, with replacement, and only counts how many
+ * times each case is drawn. The cases are put in ascending order of the
+ * predicted values once, so the area under the curve is computed from the
+ * counts in a single pass over the runs of tied values, and the calibration
+ * errors by adding each case drawn, with its count, to a
+ * {@link HosmerLemeshowRiskGroupAccumulator}. No resample is sorted or
+ * copied.
+ *
+ * The replicates run on a fork/join pool. Each replicate draws its cases
+ * from its own random stream, split in replicate order from a stream seeded
+ * with the given seed, so the intervals only depend on the seed and not on
+ * the number of threads.
+ *
+ * @author agent (agent@local)
+ */
+public final class Bootstrap {
+
+    /**
+     * Statistics the intervals are computed for.
+     */
+    public enum Statistic {
+
+        /**
+         * Area under the ROC curve, ties counting half.
+         */
+        AUC("Area Under the ROC Curve (AUC)"),
+        /**
+         * Expected calibration error of the risk groups.
+         */
+        ECE("Expected Calibration Error (ECE)"),
+        /**
+         * Maximum calibration error of the risk groups.
+         */
+        MCE("Maximum Calibration Error (MCE)"),
+        /**
+         * Average calibration error of the risk groups.
+         */
+        ACE("Average Calibration Error (ACE)");
+
+        private final String description;
+
+        private Statistic(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+    }
+
+    public static final int DEFAULT_NUMBER_OF_REPLICATES = 2000;
+
+    public static final double DEFAULT_CONFIDENCE_LEVEL = 0.95;
+
+    private static final Statistic[] STATISTICS = Statistic.values();
+
+    private final int numberOfReplicates;
+
+    private final long seed;
+
+    private final Map<Statistic, BootstrapConfidenceInterval> confidenceIntervals = new EnumMap<>(Statistic.class);
+
+    /**
+     * Compute the 95% intervals with as many threads as there are
+     * processors.
+     *
+     * @param predictionColumns observed and predicted values
+     * @param numberOfReplicates number of resamples
+     * @param seed seed of the random streams
+     */
+    public Bootstrap(PredictionColumns predictionColumns, int numberOfReplicates, long seed) {
+        this(predictionColumns, numberOfReplicates, seed, DEFAULT_CONFIDENCE_LEVEL, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Compute the intervals.
+     *
+     * @param predictionColumns observed and predicted values
+     * @param numberOfReplicates number of resamples
+     * @param seed seed of the random streams
+     * @param confidenceLevel confidence level, between 0 and 1, exclusive
+     * @param numOfThreads number of threads running the replicates
+     */
+    public Bootstrap(PredictionColumns predictionColumns, int numberOfReplicates, long seed, double confidenceLevel, int numOfThreads) {
+        if (predictionColumns == null) {
+            throw new IllegalArgumentException(
+                    "Data containing both observed value and predicted value is required.");
+        }
+        if (predictionColumns.getNumberOfPredictions() == 0) {
+            throw new IllegalArgumentException("At least one prediction is required.");
+        }
+        if (numberOfReplicates < 1) {
+            throw new IllegalArgumentException("Number of replicates must be at least 1.");
+        }
+        if (numOfThreads < 1) {
+            throw new IllegalArgumentException("Number of threads must be at least 1.");
+        }
+        if (!(confidenceLevel > 0 && confidenceLevel < 1)) {
+            throw new IllegalArgumentException("Confidence level must be between 0 and 1, exclusive.");
+        }
+
+        this.numberOfReplicates = numberOfReplicates;
+        this.seed = seed;
+
+        SortedCases sortedCases = new SortedCases(predictionColumns);
+
+        // the statistics of the original sample
+        int[] counts = new int[sortedCases.size()];
+        Arrays.fill(counts, 1);
+        double[] estimates = sortedCases.computeStatistics(counts);
+
+        // split a random stream for each replicate, in replicate order
+        SplittableRandom random = new SplittableRandom(seed);
+        SplittableRandom[] replicateRandoms = new SplittableRandom[numberOfReplicates];
+        for (int i = 0; i < numberOfReplicates; i++) {
+            replicateRandoms[i] = random.split();
+        }
+
+        double[][] replicates = new double[STATISTICS.length][numberOfReplicates];
+        ForkJoinPool pool = new ForkJoinPool(numOfThreads);
+        try {
+            pool.invoke(new Replicates(sortedCases, replicateRandoms, replicates, 0, numberOfReplicates));
+        } finally {
+            pool.shutdown();
+        }
+
+        for (Statistic statistic : STATISTICS) {
+            confidenceIntervals.put(statistic, new BootstrapConfidenceInterval(
+                    estimates[statistic.ordinal()], replicates[statistic.ordinal()], confidenceLevel));
+        }
+    }
+
+    /**
+     * Get the interval of a statistic.
+     *
+     * @param statistic statistic
+     * @return bootstrap confidence interval
+     */
+    public BootstrapConfidenceInterval getConfidenceInterval(Statistic statistic) {
+        return confidenceIntervals.get(statistic);
+    }
+
+    public int getNumberOfReplicates() {
+        return numberOfReplicates;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder dataBuilder = new StringBuilder();
+        dataBuilder.append(String.format("Bootstrap Confidence Intervals (%d replicates, seed %d)", numberOfReplicates, seed));
+        for (Statistic statistic : STATISTICS) {
+            dataBuilder.append(String.format("%n%s: %s", statistic.getDescription(), confidenceIntervals.get(statistic)));
+        }
+
+        return dataBuilder.toString();
+    }
+
+    /**
+     * Cases in ascending order of the predicted values. Resampling does not
+     * depend on how the cases are numbered, so the replicates draw positions
+     * in this order and walk the columns from start to end.
+     */
+    private static final class SortedCases {
+
+        private final double[] predictedValues;
+        private final byte[] observedValues;
+
+        /**
+         * End, exclusive, of the run of equal predicted values each case is
+         * in.
+         */
+        private final int[] runEnds;
+
+        private SortedCases(PredictionColumns predictionColumns) {
+            int[] ascendingOrder = predictionColumns.getAscendingOrder();
+            int size = ascendingOrder.length;
+
+            predictedValues = new double[size];
+            observedValues = new byte[size];
+            for (int i = 0; i < size; i++) {
+                predictedValues[i] = predictionColumns.getPredictedValue(ascendingOrder[i]);
+                observedValues[i] = (byte) predictionColumns.getObservedValue(ascendingOrder[i]);
+            }
+
+            runEnds = new int[size];
+            for (int start = 0, end = 0; start < size; start = end) {
+                while (end < size && !(predictedValues[start] < predictedValues[end])) {
+                    end++;
+                }
+                Arrays.fill(runEnds, start, end, end);
+            }
+        }
+
+        private int size() {
+            return predictedValues.length;
+        }
+
+        /**
+         * Compute the statistics of a sample given by the number of times each
+         * case is drawn.
+         */
+        private double[] computeStatistics(int[] counts) {
+            double[] statistics = new double[STATISTICS.length];
+
+            statistics[Statistic.AUC.ordinal()] = computeAreaUnderRocCurve(counts);
+
+            HosmerLemeshowRiskGroupAccumulator accumulator = new HosmerLemeshowRiskGroupAccumulator();
+            for (int i = 0; i < counts.length; i++) {
+                accumulator.add(observedValues[i], predictedValues[i], counts[i]);
+            }
+            HosmerLemeshow hosmerLemeshow = accumulator.getHosmerLemeshow();
+            statistics[Statistic.ECE.ordinal()] = hosmerLemeshow.getExpectedCalibrationError();
+            statistics[Statistic.MCE.ordinal()] = hosmerLemeshow.getMaxCalibrationError();
+            statistics[Statistic.ACE.ordinal()] = hosmerLemeshow.getAverageCalibrationError();
+
+            return statistics;
+        }
+
+        /**
+         * Compute the Mann-Whitney statistic, the probability that a positive
+         * case is predicted higher than a negative one, ties counting half,
+         * which is the area under the curve by the trapezoid method.
+         *
+         * @return area under the curve, NaN if there are no positive or no
+         * negative cases
+         */
+        private double computeAreaUnderRocCurve(int[] counts) {
+            double sum = 0;
+            long numOfNegativesBelow = 0;
+            long numOfPositives = 0;
+
+            int size = counts.length;
+            for (int start = 0, end; start < size; start = end) {
+                end = runEnds[start];
+
+                long numOfPositivesInRun = 0;
+                long numOfNegativesInRun = 0;
+                for (int i = start; i < end; i++) {
+                    numOfPositivesInRun += (observedValues[i] == 1) ? counts[i] : 0;
+                    numOfNegativesInRun += (observedValues[i] == 0) ? counts[i] : 0;
+                }
+
+                sum += numOfPositivesInRun * (numOfNegativesBelow + numOfNegativesInRun / 2.0);
+                numOfNegativesBelow += numOfNegativesInRun;
+                numOfPositives += numOfPositivesInRun;
+            }
+
+            return (numOfPositives == 0 || numOfNegativesBelow == 0)
+                    ? Double.NaN
+                    : sum / ((double) numOfPositives * numOfNegativesBelow);
+        }
+
+    }
+
+    /**
+     * Range of replicates, split in halves until a single replicate is left.
+     */
+    private static final class Replicates extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final SortedCases sortedCases;
+        private final SplittableRandom[] replicateRandoms;
+        private final double[][] replicates;
+        private final int from;
+        private final int to;
+
+        private Replicates(SortedCases sortedCases, SplittableRandom[] replicateRandoms, double[][] replicates, int from, int to) {
+            this.sortedCases = sortedCases;
+            this.replicateRandoms = replicateRandoms;
+            this.replicates = replicates;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(
+                        new Replicates(sortedCases, replicateRandoms, replicates, from, mid),
+                        new Replicates(sortedCases, replicateRandoms, replicates, mid, to));
+            } else {
+                SplittableRandom random = replicateRandoms[from];
+                int numOfCases = sortedCases.size();
+                int[] counts = new int[numOfCases];
+                for (int i = 0; i < numOfCases; i++) {
+                    counts[random.nextInt(numOfCases)]++;
+                }
+
+                double[] statistics = sortedCases.computeStatistics(counts);
+                for (int i = 0; i < statistics.length; i++) {
+                    replicates[i][from] = statistics[i];
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.lib.math.classification.roc.stat;
+
+import java.util.Arrays;
+
+/**
+ * Percentile bootstrap confidence interval of a statistic. The standard error
+ * is the standard deviation of the statistic over the replicates. Replicates
+ * where the statistic is undefined, such as the area under the curve of a
+ * resample without positive cases, are left out.
+ *
+ * @author agent (agent@local)
+ */
+public class BootstrapConfidenceInterval implements ConfidenceInterval {
+
+    private final double estimate;
+
+    private final double standardError;
+
+    private final double lowerConfidenceInterval;
+
+    private final double upperConfidenceInterval;
+
+    private final int numberOfReplicates;
+
+    /**
+     * Compute the interval from the replicates of the statistic.
+     *
+     * @param estimate statistic of the original sample
+     * @param replicates statistic of each resample
+     * @param confidenceLevel confidence level, between 0 and 1, exclusive
+     */
+    public BootstrapConfidenceInterval(double estimate, double[] replicates, double confidenceLevel) {
+        if (!(confidenceLevel > 0 && confidenceLevel < 1)) {
+            throw new IllegalArgumentException("Confidence level must be between 0 and 1, exclusive.");
+        }
+
+        double[] values = Arrays.stream(replicates)
+                .filter(value -> !Double.isNaN(value))
+                .sorted()
+                .toArray();
+
+        this.estimate = estimate;
+        this.numberOfReplicates = values.length;
+        if (values.length == 0) {
+            this.standardError = Double.NaN;
+            this.lowerConfidenceInterval = Double.NaN;
+            this.upperConfidenceInterval = Double.NaN;
+        } else {
+            double alpha = 1 - confidenceLevel;
+            this.standardError = standardDeviation(values);
+            this.lowerConfidenceInterval = percentile(values, alpha / 2);
+            this.upperConfidenceInterval = percentile(values, 1 - alpha / 2);
+        }
+    }
+
+    /**
+     * Percentile of sorted values, interpolating linearly between the order
+     * statistics.
+     */
+    private static double percentile(double[] sortedValues, double fraction) {
+        double position = fraction * (sortedValues.length - 1);
+        int index = (int) Math.floor(position);
+        if (index + 1 >= sortedValues.length) {
+            return sortedValues[sortedValues.length - 1];
+        }
+
+        return sortedValues[index] + (position - index) * (sortedValues[index + 1] - sortedValues[index]);
+    }
+
+    private static double standardDeviation(double[] values) {
+        if (values.length < 2) {
+            return 0;
+        }
+
+        double mean = 0;
+        for (double value : values) {
+            mean += value;
+        }
+        mean /= values.length;
+
+        double sumSq = 0;
+        for (double value : values) {
+            sumSq += (value - mean) * (value - mean);
+        }
+
+        return Math.sqrt(sumSq / (values.length - 1));
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "Estimate: %f, SE: %f, CI: [%f, %f]",
+                estimate, standardError, lowerConfidenceInterval, upperConfidenceInterval);
+    }
+
+    /**
+     * Get the statistic of the original sample.
+     *
+     * @return estimate
+     */
+    public double getEstimate() {
+        return estimate;
+    }
+
+    /**
+     * Get the number of replicates the statistic is defined for.
+     *
+     * @return number of replicates used
+     */
+    public int getNumberOfReplicates() {
+        return numberOfReplicates;
+    }
+
+    @Override
+    public double getStandardError() {
+        return standardError;
+    }
+
+    @Override
+    public double getLowerConfidenceInterval() {
+        return lowerConfidenceInterval;
+    }
+
+    @Override
+    public double getUpperConfidenceInterval() {
+        return upperConfidenceInterval;
+    }
+
+}
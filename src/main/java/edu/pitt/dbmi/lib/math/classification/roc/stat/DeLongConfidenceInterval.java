@@ -19,10 +19,20 @@
 package edu.pitt.dbmi.lib.math.classification.roc.stat;
 
 import edu.pitt.dbmi.lib.math.classification.roc.ROC;
+import java.util.Arrays;
 
 /**
  * Confidence interval for AUROC curve using DeLong's method.
  *
+ * The standard error is computed from the placement values of the cases: the
+ * fraction of the negative cases a positive case scores above, and the
+ * fraction of the positive cases a negative case scores below, ties counting
+ * half. Following Sun and Xu (2014), a placement value is the difference of
+ * the midranks of the case among all the cases and among the cases of its own
+ * class, so it is counted by binary search over the sorted predicted values
+ * instead of comparing every positive with every negative. This takes
+ * O(n log n) time instead of O(P&middot;N).
+ *
  * Mar 28, 2012 10:51:42 AM
  *
  * @author Kevin V. Bui (kvb2univpitt@gmail.com)
@@ -35,15 +45,160 @@ public class DeLongConfidenceInterval extends AbstractConfidenceInterval {
 
     @Override
     protected double computeStandardError(ROC roc) {
-        double stdError = 0;
+        double[] abNormData = roc.getPositivePredictedValues();
+        double[] normData = roc.getNegativePredictedValues();
+
+        double auc = roc.getAreaUnderRocCurve();
+        double[] abNormPlacements = computePositivePlacements(abNormData, normData);
+        double[] normPlacements = computeNegativePlacements(abNormData, normData);
 
+        return Math.sqrt((variance(normPlacements, auc) / normData.length) + (variance(abNormPlacements, auc) / abNormData.length));
+    }
+
+    /**
+     * Compute the standard error by comparing every positive case with every
+     * negative case, the way DeLong et al. define it. This takes O(P&middot;N)
+     * time and is kept to check the default computation against.
+     *
+     * @param roc ROC curve
+     * @return standard error of the area under the curve
+     */
+    public static double computePairwiseStandardError(ROC roc) {
         double[] abNormData = roc.getPositivePredictedValues();
         double[] normData = roc.getNegativePredictedValues();
 
         double auc = roc.getAreaUnderRocCurve();
-        stdError = Math.sqrt((sNorm(normData, abNormData, auc) / normData.length) + (sAbnorm(normData, abNormData, auc) / abNormData.length));
 
-        return stdError;
+        return Math.sqrt((sNorm(normData, abNormData, auc) / normData.length) + (sAbnorm(normData, abNormData, auc) / abNormData.length));
+    }
+
+    /**
+     * Compute the placement value of each positive case: the fraction of the
+     * negative cases predicted below it, ties counting half.
+     *
+     * @param abNormData predicted values of the positive cases
+     * @param normData predicted values of the negative cases
+     * @return placement values, in the order of the positive cases
+     */
+    static double[] computePositivePlacements(double[] abNormData, double[] normData) {
+        double[] sortedNormData = sortAscending(normData);
+
+        double[] placements = new double[abNormData.length];
+        for (int i = 0; i < abNormData.length; i++) {
+            double Xi = abNormData[i];
+            int numOfBelow = countBelow(Xi, sortedNormData);
+            int numOfTies = countNotAbove(Xi, sortedNormData) - numOfBelow;
+
+            placements[i] = (numOfBelow + 0.5 * numOfTies) / normData.length;
+        }
+
+        return placements;
+    }
+
+    /**
+     * Compute the placement value of each negative case: the fraction of the
+     * positive cases predicted above it, ties counting half.
+     *
+     * @param abNormData predicted values of the positive cases
+     * @param normData predicted values of the negative cases
+     * @return placement values, in the order of the negative cases
+     */
+    static double[] computeNegativePlacements(double[] abNormData, double[] normData) {
+        double[] sortedAbNormData = sortAscending(abNormData);
+        int numOfComparable = countComparable(sortedAbNormData);
+
+        double[] placements = new double[normData.length];
+        for (int j = 0; j < normData.length; j++) {
+            double Yj = normData[j];
+            if (Double.isNaN(Yj)) {
+                continue;
+            }
+
+            int numOfNotAbove = countNotAbove(Yj, sortedAbNormData);
+            int numOfTies = numOfNotAbove - countBelow(Yj, sortedAbNormData);
+            int numOfAbove = numOfComparable - numOfNotAbove;
+
+            placements[j] = (numOfAbove + 0.5 * numOfTies) / abNormData.length;
+        }
+
+        return placements;
+    }
+
+    /**
+     * Sample variance of the placement values around the area under the
+     * curve.
+     */
+    private static double variance(double[] placements, double auc) {
+        double result = 0;
+
+        for (double placement : placements) {
+            result += Math.pow(placement - auc, 2);
+        }
+
+        return result / (placements.length - 1);
+    }
+
+    /**
+     * Count the values less than z.
+     *
+     * @param z value compared
+     * @param sortedValues values in ascending order, NaN last
+     * @return number of values less than z
+     */
+    private static int countBelow(double z, double[] sortedValues) {
+        int low = 0;
+        int high = sortedValues.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedValues[mid] < z) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Count the values less than or equal to z.
+     *
+     * @param z value compared
+     * @param sortedValues values in ascending order, NaN last
+     * @return number of values less than or equal to z
+     */
+    private static int countNotAbove(double z, double[] sortedValues) {
+        int low = 0;
+        int high = sortedValues.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedValues[mid] <= z) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Count the values that are not NaN.
+     */
+    private static int countComparable(double[] sortedValues) {
+        int count = sortedValues.length;
+        while (count > 0 && Double.isNaN(sortedValues[count - 1])) {
+            count--;
+        }
+
+        return count;
+    }
+
+    private static double[] sortAscending(double[] values) {
+        double[] sortedValues = values.clone();
+        Arrays.sort(sortedValues);
+
+        return sortedValues;
     }
 
     private static double indicator(double Xi, double Yi) {
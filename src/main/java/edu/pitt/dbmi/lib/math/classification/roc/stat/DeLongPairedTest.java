@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.lib.math.classification.roc.stat;
+
+import edu.pitt.dbmi.lib.math.classification.data.ObservedPredictedValue;
+import edu.pitt.dbmi.lib.math.classification.data.PredictionColumns;
+import java.util.List;
+import org.apache.commons.math3.distribution.NormalDistribution;
+
+/**
+ * DeLong's test comparing the areas under the ROC curves of two classifiers
+ * evaluated on the same cases, for instance two search methods evaluated on
+ * the same edges. The areas are correlated, so the variance of their
+ * difference uses the covariance of the placement values of the two
+ * classifiers, computed in O(n log n) time as in DeLongConfidenceInterval.
+ *
+ * The area under each curve is the Mann-Whitney statistic, ties counting
+ * half. The confidence interval is the 95% interval of the difference of the
+ * first area minus the second.
+ *
+ * @author agent (agent@local)
+ */
+public class DeLongPairedTest implements ConfidenceInterval {
+
+    /**
+     * Critical value used to compute 95% CI.
+     */
+    private static final double CRITICAL_VALUE = 1.96;
+
+    private final double areaUnderRocCurve1;
+
+    private final double areaUnderRocCurve2;
+
+    private final double variance1;
+
+    private final double variance2;
+
+    private final double covariance;
+
+    private final double standardError;
+
+    private final double zScore;
+
+    private final double pValue;
+
+    /**
+     * Compare two classifiers evaluated on the same cases.
+     *
+     * @param observedPredictedValues1 observed and predicted values of the
+     * first classifier
+     * @param observedPredictedValues2 observed and predicted values of the
+     * second classifier, case by case in the same order as the first
+     */
+    public DeLongPairedTest(List<ObservedPredictedValue> observedPredictedValues1, List<ObservedPredictedValue> observedPredictedValues2) {
+        this(PredictionColumns.of(observedPredictedValues1), PredictionColumns.of(observedPredictedValues2));
+    }
+
+    /**
+     * Compare two classifiers evaluated on the same cases.
+     *
+     * @param predictionColumns1 observed and predicted values of the first
+     * classifier
+     * @param predictionColumns2 observed and predicted values of the second
+     * classifier, case by case in the same order as the first
+     */
+    public DeLongPairedTest(PredictionColumns predictionColumns1, PredictionColumns predictionColumns2) {
+        if (predictionColumns1 == null || predictionColumns2 == null) {
+            throw new IllegalArgumentException(
+                    "Data of both classifiers containing both observed value and predicted value is required.");
+        }
+        if (predictionColumns1.getNumberOfPredictions() != predictionColumns2.getNumberOfPredictions()) {
+            throw new IllegalArgumentException("Both classifiers must be evaluated on the same cases.");
+        }
+
+        int numberOfCases = predictionColumns1.getNumberOfPredictions();
+        for (int i = 0; i < numberOfCases; i++) {
+            if (predictionColumns1.getObservedValue(i) != predictionColumns2.getObservedValue(i)) {
+                throw new IllegalArgumentException(
+                        String.format("Case %d has different observed values for the two classifiers.", i + 1));
+            }
+        }
+        int numberOfPositives = predictionColumns1.getNumberOfPositives();
+        int numberOfNegatives = numberOfCases - numberOfPositives;
+
+        // predicted values of the positive and negative cases, in case order
+        double[][] abNormData = new double[2][numberOfPositives];
+        double[][] normData = new double[2][numberOfNegatives];
+        int numOfAbNorm = 0;
+        int numOfNorm = 0;
+        for (int i = 0; i < numberOfCases; i++) {
+            if (predictionColumns1.getObservedValue(i) == 1) {
+                abNormData[0][numOfAbNorm] = predictionColumns1.getPredictedValue(i);
+                abNormData[1][numOfAbNorm] = predictionColumns2.getPredictedValue(i);
+                numOfAbNorm++;
+            } else {
+                normData[0][numOfNorm] = predictionColumns1.getPredictedValue(i);
+                normData[1][numOfNorm] = predictionColumns2.getPredictedValue(i);
+                numOfNorm++;
+            }
+        }
+
+        double[] abNormPlacements1 = DeLongConfidenceInterval.computePositivePlacements(abNormData[0], normData[0]);
+        double[] abNormPlacements2 = DeLongConfidenceInterval.computePositivePlacements(abNormData[1], normData[1]);
+        double[] normPlacements1 = DeLongConfidenceInterval.computeNegativePlacements(abNormData[0], normData[0]);
+        double[] normPlacements2 = DeLongConfidenceInterval.computeNegativePlacements(abNormData[1], normData[1]);
+
+        areaUnderRocCurve1 = mean(abNormPlacements1);
+        areaUnderRocCurve2 = mean(abNormPlacements2);
+
+        variance1 = covariance(abNormPlacements1, abNormPlacements1, areaUnderRocCurve1, areaUnderRocCurve1) / numberOfPositives
+                + covariance(normPlacements1, normPlacements1, areaUnderRocCurve1, areaUnderRocCurve1) / numberOfNegatives;
+        variance2 = covariance(abNormPlacements2, abNormPlacements2, areaUnderRocCurve2, areaUnderRocCurve2) / numberOfPositives
+                + covariance(normPlacements2, normPlacements2, areaUnderRocCurve2, areaUnderRocCurve2) / numberOfNegatives;
+        covariance = covariance(abNormPlacements1, abNormPlacements2, areaUnderRocCurve1, areaUnderRocCurve2) / numberOfPositives
+                + covariance(normPlacements1, normPlacements2, areaUnderRocCurve1, areaUnderRocCurve2) / numberOfNegatives;
+
+        standardError = Math.sqrt(Math.max(variance1 + variance2 - 2 * covariance, 0));
+        zScore = getDifference() / standardError;
+        pValue = 2 * (1 - new NormalDistribution().cumulativeProbability(Math.abs(zScore)));
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+
+        return sum / values.length;
+    }
+
+    private static double covariance(double[] values1, double[] values2, double mean1, double mean2) {
+        double result = 0;
+        for (int i = 0; i < values1.length; i++) {
+            result += (values1[i] - mean1) * (values2[i] - mean2);
+        }
+
+        return result / (values1.length - 1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "AUC 1: %f, AUC 2: %f, Difference: %f, CI: [%f, %f], z: %f, p-value: %f",
+                areaUnderRocCurve1, areaUnderRocCurve2, getDifference(),
+                getLowerConfidenceInterval(), getUpperConfidenceInterval(),
+                zScore, pValue);
+    }
+
+    public double getAreaUnderRocCurve1() {
+        return areaUnderRocCurve1;
+    }
+
+    public double getAreaUnderRocCurve2() {
+        return areaUnderRocCurve2;
+    }
+
+    /**
+     * Get the difference of the areas, the first minus the second.
+     *
+     * @return difference of the areas under the curves
+     */
+    public double getDifference() {
+        return areaUnderRocCurve1 - areaUnderRocCurve2;
+    }
+
+    public double getVariance1() {
+        return variance1;
+    }
+
+    public double getVariance2() {
+        return variance2;
+    }
+
+    public double getCovariance() {
+        return covariance;
+    }
+
+    public double getZScore() {
+        return zScore;
+    }
+
+    /**
+     * Get the two-sided p-value of the hypothesis that the areas are equal.
+     *
+     * @return p-value
+     */
+    public double getPValue() {
+        return pValue;
+    }
+
+    /**
+     * Get the standard error of the difference of the areas.
+     *
+     * @return standard error
+     */
+    @Override
+    public double getStandardError() {
+        return standardError;
+    }
+
+    @Override
+    public double getLowerConfidenceInterval() {
+        return getDifference() - CRITICAL_VALUE * standardError;
+    }
+
+    @Override
+    public double getUpperConfidenceInterval() {
+        return getDifference() + CRITICAL_VALUE * standardError;
+    }
+
+}
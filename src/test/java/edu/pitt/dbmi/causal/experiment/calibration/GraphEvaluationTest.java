@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.calibration;
+
+import edu.cmu.tetrad.graph.Edge;
+import edu.cmu.tetrad.graph.EdgeTypeProbability;
+import edu.cmu.tetrad.graph.EdgeTypeProbability.EdgeType;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.Node;
+import edu.pitt.dbmi.causal.experiment.tetrad.Edges;
+import edu.pitt.dbmi.causal.experiment.util.GraphFiles;
+import edu.pitt.dbmi.causal.experiment.util.ResourceLoader;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author agent (agent@local)
+ */
+public class GraphEvaluationTest {
+
+    /**
+     * Test of the tables of class GraphEvaluation. Every table has the rows,
+     * in the same order, and the values that GraphData.examineEdgeType and
+     * GraphData.examineEdges computed by node name before they used
+     * GraphEvaluation.
+     */
+    @Test
+    public void testTables() {
+        Graph searchGraph = ResourceLoader.loadGraph(Paths.get(GraphFiles.SEARCH_GRAPH));
+        Graph[] trueGraphs = {
+            ResourceLoader.loadGraph(Paths.get(GraphFiles.PAG_FROM_DAG_GRAPH)),
+            ResourceLoader.loadGraph(Paths.get(GraphFiles.SIM_DISC_20VAR_1KCASE_TRUE_GRAPH))
+        };
+
+        EdgeType[] edgeTypes = {EdgeType.ta, EdgeType.at, EdgeType.ca, EdgeType.ac, EdgeType.cc, EdgeType.aa, EdgeType.tt};
+        for (Graph trueGraph : trueGraphs) {
+            GraphEvaluation graphEvaluation = new GraphEvaluation(searchGraph, trueGraph, edgeTypes);
+
+            int numOfObserved = 0;
+            for (EdgeType edgeType : edgeTypes) {
+                Set<EdgeValue> expected = examineEdgeType(searchGraph, trueGraph, edgeType);
+                GraphEvaluation.Table table = graphEvaluation.getEdgeTypeTable(edgeType);
+                Assertions.assertEquals(toRows(expected), toRows(table.toEdgeValues()), edgeType.name());
+
+                // an asymmetric edge is observed in the table of its type and of the reverse
+                if (edgeType != EdgeType.at && edgeType != EdgeType.ac) {
+                    numOfObserved += expected.stream().mapToInt(EdgeValue::getObservedValue).sum();
+                }
+            }
+            Assertions.assertEquals(trueGraph.getNumEdges(), numOfObserved);
+
+            Assertions.assertEquals(toRows(examineEdges(searchGraph, trueGraph)), toRows(graphEvaluation.getAdjacencies().toEdgeValues()));
+        }
+    }
+
+    private static List<String> toRows(Set<EdgeValue> edgeValues) {
+        List<String> rows = new ArrayList<>(edgeValues.size());
+        edgeValues.forEach(edgeValue -> rows.add(String.format("%s,%s,%s,%s,%d",
+                edgeValue.getNode1(), edgeValue.getNode2(), edgeValue.getEdgeType(),
+                Double.toString(edgeValue.getPredictedValue()), edgeValue.getObservedValue())));
+
+        return rows;
+    }
+
+    /**
+     * The adjacencies as GraphData.examineEdges computed them by node name.
+     */
+    private static Set<EdgeValue> examineEdges(Graph searchGraph, Graph trueGraph) {
+        Set<EdgeValue> edgeValues = new LinkedHashSet<>();
+        String[] nodeNames = trueGraph.getNodeNames().stream().toArray(String[]::new);
+        for (int i = 0; i < nodeNames.length - 1; i++) {
+            for (int j = i + 1; j < nodeNames.length; j++) {
+                EdgeValue edgeValue = new EdgeValue(nodeNames[i], nodeNames[j], EdgeType.tt);
+                if (trueGraph.getEdge(trueGraph.getNode(nodeNames[i]), trueGraph.getNode(nodeNames[j])) != null) {
+                    edgeValue.setObservedValue(1);
+                }
+                Edge predictedEdge = searchGraph.getEdge(searchGraph.getNode(nodeNames[i]), searchGraph.getNode(nodeNames[j]));
+                if (predictedEdge != null) {
+                    edgeValue.setPredictedValue(predictedEdge.getProbability());
+                }
+                edgeValues.add(edgeValue);
+            }
+        }
+
+        return edgeValues;
+    }
+
+    /**
+     * The edge type values as GraphData.examineEdgeType computed them by
+     * node name.
+     */
+    private static Set<EdgeValue> examineEdgeType(Graph searchGraph, Graph trueGraph, EdgeType edgeType) {
+        boolean symmetric = Edges.getReversed(edgeType) == edgeType;
+
+        Set<EdgeValue> edgeValues = new LinkedHashSet<>();
+        String[] nodeNames = trueGraph.getNodeNames().stream().toArray(String[]::new);
+        for (int i = 0; i < nodeNames.length; i++) {
+            for (int j = symmetric ? i + 1 : 0; j < nodeNames.length; j++) {
+                if (i != j) {
+                    edgeValues.add(new EdgeValue(nodeNames[i], nodeNames[j], edgeType));
+                }
+            }
+        }
+
+        for (EdgeValue edgeValue : edgeValues) {
+            Node node1 = trueGraph.getNode(edgeValue.getNode1());
+            Node node2 = trueGraph.getNode(edgeValue.getNode2());
+            Edge trueEdge = trueGraph.getEdge(node1, node2);
+            if (trueEdge != null && edgeType == Edges.getEdgeType(trueEdge, node1, node2)) {
+                edgeValue.setObservedValue(1);
+            }
+
+            node1 = searchGraph.getNode(edgeValue.getNode1());
+            node2 = searchGraph.getNode(edgeValue.getNode2());
+            Edge predictedEdge = searchGraph.getEdge(node1, node2);
+            if (predictedEdge != null && predictedEdge.getEdgeTypeProbabilities() != null) {
+                for (EdgeTypeProbability edgeTypeProb : predictedEdge.getEdgeTypeProbabilities()) {
+                    EdgeType predictedEdgeType = (node1 == predictedEdge.getNode1())
+                            ? edgeTypeProb.getEdgeType()
+                            : Edges.getReversed(edgeTypeProb.getEdgeType());
+                    if (predictedEdgeType == edgeType) {
+                        edgeValue.setPredictedValue(edgeTypeProb.getProbability());
+                    }
+                }
+            }
+        }
+
+        return edgeValues;
+    }
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.count;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DiscreteVariable;
+import edu.pitt.dbmi.causal.experiment.data.DiscreteDataColumns;
+import edu.pitt.dbmi.causal.experiment.util.DataFiles;
+import edu.pitt.dbmi.causal.experiment.util.DataSampling;
+import edu.pitt.dbmi.causal.experiment.util.ResourceLoader;
+import edu.pitt.dbmi.data.reader.Delimiter;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author agent (agent@local)
+ */
+public class CountEngineTest {
+
+    private static final int NUM_OF_TABLES = 50;
+
+    /**
+     * Test of count method, of class CountEngine. The tables are the same as
+     * the ones counted row by row, with rows having a missing value left out.
+     */
+    @Test
+    public void testCount() throws Exception {
+        DataSet dataSet = (DataSet) ResourceLoader.loadDataModel(Paths.get(DataFiles.SIM_DISC_20VAR_1KCASE), Delimiter.TAB);
+        dataSet = dataSet.copy();
+
+        // make a few values missing
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            dataSet.setInt(random.nextInt(dataSet.getNumRows()), random.nextInt(dataSet.getNumColumns()), DiscreteVariable.MISSING_VALUE);
+        }
+
+        DiscreteDataColumns dataColumns = DiscreteDataColumns.getInstance(dataSet);
+        CountEngine countEngine = new CountEngine(dataColumns);
+
+        int numOfCols = dataSet.getNumColumns();
+        for (int i = 0; i < NUM_OF_TABLES; i++) {
+            int[] cols = shuffle(numOfCols, random);
+            int x = cols[0];
+            int y = cols[1];
+            int[] z = Arrays.copyOfRange(cols, 2, 2 + (i % 4));
+
+            ContingencyTable table = countEngine.count(x, y, z, null);
+            assertTable(dataColumns, x, y, z, table);
+        }
+    }
+
+    /**
+     * Test of count method, of class CountEngine. The tables of several pairs
+     * counted in a single pass are the same as the tables counted one by one.
+     */
+    @Test
+    public void testCountPairs() throws Exception {
+        DataSet dataSet = (DataSet) ResourceLoader.loadDataModel(Paths.get(DataFiles.SIM_DISC_20VAR_1KCASE), Delimiter.TAB);
+        DiscreteDataColumns dataColumns = DiscreteDataColumns.getInstance(dataSet);
+        CountEngine countEngine = new CountEngine(dataColumns);
+
+        int[] z = {3, 7};
+        int[][] pairs = {{0, 1}, {2, 5}, {19, 4}, {1, 0}};
+        ContingencyTable[] tables = countEngine.count(pairs, z, null);
+        for (int i = 0; i < pairs.length; i++) {
+            assertTable(dataColumns, pairs[i][0], pairs[i][1], z, tables[i]);
+        }
+    }
+
+    /**
+     * Test of count method, of class CountEngine. The tables counted over the
+     * original rows, weighted by the number of times each row is drawn, hold
+     * the same counts as the tables of the copied sample.
+     */
+    @Test
+    public void testCountWithRowCounts() throws Exception {
+        DataSet dataSet = (DataSet) ResourceLoader.loadDataModel(Paths.get(DataFiles.SIM_DISC_20VAR_1KCASE), Delimiter.TAB);
+        int numOfRows = dataSet.getNumRows();
+
+        Random random = new Random(2311);
+        int[] rows = new int[numOfRows];
+        for (int i = 0; i < numOfRows; i++) {
+            rows[i] = random.nextInt(numOfRows);
+        }
+        int[] rowCounts = DataSampling.toRowCounts(rows, numOfRows);
+
+        CountEngine countEngine = new CountEngine(DiscreteDataColumns.getInstance(dataSet));
+        CountEngine sampleCountEngine = new CountEngine(DiscreteDataColumns.getInstance(dataSet.subsetRows(rows)));
+        int numOfCols = dataSet.getNumColumns();
+        for (int i = 0; i < NUM_OF_TABLES; i++) {
+            int[] cols = shuffle(numOfCols, random);
+            int x = cols[0];
+            int y = cols[1];
+            int[] z = Arrays.copyOfRange(cols, 2, 2 + (i % 4));
+
+            // the configurations are numbered in the order of the counted
+            // rows, so compare the counts of each configuration in any order
+            ContingencyTable table = countEngine.count(x, y, z, rowCounts);
+            ContingencyTable expected = sampleCountEngine.count(x, y, z, null);
+            String message = String.format("x=%d, y=%d, z=%s", x, y, Arrays.toString(z));
+            Assertions.assertEquals(expected.getTotal(), table.getTotal(), message);
+            Assertions.assertEquals(expected.getNumberOfConfigurations(), table.getNumberOfConfigurations(), message);
+            Assertions.assertEquals(getCounts(expected), getCounts(table), message);
+        }
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> countEngine.count(0, 1, new int[0], new int[numOfRows - 1]));
+    }
+
+    /**
+     * Compare the table with the counts of x and y for each value of z,
+     * counted row by row.
+     */
+    private static void assertTable(DiscreteDataColumns dataColumns, int x, int y, int[] z, ContingencyTable table) {
+        int numOfX = dataColumns.getNumberOfCategories(x);
+        int numOfY = dataColumns.getNumberOfCategories(y);
+
+        // index of each value of z, in order of first appearance in the
+        // counted rows
+        Map<List<Integer>, Integer> configurations = new HashMap<>();
+        Map<Integer, int[][]> expectedCounts = new HashMap<>();
+        int total = 0;
+        double numOfCombinations = 1;
+        for (int col : z) {
+            numOfCombinations *= dataColumns.getNumberOfCategories(col);
+        }
+        for (int row = 0; row < dataColumns.getNumberOfRows(); row++) {
+            int xValue = dataColumns.getInt(row, x);
+            int yValue = dataColumns.getInt(row, y);
+            boolean missing = xValue < 0 || yValue < 0;
+            Integer[] values = new Integer[z.length];
+            for (int j = 0; j < z.length; j++) {
+                values[j] = dataColumns.getInt(row, z[j]);
+                missing |= values[j] < 0;
+            }
+            if (missing) {
+                continue;
+            }
+
+            int configuration = configurations.computeIfAbsent(Arrays.asList(values), k -> configurations.size());
+            expectedCounts.computeIfAbsent(configuration, k -> new int[numOfX][numOfY])[xValue][yValue]++;
+            total++;
+        }
+
+        String message = String.format("x=%d, y=%d, z=%s", x, y, Arrays.toString(z));
+        Assertions.assertEquals(numOfX, table.getNumberOfXCategories(), message);
+        Assertions.assertEquals(numOfY, table.getNumberOfYCategories(), message);
+        Assertions.assertEquals(configurations.size(), table.getNumberOfConfigurations(), message);
+        Assertions.assertEquals(numOfCombinations, table.getNumberOfZCombinations(), message);
+        Assertions.assertEquals(total, table.getTotal(), message);
+        for (int configuration = 0; configuration < configurations.size(); configuration++) {
+            int[][] counts = expectedCounts.getOrDefault(configuration, new int[numOfX][numOfY]);
+            for (int i = 0; i < numOfX; i++) {
+                int xCount = 0;
+                for (int j = 0; j < numOfY; j++) {
+                    Assertions.assertEquals(counts[i][j], table.getCount(configuration, i, j), message);
+                    xCount += counts[i][j];
+                }
+                Assertions.assertEquals(xCount, table.getXCount(configuration, i), message);
+            }
+            for (int j = 0; j < numOfY; j++) {
+                int yCount = 0;
+                for (int i = 0; i < numOfX; i++) {
+                    yCount += counts[i][j];
+                }
+                Assertions.assertEquals(yCount, table.getYCount(configuration, j), message);
+            }
+        }
+    }
+
+    /**
+     * Get the counts of each configuration, sorted.
+     */
+    private static List<String> getCounts(ContingencyTable table) {
+        List<String> counts = new ArrayList<>();
+        for (int configuration = 0; configuration < table.getNumberOfConfigurations(); configuration++) {
+            int[][] configurationCounts = new int[table.getNumberOfXCategories()][table.getNumberOfYCategories()];
+            for (int i = 0; i < configurationCounts.length; i++) {
+                for (int j = 0; j < configurationCounts[i].length; j++) {
+                    configurationCounts[i][j] = table.getCount(configuration, i, j);
+                }
+            }
+            counts.add(Arrays.deepToString(configurationCounts));
+        }
+        Collections.sort(counts);
+
+        return counts;
+    }
+
+    private static int[] shuffle(int size, Random random) {
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+
+        return values;
+    }
+
+}
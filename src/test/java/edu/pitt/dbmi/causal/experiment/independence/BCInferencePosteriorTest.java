@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.independence;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.pitt.dbmi.algo.bayesian.constraint.inference.BCInference;
+import edu.pitt.dbmi.causal.experiment.count.CountEngine;
+import edu.pitt.dbmi.causal.experiment.data.DiscreteDataColumns;
+import edu.pitt.dbmi.causal.experiment.util.DataFiles;
+import edu.pitt.dbmi.causal.experiment.util.ResourceLoader;
+import edu.pitt.dbmi.data.reader.Delimiter;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author agent (agent@local)
+ */
+public class BCInferencePosteriorTest {
+
+    private static final int NUM_OF_TESTS = 50;
+
+    private static final double TOLERANCE = 1e-9;
+
+    /**
+     * Test of probIndependent method, of class BCInferencePosterior. The
+     * posteriors are the ones BCInference computes from the rows of the data.
+     */
+    @Test
+    public void testProbIndependent() throws Exception {
+        DataSet dataSet = (DataSet) ResourceLoader.loadDataModel(Paths.get(DataFiles.SIM_DISC_20VAR_1KCASE), Delimiter.TAB);
+        DiscreteDataColumns dataColumns = DiscreteDataColumns.getInstance(dataSet);
+        CountEngine countEngine = new CountEngine(dataColumns);
+
+        Random random = new Random(42);
+        int numOfCols = dataColumns.getNumberOfColumns();
+        for (double priorEquivalentSampleSize : new double[]{1.0, 10.0}) {
+            for (int i = 0; i < NUM_OF_TESTS; i++) {
+                int[] cols = random.ints(0, numOfCols).distinct().limit(2 + (i % 4)).toArray();
+                int x = cols[0];
+                int y = cols[1];
+                int[] z = Arrays.copyOfRange(cols, 2, cols.length);
+
+                double expected = probIndependent(dataColumns, x, y, z, priorEquivalentSampleSize);
+                double actual = BCInferencePosterior.probIndependent(countEngine.count(x, y, z, null), priorEquivalentSampleSize);
+                Assertions.assertEquals(expected, actual, TOLERANCE,
+                        String.format("x=%d, y=%d, z=%s, ess=%s", x, y, Arrays.toString(z), priorEquivalentSampleSize));
+            }
+        }
+    }
+
+    /**
+     * Compute the posterior with BCInference, from the cases in its one-based
+     * layout with category values shifted up by one.
+     */
+    private static double probIndependent(DiscreteDataColumns dataColumns, int x, int y, int[] z, double priorEquivalentSampleSize) {
+        int[] cols = new int[z.length + 2];
+        cols[0] = x;
+        cols[1] = y;
+        System.arraycopy(z, 0, cols, 2, z.length);
+
+        int numOfRows = dataColumns.getNumberOfRows();
+        int[][] cases = new int[numOfRows + 1][cols.length + 2];
+        int[] nodeDimensions = new int[cols.length + 2];
+        for (int j = 0; j < cols.length; j++) {
+            for (int row = 0; row < numOfRows; row++) {
+                cases[row + 1][j + 1] = dataColumns.getInt(row, cols[j]) + 1;
+            }
+            nodeDimensions[j + 1] = dataColumns.getNumberOfCategories(cols[j]);
+        }
+
+        BCInference bci = new BCInference(cases, nodeDimensions);
+        bci.setPriorEqivalentSampleSize(priorEquivalentSampleSize);
+
+        int[] _z = new int[z.length + 1];
+        _z[0] = z.length;
+        for (int j = 0; j < z.length; j++) {
+            _z[j + 1] = j + 3;
+        }
+
+        return bci.probConstraint(BCInference.OP.independent, 1, 2, _z);
+    }
+
+}
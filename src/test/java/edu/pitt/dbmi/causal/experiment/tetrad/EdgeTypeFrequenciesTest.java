@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.tetrad;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Edge;
+import edu.cmu.tetrad.graph.EdgeTypeProbability;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.GraphSampling;
+import edu.pitt.dbmi.causal.experiment.util.DataFiles;
+import edu.pitt.dbmi.causal.experiment.util.ResourceLoader;
+import edu.pitt.dbmi.causal.experiment.util.SearchGraphs;
+import edu.pitt.dbmi.data.reader.Delimiter;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author agent (agent@local)
+ */
+public class EdgeTypeFrequenciesTest {
+
+    private static final int NUM_OF_GRAPHS = 10;
+
+    /**
+     * Test of createGraphWithHighProbabilityEdges method, of class
+     * EdgeTypeFrequencies. The graph is the one tetrad builds from the same
+     * graphs, up to the order of the edge-type probabilities.
+     */
+    @Test
+    public void testCreateGraphWithHighProbabilityEdges() throws Exception {
+        DataSet dataSet = (DataSet) ResourceLoader.loadDataModel(Paths.get(DataFiles.SIM_DISC_20VAR_1KCASE), Delimiter.TAB);
+        List<Graph> graphs = SearchGraphs.searchBootstrapSamples(dataSet, NUM_OF_GRAPHS, 42);
+
+        EdgeTypeFrequencies edgeTypeFrequencies = new EdgeTypeFrequencies();
+        graphs.forEach(edgeTypeFrequencies::add);
+        Graph graph = edgeTypeFrequencies.createGraphWithHighProbabilityEdges();
+
+        Graph expected = GraphSampling.createGraphWithHighProbabilityEdges(graphs);
+
+        Assertions.assertEquals(NUM_OF_GRAPHS, edgeTypeFrequencies.getNumberOfGraphs());
+        Assertions.assertEquals(expected.getNodeNames(), graph.getNodeNames());
+        Assertions.assertEquals(expected.getNumEdges(), graph.getNumEdges());
+        for (Edge expectedEdge : expected.getEdges()) {
+            Node node1 = graph.getNode(expectedEdge.getNode1().getName());
+            Node node2 = graph.getNode(expectedEdge.getNode2().getName());
+            Edge edge = graph.getEdge(node1, node2);
+            Assertions.assertNotNull(edge, expectedEdge.toString());
+
+            // compare the edges from the same node
+            Assertions.assertEquals(expectedEdge.getEndpoint1(), edge.getProximalEndpoint(node1), expectedEdge.toString());
+            Assertions.assertEquals(expectedEdge.getEndpoint2(), edge.getProximalEndpoint(node2), expectedEdge.toString());
+            Assertions.assertEquals(expectedEdge.getProbability(), edge.getProbability(), 1e-12, expectedEdge.toString());
+            Assertions.assertEquals(getProbabilities(expectedEdge), getProbabilities(edge), expectedEdge.toString());
+        }
+    }
+
+    /**
+     * Get the probability and the PAG coloring of each edge type of the edge,
+     * from the node of lower name.
+     */
+    private static Map<String, String> getProbabilities(Edge edge) {
+        boolean forward = edge.getNode1().getName().compareTo(edge.getNode2().getName()) < 0;
+
+        Map<String, String> probabilities = new HashMap<>();
+        for (EdgeTypeProbability edgeTypeProb : edge.getEdgeTypeProbabilities()) {
+            EdgeTypeProbability.EdgeType edgeType = forward ? edgeTypeProb.getEdgeType() : Edges.getReversed(edgeTypeProb.getEdgeType());
+            probabilities.put(edgeType.name(), String.format("%.12f %s", edgeTypeProb.getProbability(), edgeTypeProb.getProperties()));
+        }
+
+        return probabilities;
+    }
+
+}
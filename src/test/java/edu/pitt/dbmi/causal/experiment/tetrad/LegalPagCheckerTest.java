@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.tetrad;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Edge;
+import edu.cmu.tetrad.graph.EdgeListGraph;
+import edu.cmu.tetrad.graph.Edges;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.search.utils.GraphSearchUtils;
+import edu.pitt.dbmi.causal.experiment.util.DataFiles;
+import edu.pitt.dbmi.causal.experiment.util.GraphFiles;
+import edu.pitt.dbmi.causal.experiment.util.ResourceLoader;
+import edu.pitt.dbmi.causal.experiment.util.SearchGraphs;
+import edu.pitt.dbmi.data.reader.Delimiter;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author agent (agent@local)
+ */
+public class LegalPagCheckerTest {
+
+    private static final int NUM_OF_GRAPHS = 10;
+
+    /**
+     * Test of check method, of class LegalPagChecker. With or without
+     * prechecking, a graph is accepted if and only if tetrad's
+     * GraphSearchUtils.isLegalPag accepts it, checked once and again from
+     * the cache.
+     */
+    @Test
+    public void testCheck() throws Exception {
+        List<Graph> graphs = createGraphs();
+
+        LegalPagChecker prechecking = new LegalPagChecker(true);
+        LegalPagChecker notPrechecking = new LegalPagChecker(false);
+        int numOfLegalPags = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (Graph graph : graphs) {
+                GraphSearchUtils.LegalPagRet expected = GraphSearchUtils.isLegalPag(graph);
+                LegalPagChecker.Reason reason = notPrechecking.check(graph);
+                Assertions.assertEquals(expected.isLegalPag(), reason == null);
+                if (reason != null) {
+                    Assertions.assertEquals(LegalPagChecker.Reason.of(expected.getReason()), reason);
+                }
+                Assertions.assertEquals(expected.isLegalPag(), prechecking.check(graph) == null);
+
+                if (pass == 0 && expected.isLegalPag()) {
+                    numOfLegalPags++;
+                }
+            }
+        }
+
+        // the graphs exercise both answers and the prechecks
+        Assertions.assertTrue(numOfLegalPags > 0);
+        Assertions.assertTrue(numOfLegalPags < graphs.size());
+        Assertions.assertTrue(prechecking.getNumberOfPrecheckRejections() > 0);
+        Assertions.assertEquals(2L * graphs.size(), prechecking.getNumberOfChecks());
+        Assertions.assertTrue(prechecking.getNumberOfCacheHits() >= graphs.size());
+    }
+
+    /**
+     * Create the true PAG, graphs returned by RFCI on bootstrap samples, and
+     * copies of the latter with an edge made directed or bidirected.
+     */
+    private static List<Graph> createGraphs() throws Exception {
+        DataSet dataSet = (DataSet) ResourceLoader.loadDataModel(Paths.get(DataFiles.SIM_DISC_20VAR_1KCASE), Delimiter.TAB);
+        Graph trueGraph = ResourceLoader.loadGraph(Paths.get(GraphFiles.SIM_DISC_20VAR_1KCASE_TRUE_GRAPH));
+
+        List<Graph> graphs = new ArrayList<>();
+        graphs.add(GraphSearchUtils.dagToPag(trueGraph));
+
+        Random random = new Random(42);
+        for (Graph searchGraph : SearchGraphs.searchBootstrapSamples(dataSet, NUM_OF_GRAPHS, 42)) {
+            graphs.add(searchGraph);
+            for (int i = 0; i < 3; i++) {
+                Graph graph = new EdgeListGraph(searchGraph);
+                List<Edge> edges = new ArrayList<>(graph.getEdges());
+                edges.sort(Comparator.comparing(Edge::toString));
+                Edge edge = edges.get(random.nextInt(edges.size()));
+                graph.removeEdge(edge);
+                graph.addEdge(random.nextBoolean()
+                        ? Edges.directedEdge(edge.getNode1(), edge.getNode2())
+                        : Edges.bidirectedEdge(edge.getNode1(), edge.getNode2()));
+                graphs.add(graph);
+            }
+        }
+
+        return graphs;
+    }
+
+}
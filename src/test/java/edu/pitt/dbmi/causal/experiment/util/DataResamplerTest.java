@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.util;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DataUtils;
+import edu.cmu.tetrad.util.Parameters;
+import edu.cmu.tetrad.util.Params;
+import edu.pitt.dbmi.data.reader.Delimiter;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import org.apache.commons.math3.random.Well44497b;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author agent (agent@local)
+ */
+public class DataResamplerTest {
+
+    private static final int NUM_OF_SAMPLES = 5;
+
+    private static final int NUM_OF_ADDITIONAL_SAMPLES = 2;
+
+    /**
+     * Test of next method, of class DataResampler. The samples are the ones
+     * tetrad's DataUtils.getBootstrapSample draws from a generator with the
+     * same seed, followed by the original data set and additional samples.
+     */
+    @Test
+    public void testNext() throws Exception {
+        DataSet dataSet = (DataSet) ResourceLoader.loadDataModel(Paths.get(DataFiles.SIM_DISC_20VAR_1KCASE), Delimiter.TAB);
+
+        Parameters parameters = new Parameters();
+        parameters.set(Params.RESAMPLING_WITH_REPLACEMENT, true);
+        parameters.set(Params.NUMBER_RESAMPLING, NUM_OF_SAMPLES);
+        parameters.set(Params.ADD_ORIGINAL_DATASET, true);
+
+        DataResampler resampler = new DataResampler(dataSet, parameters, new Well44497b(42));
+        Well44497b randomGenerator = new Well44497b(42);
+        Assertions.assertEquals(NUM_OF_SAMPLES + 1, resampler.getNumberOfSamples());
+
+        for (int i = 0; i < NUM_OF_SAMPLES + 1 + NUM_OF_ADDITIONAL_SAMPLES; i++) {
+            int[] rows = resampler.next();
+            if (i == NUM_OF_SAMPLES) {
+                Assertions.assertNull(rows);
+                Assertions.assertSame(dataSet, resampler.getDataSet(rows));
+                Assertions.assertNull(resampler.getRowCounts(rows));
+                continue;
+            }
+
+            DataSet expected = DataUtils.getBootstrapSample(dataSet, dataSet.getNumRows(), randomGenerator);
+            assertSameData(expected, resampler.getDataSet(rows));
+
+            int[] rowCounts = resampler.getRowCounts(rows);
+            Assertions.assertEquals(dataSet.getNumRows(), rowCounts.length);
+            Assertions.assertEquals(dataSet.getNumRows(), Arrays.stream(rowCounts).sum());
+        }
+    }
+
+    private static void assertSameData(DataSet expected, DataSet dataSet) {
+        Assertions.assertEquals(expected.getNumRows(), dataSet.getNumRows());
+        Assertions.assertEquals(expected.getNumColumns(), dataSet.getNumColumns());
+        for (int row = 0; row < expected.getNumRows(); row++) {
+            for (int col = 0; col < expected.getNumColumns(); col++) {
+                Assertions.assertEquals(expected.getInt(row, col), dataSet.getInt(row, col));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.util;
+
+import edu.pitt.dbmi.lib.math.classification.data.ObservedPredictedValue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Simulated predictions of a binary classifier. The predicted values are
+ * normally spread around 0.5, shifted up for the positive cases and down for
+ * the negative ones by half of the separation, and clipped to [0, 1].
+ *
+ * @author agent (agent@local)
+ */
+public final class Predictions {
+
+    private Predictions() {
+    }
+
+    /**
+     * Create cases with random observed values.
+     *
+     * @param numOfCases number of cases
+     * @param separation mean difference between the predicted values of the
+     * positive and the negative cases
+     * @param numOfDecimals number of decimals the predicted values are rounded
+     * to, so that there are ties within and across the classes, or 0 for no
+     * rounding
+     * @param random random generator
+     * @return cases
+     */
+    public static List<ObservedPredictedValue> createObservedPredictedValues(int numOfCases, double separation, int numOfDecimals, Random random) {
+        List<ObservedPredictedValue> observedPredictedValues = new ArrayList<>(numOfCases);
+        for (int i = 0; i < numOfCases; i++) {
+            int observedValue = random.nextInt(2);
+            observedPredictedValues.add(new ObservedPredictedValue(observedValue, predict(observedValue, separation, numOfDecimals, random)));
+        }
+
+        return observedPredictedValues;
+    }
+
+    /**
+     * Create the predictions of another classifier for the same cases.
+     *
+     * @param cases cases whose observed values are kept
+     * @param separation mean difference between the predicted values of the
+     * positive and the negative cases
+     * @param numOfDecimals number of decimals the predicted values are rounded
+     * to, or 0 for no rounding
+     * @param random random generator
+     * @return cases with the new predicted values
+     */
+    public static List<ObservedPredictedValue> createObservedPredictedValues(List<ObservedPredictedValue> cases, double separation, int numOfDecimals, Random random) {
+        List<ObservedPredictedValue> observedPredictedValues = new ArrayList<>(cases.size());
+        for (ObservedPredictedValue value : cases) {
+            int observedValue = value.getObservedValue();
+            observedPredictedValues.add(new ObservedPredictedValue(observedValue, predict(observedValue, separation, numOfDecimals, random)));
+        }
+
+        return observedPredictedValues;
+    }
+
+    private static double predict(int observedValue, double separation, int numOfDecimals, Random random) {
+        double predictedValue = Math.min(1, Math.max(0, 0.5 + separation * (observedValue - 0.5) + 0.25 * random.nextGaussian()));
+        if (numOfDecimals > 0) {
+            double scale = Math.pow(10, numOfDecimals);
+            predictedValue = Math.round(predictedValue * scale) / scale;
+        }
+
+        return predictedValue;
+    }
+
+}
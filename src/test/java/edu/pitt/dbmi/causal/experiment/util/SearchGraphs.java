@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.causal.experiment.util;
+
+import edu.cmu.tetrad.algcomparison.independence.Gsquare;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.search.Rfci;
+import edu.cmu.tetrad.util.Parameters;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.random.Well44497b;
+
+/**
+ * Graphs returned by searches, for tests comparing with tetrad.
+ *
+ * @author agent (agent@local)
+ */
+public final class SearchGraphs {
+
+    private SearchGraphs() {
+    }
+
+    /**
+     * Run RFCI with the G-square test on bootstrap samples of the data, as
+     * the RFCI-G2 bootstrap runner does.
+     *
+     * @param dataSet data to sample
+     * @param numOfGraphs number of samples searched
+     * @param seed seed of the samples
+     * @return graph of each sample, legal PAG or not, in sample order
+     */
+    public static List<Graph> searchBootstrapSamples(DataSet dataSet, int numOfGraphs, long seed) {
+        RandomGenerator randomGenerator = new Well44497b(seed);
+        Parameters parameters = new Parameters();
+
+        List<Graph> graphs = new ArrayList<>(numOfGraphs);
+        for (int i = 0; i < numOfGraphs; i++) {
+            DataSet sample = DataSampling.sampleWithReplacement(dataSet, randomGenerator);
+            graphs.add(new Rfci((new Gsquare()).getTest(sample, parameters)).search());
+        }
+
+        return graphs;
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.lib.math.classification.calibration;
+
+import edu.pitt.dbmi.causal.experiment.util.Predictions;
+import edu.pitt.dbmi.lib.math.classification.data.PredictionColumns;
+import edu.pitt.dbmi.lib.math.classification.data.QuantileSketch;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author agent (agent@local)
+ */
+public class HosmerLemeshowDecileGroupAccumulatorTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    /**
+     * Test of getHosmerLemeshow method, of class
+     * HosmerLemeshowDecileGroupAccumulator. A sketch that keeps every value
+     * gives the thresholds of HosmerLemeshowDecileGroup, so the groups are the
+     * same.
+     */
+    @Test
+    public void testGetHosmerLemeshowWithExactThresholds() {
+        PredictionColumns predictionColumns = PredictionColumns.of(Predictions.createObservedPredictedValues(1000, 0.4, 2, new Random(90210)));
+
+        // the sketch is not compacted while it has room for every value
+        QuantileSketch sketch = new QuantileSketch(predictionColumns.getNumberOfPredictions());
+        for (double predictedValue : predictionColumns.getPredictedValues()) {
+            sketch.update(predictedValue);
+        }
+        HosmerLemeshowDecileGroupAccumulator accumulator = new HosmerLemeshowDecileGroupAccumulator(sketch);
+        accumulator.add(predictionColumns);
+
+        Assertions.assertEquals(0, accumulator.getRankError());
+        assertHosmerLemeshow(new HosmerLemeshowDecileGroup(predictionColumns), accumulator.getHosmerLemeshow());
+    }
+
+    /**
+     * Test of getRankError method, of class
+     * HosmerLemeshowDecileGroupAccumulator. The rank error of the thresholds
+     * is the one found from the sorted predicted values, and is within the
+     * rank error of the sketch.
+     */
+    @Test
+    public void testGetRankError() {
+        PredictionColumns predictionColumns = PredictionColumns.of(Predictions.createObservedPredictedValues(100000, 0.4, 2, new Random(3371)));
+
+        QuantileSketch sketch = new QuantileSketch();
+        for (double predictedValue : predictionColumns.getPredictedValues()) {
+            sketch.update(predictedValue);
+        }
+        HosmerLemeshowDecileGroupAccumulator accumulator = new HosmerLemeshowDecileGroupAccumulator(sketch);
+        accumulator.add(predictionColumns);
+
+        double[] sortedValues = predictionColumns.getPredictedValues().clone();
+        Arrays.sort(sortedValues);
+        int n = sortedValues.length;
+        long maxDistance = 0;
+        double percent = 0.10;
+        for (double threshold : accumulator.getThresholds()) {
+            long rank = Math.min((long) (percent * n), n - 1);
+            long lowestRank = Arrays.stream(sortedValues).filter(value -> value < threshold).count();
+            long highestRank = Arrays.stream(sortedValues).filter(value -> value <= threshold).count() - 1;
+            maxDistance = Math.max(maxDistance, Math.max(0, Math.max(lowestRank - rank, rank - highestRank)));
+            percent += 0.10;
+        }
+
+        Assertions.assertEquals(((double) maxDistance) / n, accumulator.getRankError(), TOLERANCE);
+        Assertions.assertTrue(accumulator.getRankError() <= accumulator.getRankErrorBound());
+        Assertions.assertEquals(n, accumulator.getNumberOfPredictions());
+    }
+
+    /**
+     * Test of merge method, of class HosmerLemeshowDecileGroupAccumulator.
+     * Merging the accumulators of parts of the predictions gives the groups
+     * of all the predictions.
+     */
+    @Test
+    public void testMerge() {
+        PredictionColumns predictionColumns = PredictionColumns.of(Predictions.createObservedPredictedValues(20000, 0.4, 2, new Random(48611)));
+
+        QuantileSketch sketch = new QuantileSketch();
+        for (double predictedValue : predictionColumns.getPredictedValues()) {
+            sketch.update(predictedValue);
+        }
+
+        HosmerLemeshowDecileGroupAccumulator expected = new HosmerLemeshowDecileGroupAccumulator(sketch);
+        expected.add(predictionColumns);
+
+        HosmerLemeshowDecileGroupAccumulator[] accumulators = new HosmerLemeshowDecileGroupAccumulator[3];
+        for (int i = 0; i < accumulators.length; i++) {
+            accumulators[i] = new HosmerLemeshowDecileGroupAccumulator(sketch);
+        }
+        for (int i = 0; i < predictionColumns.getNumberOfPredictions(); i++) {
+            accumulators[i % accumulators.length].add(predictionColumns.getObservedValue(i), predictionColumns.getPredictedValue(i));
+        }
+        HosmerLemeshowDecileGroupAccumulator actual = accumulators[0];
+        actual.merge(accumulators[1]);
+        actual.merge(accumulators[2]);
+
+        Assertions.assertEquals(expected.getRankError(), actual.getRankError());
+        assertHosmerLemeshow(expected.getHosmerLemeshow(), actual.getHosmerLemeshow());
+
+        QuantileSketch otherSketch = new QuantileSketch();
+        otherSketch.update(0.5);
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> actual.merge(new HosmerLemeshowDecileGroupAccumulator(otherSketch)));
+    }
+
+    private static void assertHosmerLemeshow(HosmerLemeshow expected, HosmerLemeshow actual) {
+        Assertions.assertEquals(expected.getNumberOfPredictions(), actual.getNumberOfPredictions());
+        Assertions.assertArrayEquals(expected.getGroups(), actual.getGroups());
+        Assertions.assertArrayEquals(expected.getNumberOfDataPerGroup(), actual.getNumberOfDataPerGroup());
+        Assertions.assertArrayEquals(expected.getPositiveObservedSumPerGroup(), actual.getPositiveObservedSumPerGroup());
+        Assertions.assertArrayEquals(expected.getPredictedSumPerGroup(), actual.getPredictedSumPerGroup(), TOLERANCE);
+        Assertions.assertArrayEquals(expected.getHlChi2PerGroup(), actual.getHlChi2PerGroup(), TOLERANCE);
+        Assertions.assertEquals(expected.getPValue(), actual.getPValue(), TOLERANCE);
+        Assertions.assertEquals(expected.getExpectedCalibrationError(), actual.getExpectedCalibrationError(), TOLERANCE);
+        Assertions.assertEquals(expected.getMaxCalibrationError(), actual.getMaxCalibrationError(), TOLERANCE);
+        Assertions.assertEquals(expected.getAverageCalibrationError(), actual.getAverageCalibrationError(), TOLERANCE);
+    }
+
+}
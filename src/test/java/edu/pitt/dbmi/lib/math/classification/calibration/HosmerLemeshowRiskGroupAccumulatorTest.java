@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.lib.math.classification.calibration;
+
+import edu.pitt.dbmi.causal.experiment.util.Predictions;
+import edu.pitt.dbmi.lib.math.classification.data.ObservedPredictedValue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author agent (agent@local)
+ */
+public class HosmerLemeshowRiskGroupAccumulatorTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    /**
+     * Test of getHosmerLemeshow method, of class
+     * HosmerLemeshowRiskGroupAccumulator. The groups are the ones of
+     * HosmerLemeshowRiskGroup on the same predictions, including predictions
+     * on the bounds of the intervals.
+     */
+    @Test
+    public void testGetHosmerLemeshow() {
+        List<ObservedPredictedValue> observedPredictedValues = createObservedPredictedValues(new Random(5147));
+
+        HosmerLemeshowRiskGroupAccumulator accumulator = new HosmerLemeshowRiskGroupAccumulator();
+        observedPredictedValues.forEach(value -> accumulator.add(value.getObservedValue(), value.getPredictedValue()));
+
+        assertHosmerLemeshow(new HosmerLemeshowRiskGroup(observedPredictedValues), accumulator.getHosmerLemeshow());
+    }
+
+    /**
+     * Test of merge method, of class HosmerLemeshowRiskGroupAccumulator.
+     * Merging the accumulators of parts of the predictions gives the groups
+     * of all the predictions.
+     */
+    @Test
+    public void testMerge() {
+        List<ObservedPredictedValue> observedPredictedValues = createObservedPredictedValues(new Random(23209));
+
+        HosmerLemeshowRiskGroupAccumulator[] accumulators = new HosmerLemeshowRiskGroupAccumulator[3];
+        for (int i = 0; i < accumulators.length; i++) {
+            accumulators[i] = new HosmerLemeshowRiskGroupAccumulator();
+        }
+        for (int i = 0; i < observedPredictedValues.size(); i++) {
+            ObservedPredictedValue value = observedPredictedValues.get(i);
+            accumulators[i % accumulators.length].add(value.getObservedValue(), value.getPredictedValue());
+        }
+
+        HosmerLemeshowRiskGroupAccumulator accumulator = new HosmerLemeshowRiskGroupAccumulator();
+        for (HosmerLemeshowRiskGroupAccumulator part : accumulators) {
+            accumulator.merge(part);
+        }
+
+        Assertions.assertEquals(observedPredictedValues.size(), accumulator.getNumberOfPredictions());
+        assertHosmerLemeshow(new HosmerLemeshowRiskGroup(observedPredictedValues), accumulator.getHosmerLemeshow());
+    }
+
+    /**
+     * Test of add method, of class HosmerLemeshowRiskGroupAccumulator. Adding
+     * a prediction with a count is the same as adding it that many times.
+     */
+    @Test
+    public void testAddWithCount() {
+        Random random = new Random(774);
+        List<ObservedPredictedValue> observedPredictedValues = new ArrayList<>();
+        HosmerLemeshowRiskGroupAccumulator accumulator = new HosmerLemeshowRiskGroupAccumulator();
+        for (ObservedPredictedValue value : createObservedPredictedValues(random)) {
+            int count = random.nextInt(3);
+            accumulator.add(value.getObservedValue(), value.getPredictedValue(), count);
+            for (int i = 0; i < count; i++) {
+                observedPredictedValues.add(value);
+            }
+        }
+
+        Assertions.assertEquals(observedPredictedValues.size(), accumulator.getNumberOfPredictions());
+        assertHosmerLemeshow(new HosmerLemeshowRiskGroup(observedPredictedValues), accumulator.getHosmerLemeshow());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> accumulator.add(1, 0.5, -1));
+    }
+
+    private static void assertHosmerLemeshow(HosmerLemeshow expected, HosmerLemeshow actual) {
+        Assertions.assertEquals(expected.getNumberOfPredictions(), actual.getNumberOfPredictions());
+        Assertions.assertArrayEquals(expected.getGroups(), actual.getGroups());
+        Assertions.assertArrayEquals(expected.getNumberOfDataPerGroup(), actual.getNumberOfDataPerGroup());
+        Assertions.assertArrayEquals(expected.getPositiveObservedSumPerGroup(), actual.getPositiveObservedSumPerGroup());
+        Assertions.assertArrayEquals(expected.getPredictedSumPerGroup(), actual.getPredictedSumPerGroup(), TOLERANCE);
+        Assertions.assertArrayEquals(expected.getHlChi2PerGroup(), actual.getHlChi2PerGroup(), TOLERANCE);
+        Assertions.assertArrayEquals(expected.getHlObservedValues(), actual.getHlObservedValues(), TOLERANCE);
+        Assertions.assertArrayEquals(expected.getHlExpectedValues(), actual.getHlExpectedValues(), TOLERANCE);
+        Assertions.assertEquals(expected.getDegreesOfFreedom(), actual.getDegreesOfFreedom());
+        Assertions.assertEquals(expected.getPValue(), actual.getPValue(), TOLERANCE);
+        Assertions.assertEquals(expected.getExpectedCalibrationError(), actual.getExpectedCalibrationError(), TOLERANCE);
+        Assertions.assertEquals(expected.getMaxCalibrationError(), actual.getMaxCalibrationError(), TOLERANCE);
+        Assertions.assertEquals(expected.getAverageCalibrationError(), actual.getAverageCalibrationError(), TOLERANCE);
+    }
+
+    /**
+     * Create predictions, a few of them on the bounds of the intervals.
+     */
+    private static List<ObservedPredictedValue> createObservedPredictedValues(Random random) {
+        List<ObservedPredictedValue> observedPredictedValues = Predictions.createObservedPredictedValues(2000, 0.4, 0, random);
+        double bound = 0;
+        for (int i = 0; i <= HosmerLemeshow.NUM_OF_INTERVAL; i++) {
+            observedPredictedValues.add(new ObservedPredictedValue(i % 2, i / 10.0));
+            observedPredictedValues.add(new ObservedPredictedValue((i + 1) % 2, bound));
+            bound += 0.1;
+        }
+
+        return observedPredictedValues;
+    }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.lib.math.classification.data;
+
+import edu.pitt.dbmi.causal.experiment.util.Predictions;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author agent (agent@local)
+ */
+public class QuantileSketchTest {
+
+    private static final int NUM_OF_VALUES = 100000;
+
+    /**
+     * Test of getQuantile method, of class QuantileSketch. The ranks of the
+     * estimated quantiles in the sorted values are within the rank error of
+     * the sketch.
+     */
+    @Test
+    public void testGetQuantile() {
+        double[] values = createValues(new Random(7541));
+
+        QuantileSketch sketch = new QuantileSketch();
+        for (double value : values) {
+            sketch.update(value);
+        }
+
+        assertRankError(sketch, values);
+    }
+
+    /**
+     * Test of update method, of class QuantileSketch. NaN values are ignored
+     * and the smallest and largest values are kept exactly.
+     */
+    @Test
+    public void testUpdate() {
+        double[] values = createValues(new Random(28657));
+
+        QuantileSketch sketch = new QuantileSketch();
+        for (double value : values) {
+            sketch.update(value);
+            sketch.update(Double.NaN);
+        }
+
+        double[] sortedValues = values.clone();
+        Arrays.sort(sortedValues);
+        Assertions.assertEquals(values.length, sketch.getN());
+        Assertions.assertEquals(sortedValues[0], sketch.getMinValue());
+        Assertions.assertEquals(sortedValues[values.length - 1], sketch.getMaxValue());
+        Assertions.assertEquals(sortedValues[0], sketch.getQuantile(0));
+        Assertions.assertEquals(sortedValues[values.length - 1], sketch.getQuantile(1));
+    }
+
+    /**
+     * Test of merge method, of class QuantileSketch. The sketch merged from
+     * the sketches of parts of the values has the rank error of a sketch of
+     * all the values.
+     */
+    @Test
+    public void testMerge() {
+        double[] values = createValues(new Random(1597));
+
+        QuantileSketch[] sketches = new QuantileSketch[4];
+        for (int i = 0; i < sketches.length; i++) {
+            sketches[i] = new QuantileSketch();
+        }
+        for (int i = 0; i < values.length; i++) {
+            sketches[i % sketches.length].update(values[i]);
+        }
+
+        QuantileSketch sketch = new QuantileSketch();
+        for (QuantileSketch part : sketches) {
+            sketch.merge(part);
+        }
+
+        assertRankError(sketch, values);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> sketch.merge(new QuantileSketch(100)));
+    }
+
+    /**
+     * Test of merge method, of class QuantileSketch. A sketch merged with
+     * itself is a sketch of its values taken twice.
+     */
+    @Test
+    public void testMergeWithItself() {
+        double[] values = createValues(new Random(46349));
+
+        QuantileSketch sketch = new QuantileSketch();
+        for (double value : values) {
+            sketch.update(value);
+        }
+        sketch.merge(sketch);
+
+        double[] doubledValues = new double[2 * values.length];
+        System.arraycopy(values, 0, doubledValues, 0, values.length);
+        System.arraycopy(values, 0, doubledValues, values.length, values.length);
+
+        assertRankError(sketch, doubledValues);
+    }
+
+    private static void assertRankError(QuantileSketch sketch, double[] values) {
+        double[] sortedValues = values.clone();
+        Arrays.sort(sortedValues);
+
+        int n = sortedValues.length;
+        Assertions.assertEquals(n, sketch.getN());
+        for (int i = 1; i < 100; i++) {
+            double fraction = i / 100.0;
+            double quantile = sketch.getQuantile(fraction);
+
+            // the ranks of the quantile are from the first value equal to it
+            // to the last one
+            int lowestRank = countBelow(quantile, sortedValues);
+            int highestRank = countNotAbove(quantile, sortedValues) - 1;
+            long rank = (long) (fraction * n);
+            long distance = Math.max(0, Math.max(lowestRank - rank, rank - highestRank));
+
+            Assertions.assertTrue(((double) distance) / n <= sketch.getNormalizedRankError(),
+                    String.format("Rank error of the %.2f quantile is %f.", fraction, ((double) distance) / n));
+        }
+    }
+
+    private static int countBelow(double value, double[] sortedValues) {
+        int index = Arrays.binarySearch(sortedValues, value);
+        if (index < 0) {
+            return -index - 1;
+        }
+        while (index > 0 && sortedValues[index - 1] == value) {
+            index--;
+        }
+
+        return index;
+    }
+
+    private static int countNotAbove(double value, double[] sortedValues) {
+        int index = Arrays.binarySearch(sortedValues, value);
+        if (index < 0) {
+            return -index - 1;
+        }
+        while (index < sortedValues.length && sortedValues[index] == value) {
+            index++;
+        }
+
+        return index;
+    }
+
+    /**
+     * Create predicted values, some of them tied.
+     */
+    private static double[] createValues(Random random) {
+        return PredictionColumns.of(Predictions.createObservedPredictedValues(NUM_OF_VALUES, 0.4, 3, random)).getPredictedValues();
+    }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.lib.math.classification.roc;
+
+import edu.pitt.dbmi.causal.experiment.util.Predictions;
+import edu.pitt.dbmi.lib.math.classification.data.ObservedPredictedValue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author agent (agent@local)
+ */
+public class ConfusionMatrixTableTest {
+
+    private static final double TOLERANCE = 1e-12;
+
+    /**
+     * Test of the confusion matrix table of class ROCCurve. There is a row at
+     * the initial threshold of -1.0 and a row at each distinct predicted
+     * value, in descending order, counting the cases at or above it as
+     * predicted positive.
+     */
+    @Test
+    public void testROCCurve() {
+        List<ObservedPredictedValue> observedPredictedValues = Predictions.createObservedPredictedValues(1000, 0.2, 2, new Random(35023));
+        TreeSet<Double> distinctValues = new TreeSet<>();
+        observedPredictedValues.forEach(value -> distinctValues.add(value.getPredictedValue()));
+
+        ROCCurve roc = new ROCCurve(observedPredictedValues);
+        ConfusionMatrixTable table = roc.getConfusionMatrixTable();
+
+        List<Double> thresholds = new ArrayList<>();
+        thresholds.add(-1.0);
+        thresholds.addAll(distinctValues.descendingSet());
+        Assertions.assertEquals(thresholds.size(), table.getNumberOfRows());
+        for (int row = 0; row < thresholds.size(); row++) {
+            double threshold = thresholds.get(row);
+            int truePositives = 0;
+            int trueNegatives = 0;
+            int falsePositives = 0;
+            int falseNegatives = 0;
+            for (ObservedPredictedValue value : observedPredictedValues) {
+                boolean predictedPositive = row > 0 && value.getPredictedValue() >= threshold;
+                if (value.getObservedValue() == 1) {
+                    if (predictedPositive) {
+                        truePositives++;
+                    } else {
+                        falseNegatives++;
+                    }
+                } else {
+                    if (predictedPositive) {
+                        falsePositives++;
+                    } else {
+                        trueNegatives++;
+                    }
+                }
+            }
+
+            String message = String.format("Row %d", row);
+            Assertions.assertEquals(threshold, table.getThreshold(row), message);
+            Assertions.assertEquals(truePositives, table.getTruePositives(row), message);
+            Assertions.assertEquals(trueNegatives, table.getTrueNegatives(row), message);
+            Assertions.assertEquals(falsePositives, table.getFalsePositives(row), message);
+            Assertions.assertEquals(falseNegatives, table.getFalseNegatives(row), message);
+            Assertions.assertEquals(table.getTruePositiveRate(row), roc.getTruePositiveRates()[row], message);
+            Assertions.assertEquals(table.getFalsePositiveRate(row), roc.getFalsePositiveRates()[row], message);
+        }
+    }
+
+    /**
+     * Test of the rates of class ConfusionMatrixTable. The rates of each row,
+     * and of the confusion matrix viewing it, are the ones computed from the
+     * counts, including rows with no positive or no negative cases.
+     */
+    @Test
+    public void testRates() {
+        int[] truePositives = {0, 0, 3, 5, 0, 7};
+        int[] trueNegatives = {0, 4, 2, 0, 0, 1};
+        int[] falsePositives = {0, 0, 1, 2, 6, 0};
+        int[] falseNegatives = {0, 3, 0, 4, 0, 2};
+        double[] thresholds = {-1.0, 0.9, 0.7, 0.5, 0.3, 0.1};
+
+        ConfusionMatrixTable table = new ConfusionMatrixTable(truePositives, trueNegatives, falsePositives, falseNegatives, thresholds);
+        ConfusionMatrix[] confusionMatrices = table.getConfusionMatrices();
+        Assertions.assertEquals(thresholds.length, table.getNumberOfRows());
+        Assertions.assertEquals(thresholds.length, confusionMatrices.length);
+        for (int row = 0; row < thresholds.length; row++) {
+            int tp = truePositives[row];
+            int tn = trueNegatives[row];
+            int fp = falsePositives[row];
+            int fn = falseNegatives[row];
+            double[] expected = {
+                ratio(tp + tn, tp + tn + fp + fn),
+                ratio(2 * tp, 2 * tp + fp + fn),
+                ratio(fp, tp + fp),
+                ratio(tp, tp + fn),
+                ratio(tn, tn + fp),
+                ratio(fp, tn + fp),
+                ratio(tn, tn + fn),
+                ratio(tp, tp + fp),
+                ratio(fp + fn, tp + tn + fp + fn),
+                ratio(tp + fn, tp + tn + fp + fn)
+            };
+
+            double[] actual = {
+                table.getAccuracy(row),
+                table.getF1score(row),
+                table.getFalseDiscoveryRate(row),
+                table.getTruePositiveRate(row),
+                table.getTrueNegativeRate(row),
+                table.getFalsePositiveRate(row),
+                table.getNegativePredictiveValue(row),
+                table.getPositivePredictiveValue(row),
+                table.getMisclassificationRate(row),
+                table.getPrevalence(row)
+            };
+            Assertions.assertArrayEquals(expected, actual, TOLERANCE, String.format("Row %d", row));
+
+            ConfusionMatrix confusionMatrix = confusionMatrices[row];
+            double[] view = {
+                confusionMatrix.getAccuracy(),
+                confusionMatrix.getF1score(),
+                confusionMatrix.getFalseDiscoveryRate(),
+                confusionMatrix.getTruePositiveRate(),
+                confusionMatrix.getTrueNegativeRate(),
+                confusionMatrix.getFalsePositiveRate(),
+                confusionMatrix.getNegativePredictiveValue(),
+                confusionMatrix.getPositivePredictiveValue(),
+                confusionMatrix.getMisclassificationRate(),
+                confusionMatrix.getPrevalence()
+            };
+            Assertions.assertArrayEquals(expected, view, TOLERANCE, String.format("Confusion matrix of row %d", row));
+
+            ConfusionMatrix standalone = new ConfusionMatrix(tp, tn, fp, fn, thresholds[row]);
+            Assertions.assertEquals(tp, standalone.getTruePositives());
+            Assertions.assertEquals(tn, standalone.getTrueNegatives());
+            Assertions.assertEquals(fp, standalone.getFalsePositives());
+            Assertions.assertEquals(fn, standalone.getFalseNegatives());
+            Assertions.assertEquals(thresholds[row], standalone.getThreshold());
+            Assertions.assertEquals(expected[0], standalone.getAccuracy(), TOLERANCE);
+            Assertions.assertEquals(expected[3], standalone.getTruePositiveRate(), TOLERANCE);
+        }
+
+        Assertions.assertArrayEquals(new double[]{0, 0, 1, 5.0 / 9, 0, 7.0 / 9}, table.getTruePositiveRates(), TOLERANCE);
+        Assertions.assertArrayEquals(new double[]{0, 0, 1.0 / 3, 1, 1, 0}, table.getFalsePositiveRates(), TOLERANCE);
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> table.getConfusionMatrix(thresholds.length));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new ConfusionMatrixTable(truePositives, trueNegatives, falsePositives, falseNegatives, new double[1]));
+    }
+
+    private static double ratio(int numerator, int denominator) {
+        return (denominator == 0) ? 0 : ((double) numerator) / denominator;
+    }
+
+}
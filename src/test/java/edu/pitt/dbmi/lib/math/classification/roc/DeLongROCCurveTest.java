@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.lib.math.classification.roc;
+
+import edu.pitt.dbmi.causal.experiment.util.Predictions;
+import edu.pitt.dbmi.lib.math.classification.data.ObservedPredictedValue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author agent (agent@local)
+ */
+public class DeLongROCCurveTest {
+
+    private static final double TOLERANCE = 1e-12;
+
+    /**
+     * Test of the construction of class DeLongROCCurve. The rates and the
+     * confusion matrices are the ones counted by comparing each cutoff with
+     * every predicted value.
+     */
+    @Test
+    public void testDeLongROCCurve() {
+        Random random = new Random(1918);
+        for (int numOfDecimals = 1; numOfDecimals <= 3; numOfDecimals++) {
+            List<ObservedPredictedValue> observedPredictedValues = Predictions.createObservedPredictedValues(500, 0.2, numOfDecimals, random);
+
+            DeLongROCCurve roc = new DeLongROCCurve(observedPredictedValues);
+
+            // cutoffs in descending order of predicted value
+            List<ObservedPredictedValue> data = new ArrayList<>(observedPredictedValues);
+            Collections.sort(data, Collections.reverseOrder());
+            double[] positives = data.stream().filter(value -> value.getObservedValue() == 1).mapToDouble(ObservedPredictedValue::getPredictedValue).toArray();
+            double[] negatives = data.stream().filter(value -> value.getObservedValue() == 0).mapToDouble(ObservedPredictedValue::getPredictedValue).toArray();
+
+            Assertions.assertEquals(positives.length, roc.getNumberOfPositives());
+            Assertions.assertEquals(negatives.length, roc.getNumberOfNegatives());
+            Assertions.assertArrayEquals(positives, roc.getPositivePredictedValues());
+            Assertions.assertArrayEquals(negatives, roc.getNegativePredictedValues());
+
+            ConfusionMatrix[] confusionMatrices = roc.getConfusionMatrices();
+            Assertions.assertEquals(data.size(), confusionMatrices.length);
+            double areaUnderCurve = 0;
+            double x1 = 0;
+            double y1 = 0;
+            for (int i = 0; i < data.size(); i++) {
+                double z = data.get(i).getPredictedValue();
+                double sensitivity = ((double) countNotBelow(z, positives)) / positives.length;
+                double specificity = ((double) countBelow(z, negatives)) / negatives.length;
+
+                Assertions.assertEquals(sensitivity, roc.getTruePositiveRates()[i], TOLERANCE);
+                Assertions.assertEquals(1 - specificity, roc.getFalsePositiveRates()[i], TOLERANCE);
+
+                ConfusionMatrix confusionMatrix = confusionMatrices[i];
+                int truePositives = (int) (sensitivity * positives.length);
+                int trueNegatives = (int) (specificity * negatives.length);
+                Assertions.assertEquals(truePositives, confusionMatrix.getTruePositives());
+                Assertions.assertEquals(positives.length - truePositives, confusionMatrix.getFalseNegatives());
+                Assertions.assertEquals(trueNegatives, confusionMatrix.getTrueNegatives());
+                Assertions.assertEquals(negatives.length - trueNegatives, confusionMatrix.getFalsePositives());
+                Assertions.assertEquals(z, confusionMatrix.getThreshold());
+
+                areaUnderCurve += Math.abs(x1 - (1 - specificity)) * (y1 + sensitivity) / 2;
+                x1 = 1 - specificity;
+                y1 = sensitivity;
+            }
+            Assertions.assertEquals(areaUnderCurve, roc.getAreaUnderRocCurve(), TOLERANCE);
+        }
+    }
+
+    private static int countNotBelow(double z, double[] values) {
+        int count = 0;
+        for (double value : values) {
+            if (value >= z) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private static int countBelow(double z, double[] values) {
+        int count = 0;
+        for (double value : values) {
+            if (value < z) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.lib.math.classification.roc;
+
+import edu.pitt.dbmi.causal.experiment.util.Predictions;
+import edu.pitt.dbmi.lib.math.classification.data.PredictionColumns;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author agent (agent@local)
+ */
+public class StreamingROCTest {
+
+    private static final double TOLERANCE = 1e-12;
+
+    private static final int NUM_OF_BINS = 256;
+
+    private static final int MAX_DISTINCT_VALUES = 128;
+
+    /**
+     * Test of class StreamingROC with exact counts. The curve is the one of
+     * ROCCurve on the same predictions.
+     */
+    @Test
+    public void testExactCounts() {
+        PredictionColumns predictionColumns = PredictionColumns.of(Predictions.createObservedPredictedValues(5000, 0.4, 2, new Random(12011)));
+
+        StreamingROC roc = new StreamingROC(NUM_OF_BINS, MAX_DISTINCT_VALUES);
+        roc.add(predictionColumns);
+        ROCCurve expected = new ROCCurve(predictionColumns);
+
+        Assertions.assertTrue(roc.isExact());
+        Assertions.assertEquals(0, roc.getAreaUnderRocCurveError());
+        assertConfusionMatrixTable(expected.getConfusionMatrixTable(), roc.getConfusionMatrixTable());
+        Assertions.assertEquals(expected.getNumberOfPositives(), roc.getNumberOfPositives());
+        Assertions.assertEquals(expected.getNumberOfNegatives(), roc.getNumberOfNegatives());
+        Assertions.assertArrayEquals(expected.getPositivePredictedValues(), roc.getPositivePredictedValues());
+        Assertions.assertArrayEquals(expected.getNegativePredictedValues(), roc.getNegativePredictedValues());
+        Assertions.assertArrayEquals(expected.getTruePositiveRates(), roc.getTruePositiveRates(), TOLERANCE);
+        Assertions.assertArrayEquals(expected.getFalsePositiveRates(), roc.getFalsePositiveRates(), TOLERANCE);
+        Assertions.assertEquals(expected.getAreaUnderRocCurve(), roc.getAreaUnderRocCurve(), TOLERANCE);
+    }
+
+    /**
+     * Test of class StreamingROC with binned counts. Each point of the curve
+     * is the exact point at the lower bound of its bin, and the area under
+     * the curve is within the error bound of the exact area.
+     */
+    @Test
+    public void testBinnedCounts() {
+        PredictionColumns predictionColumns = PredictionColumns.of(Predictions.createObservedPredictedValues(5000, 0.4, 0, new Random(6203)));
+
+        StreamingROC roc = new StreamingROC(NUM_OF_BINS, MAX_DISTINCT_VALUES);
+        roc.add(predictionColumns);
+        Assertions.assertFalse(roc.isExact());
+
+        // exact points at the lower bounds of the bins
+        ConfusionMatrixTable table = roc.getConfusionMatrixTable();
+        int[] binPositives = new int[NUM_OF_BINS];
+        int[] binNegatives = new int[NUM_OF_BINS];
+        for (int i = 0; i < predictionColumns.getNumberOfPredictions(); i++) {
+            int bin = (int) Math.min(NUM_OF_BINS - 1, Math.floor(predictionColumns.getPredictedValue(i) * NUM_OF_BINS));
+            if (predictionColumns.getObservedValue(i) == 1) {
+                binPositives[bin]++;
+            } else {
+                binNegatives[bin]++;
+            }
+        }
+        for (int row = 1; row < table.getNumberOfRows(); row++) {
+            double threshold = table.getThreshold(row);
+            int truePositives = 0;
+            int falsePositives = 0;
+            for (int i = 0; i < predictionColumns.getNumberOfPredictions(); i++) {
+                if (predictionColumns.getPredictedValue(i) >= threshold) {
+                    if (predictionColumns.getObservedValue(i) == 1) {
+                        truePositives++;
+                    } else {
+                        falsePositives++;
+                    }
+                }
+            }
+            Assertions.assertEquals(truePositives, table.getTruePositives(row), String.format("Threshold %f", threshold));
+            Assertions.assertEquals(falsePositives, table.getFalsePositives(row), String.format("Threshold %f", threshold));
+        }
+
+        // the error bound is half the fraction of pairs in the same bin
+        double numOfTiedPairs = 0;
+        for (int bin = 0; bin < NUM_OF_BINS; bin++) {
+            numOfTiedPairs += ((double) binPositives[bin]) * binNegatives[bin];
+        }
+        double error = numOfTiedPairs / (2.0 * roc.getNumberOfPositives() * roc.getNumberOfNegatives());
+        Assertions.assertEquals(error, roc.getAreaUnderRocCurveError(), TOLERANCE);
+        Assertions.assertTrue(error > 0);
+
+        double exactArea = new ROCCurve(predictionColumns).getAreaUnderRocCurve();
+        Assertions.assertTrue(Math.abs(roc.getAreaUnderRocCurve() - exactArea) <= error + TOLERANCE,
+                String.format("Area %f is off from the exact area %f by more than %f.", roc.getAreaUnderRocCurve(), exactArea, error));
+    }
+
+    /**
+     * Test of merge method, of class StreamingROC. Merging the ROCs of parts
+     * of the predictions, some exact and some binned, gives the ROC of all
+     * the predictions.
+     */
+    @Test
+    public void testMerge() {
+        Random random = new Random(40961);
+        PredictionColumns[] parts = {
+            PredictionColumns.of(Predictions.createObservedPredictedValues(1000, 0.4, 1, random)),
+            PredictionColumns.of(Predictions.createObservedPredictedValues(1000, 0.4, 0, random)),
+            PredictionColumns.of(Predictions.createObservedPredictedValues(1000, 0.4, 2, random))
+        };
+
+        StreamingROC expected = new StreamingROC(NUM_OF_BINS, MAX_DISTINCT_VALUES);
+        StreamingROC actual = new StreamingROC(NUM_OF_BINS, MAX_DISTINCT_VALUES);
+        for (PredictionColumns part : parts) {
+            expected.add(part);
+
+            StreamingROC roc = new StreamingROC(NUM_OF_BINS, MAX_DISTINCT_VALUES);
+            roc.add(part);
+            actual.merge(roc);
+        }
+
+        assertConfusionMatrixTable(expected.getConfusionMatrixTable(), actual.getConfusionMatrixTable());
+        Assertions.assertEquals(expected.getAreaUnderRocCurve(), actual.getAreaUnderRocCurve(), TOLERANCE);
+        Assertions.assertEquals(expected.getAreaUnderRocCurveError(), actual.getAreaUnderRocCurveError(), TOLERANCE);
+
+        // merged with itself, the ROC counts its predictions twice
+        for (PredictionColumns part : parts) {
+            expected.add(part);
+        }
+        actual.merge(actual);
+        assertConfusionMatrixTable(expected.getConfusionMatrixTable(), actual.getConfusionMatrixTable());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> actual.merge(new StreamingROC(2 * NUM_OF_BINS, MAX_DISTINCT_VALUES)));
+    }
+
+    private static void assertConfusionMatrixTable(ConfusionMatrixTable expected, ConfusionMatrixTable actual) {
+        Assertions.assertArrayEquals(expected.getThresholds(), actual.getThresholds());
+        Assertions.assertArrayEquals(expected.getTruePositives(), actual.getTruePositives());
+        Assertions.assertArrayEquals(expected.getTrueNegatives(), actual.getTrueNegatives());
+        Assertions.assertArrayEquals(expected.getFalsePositives(), actual.getFalsePositives());
+        Assertions.assertArrayEquals(expected.getFalseNegatives(), actual.getFalseNegatives());
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.lib.math.classification.roc.stat;
+
+import edu.pitt.dbmi.causal.experiment.util.Predictions;
+import edu.pitt.dbmi.lib.math.classification.calibration.HosmerLemeshow;
+import edu.pitt.dbmi.lib.math.classification.calibration.HosmerLemeshowRiskGroup;
+import edu.pitt.dbmi.lib.math.classification.data.PredictionColumns;
+import edu.pitt.dbmi.lib.math.classification.roc.ROCCurve;
+import java.util.Random;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author agent (agent@local)
+ */
+public class BootstrapTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    private static final int NUM_OF_REPLICATES = 200;
+
+    private static final long SEED = 318;
+
+    /**
+     * Test of class Bootstrap. The intervals only depend on the seed, not on
+     * the number of threads.
+     */
+    @Test
+    public void testBootstrapWithDifferentNumbersOfThreads() {
+        PredictionColumns predictionColumns = PredictionColumns.of(Predictions.createObservedPredictedValues(500, 0.4, 2, new Random(2207)));
+
+        Bootstrap expected = new Bootstrap(predictionColumns, NUM_OF_REPLICATES, SEED, Bootstrap.DEFAULT_CONFIDENCE_LEVEL, 1);
+        for (int numOfThreads : new int[]{2, 4}) {
+            Bootstrap actual = new Bootstrap(predictionColumns, NUM_OF_REPLICATES, SEED, Bootstrap.DEFAULT_CONFIDENCE_LEVEL, numOfThreads);
+            for (Bootstrap.Statistic statistic : Bootstrap.Statistic.values()) {
+                BootstrapConfidenceInterval expectedInterval = expected.getConfidenceInterval(statistic);
+                BootstrapConfidenceInterval actualInterval = actual.getConfidenceInterval(statistic);
+                String message = String.format("%s on %d threads", statistic, numOfThreads);
+                Assertions.assertEquals(expectedInterval.getEstimate(), actualInterval.getEstimate(), message);
+                Assertions.assertEquals(expectedInterval.getStandardError(), actualInterval.getStandardError(), message);
+                Assertions.assertEquals(expectedInterval.getLowerConfidenceInterval(), actualInterval.getLowerConfidenceInterval(), message);
+                Assertions.assertEquals(expectedInterval.getUpperConfidenceInterval(), actualInterval.getUpperConfidenceInterval(), message);
+                Assertions.assertEquals(expectedInterval.getNumberOfReplicates(), actualInterval.getNumberOfReplicates(), message);
+            }
+            Assertions.assertEquals(expected.toString(), actual.toString());
+        }
+    }
+
+    /**
+     * Test of class Bootstrap. The estimates and the intervals are the ones
+     * computed by copying each resample and building its ROCCurve and
+     * HosmerLemeshowRiskGroup.
+     */
+    @Test
+    public void testBootstrapAgainstResamples() {
+        PredictionColumns predictionColumns = PredictionColumns.of(Predictions.createObservedPredictedValues(300, 0.4, 2, new Random(15307)));
+        int numOfCases = predictionColumns.getNumberOfPredictions();
+
+        Bootstrap bootstrap = new Bootstrap(predictionColumns, NUM_OF_REPLICATES, SEED, Bootstrap.DEFAULT_CONFIDENCE_LEVEL, 2);
+
+        // resamples draw positions in ascending order of the predicted values
+        int[] ascendingOrder = predictionColumns.getAscendingOrder();
+        SplittableRandom random = new SplittableRandom(SEED);
+        double[][] replicates = new double[Bootstrap.Statistic.values().length][NUM_OF_REPLICATES];
+        for (int i = 0; i < NUM_OF_REPLICATES; i++) {
+            SplittableRandom replicateRandom = random.split();
+            double[] predictedValues = new double[numOfCases];
+            byte[] observedValues = new byte[numOfCases];
+            for (int j = 0; j < numOfCases; j++) {
+                int index = ascendingOrder[replicateRandom.nextInt(numOfCases)];
+                predictedValues[j] = predictionColumns.getPredictedValue(index);
+                observedValues[j] = (byte) predictionColumns.getObservedValue(index);
+            }
+
+            double[] statistics = computeStatistics(new PredictionColumns(predictedValues, observedValues));
+            for (int k = 0; k < statistics.length; k++) {
+                replicates[k][i] = statistics[k];
+            }
+        }
+
+        double[] estimates = computeStatistics(predictionColumns);
+        for (Bootstrap.Statistic statistic : Bootstrap.Statistic.values()) {
+            BootstrapConfidenceInterval expected = new BootstrapConfidenceInterval(
+                    estimates[statistic.ordinal()], replicates[statistic.ordinal()], Bootstrap.DEFAULT_CONFIDENCE_LEVEL);
+            BootstrapConfidenceInterval actual = bootstrap.getConfidenceInterval(statistic);
+            String message = statistic.toString();
+            Assertions.assertEquals(expected.getEstimate(), actual.getEstimate(), TOLERANCE, message);
+            Assertions.assertEquals(expected.getStandardError(), actual.getStandardError(), TOLERANCE, message);
+            Assertions.assertEquals(expected.getLowerConfidenceInterval(), actual.getLowerConfidenceInterval(), TOLERANCE, message);
+            Assertions.assertEquals(expected.getUpperConfidenceInterval(), actual.getUpperConfidenceInterval(), TOLERANCE, message);
+            Assertions.assertEquals(expected.getNumberOfReplicates(), actual.getNumberOfReplicates(), message);
+        }
+    }
+
+    private static double[] computeStatistics(PredictionColumns predictionColumns) {
+        double[] statistics = new double[Bootstrap.Statistic.values().length];
+
+        statistics[Bootstrap.Statistic.AUC.ordinal()] = new ROCCurve(predictionColumns).getAreaUnderRocCurve();
+
+        HosmerLemeshow hosmerLemeshow = new HosmerLemeshowRiskGroup(predictionColumns);
+        statistics[Bootstrap.Statistic.ECE.ordinal()] = hosmerLemeshow.getExpectedCalibrationError();
+        statistics[Bootstrap.Statistic.MCE.ordinal()] = hosmerLemeshow.getMaxCalibrationError();
+        statistics[Bootstrap.Statistic.ACE.ordinal()] = hosmerLemeshow.getAverageCalibrationError();
+
+        return statistics;
+    }
+
+}
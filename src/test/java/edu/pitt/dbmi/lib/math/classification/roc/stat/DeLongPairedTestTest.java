@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2023 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.lib.math.classification.roc.stat;
+
+import edu.pitt.dbmi.causal.experiment.util.Predictions;
+import edu.pitt.dbmi.lib.math.classification.data.ObservedPredictedValue;
+import edu.pitt.dbmi.lib.math.classification.roc.DeLongROCCurve;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.commons.math3.distribution.NormalDistribution;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author agent (agent@local)
+ */
+public class DeLongPairedTestTest {
+
+    private static final double TOLERANCE = 1e-12;
+
+    /**
+     * Test of the standard error of class DeLongConfidenceInterval. The
+     * standard error from the midrank placement values is the one from
+     * comparing every positive case with every negative case.
+     */
+    @Test
+    public void testDeLongConfidenceInterval() {
+        Random random = new Random(60331);
+        for (int numOfDecimals = 1; numOfDecimals <= 3; numOfDecimals++) {
+            List<ObservedPredictedValue> observedPredictedValues = Predictions.createObservedPredictedValues(400, 0.3, numOfDecimals, random);
+
+            DeLongROCCurve roc = new DeLongROCCurve(observedPredictedValues);
+            DeLongConfidenceInterval confidenceInterval = new DeLongConfidenceInterval(roc);
+
+            double[] positives = roc.getPositivePredictedValues();
+            double[] negatives = roc.getNegativePredictedValues();
+            double[] positivePlacements = positivePlacements(positives, negatives);
+            double[] negativePlacements = negativePlacements(positives, negatives);
+            double auc = roc.getAreaUnderRocCurve();
+            double expected = Math.sqrt(covariance(positivePlacements, positivePlacements, auc, auc) / positives.length
+                    + covariance(negativePlacements, negativePlacements, auc, auc) / negatives.length);
+
+            Assertions.assertEquals(expected, confidenceInterval.getStandardError(), TOLERANCE);
+            Assertions.assertEquals(DeLongConfidenceInterval.computePairwiseStandardError(roc), confidenceInterval.getStandardError(), TOLERANCE);
+        }
+    }
+
+    /**
+     * Test of class DeLongPairedTest. The areas, the variances, the covariance
+     * and the test statistics are the ones from the placement values computed
+     * by comparing every positive case with every negative case.
+     */
+    @Test
+    public void testDeLongPairedTest() {
+        Random random = new Random(8675);
+        for (int numOfDecimals = 1; numOfDecimals <= 3; numOfDecimals++) {
+            List<ObservedPredictedValue> observedPredictedValues1 = Predictions.createObservedPredictedValues(400, 0.3, numOfDecimals, random);
+            List<ObservedPredictedValue> observedPredictedValues2 = Predictions.createObservedPredictedValues(observedPredictedValues1, 0.2, numOfDecimals, random);
+
+            DeLongPairedTest pairedTest = new DeLongPairedTest(observedPredictedValues1, observedPredictedValues2);
+
+            double[][] positives = new double[2][];
+            double[][] negatives = new double[2][];
+            positives[0] = predictedValues(observedPredictedValues1, 1);
+            negatives[0] = predictedValues(observedPredictedValues1, 0);
+            positives[1] = predictedValues(observedPredictedValues2, 1);
+            negatives[1] = predictedValues(observedPredictedValues2, 0);
+
+            double[][] positivePlacements = new double[2][];
+            double[][] negativePlacements = new double[2][];
+            double[] auc = new double[2];
+            for (int k = 0; k < 2; k++) {
+                positivePlacements[k] = positivePlacements(positives[k], negatives[k]);
+                negativePlacements[k] = negativePlacements(positives[k], negatives[k]);
+                auc[k] = mannWhitney(positives[k], negatives[k]);
+            }
+
+            int numOfPositives = positives[0].length;
+            int numOfNegatives = negatives[0].length;
+            double[][] s = new double[2][2];
+            for (int k = 0; k < 2; k++) {
+                for (int l = 0; l < 2; l++) {
+                    s[k][l] = covariance(positivePlacements[k], positivePlacements[l], auc[k], auc[l]) / numOfPositives
+                            + covariance(negativePlacements[k], negativePlacements[l], auc[k], auc[l]) / numOfNegatives;
+                }
+            }
+            double standardError = Math.sqrt(s[0][0] + s[1][1] - 2 * s[0][1]);
+            double zScore = (auc[0] - auc[1]) / standardError;
+            double pValue = 2 * (1 - new NormalDistribution().cumulativeProbability(Math.abs(zScore)));
+
+            Assertions.assertEquals(auc[0], pairedTest.getAreaUnderRocCurve1(), TOLERANCE);
+            Assertions.assertEquals(auc[1], pairedTest.getAreaUnderRocCurve2(), TOLERANCE);
+            Assertions.assertEquals(s[0][0], pairedTest.getVariance1(), TOLERANCE);
+            Assertions.assertEquals(s[1][1], pairedTest.getVariance2(), TOLERANCE);
+            Assertions.assertEquals(s[0][1], pairedTest.getCovariance(), TOLERANCE);
+            Assertions.assertEquals(standardError, pairedTest.getStandardError(), TOLERANCE);
+            Assertions.assertEquals(zScore, pairedTest.getZScore(), 1e-9);
+            Assertions.assertEquals(pValue, pairedTest.getPValue(), 1e-9);
+
+            // the variance of each area is the one of its own curve
+            DeLongConfidenceInterval confidenceInterval = new DeLongConfidenceInterval(new DeLongROCCurve(observedPredictedValues1));
+            Assertions.assertEquals(confidenceInterval.getStandardError(), Math.sqrt(pairedTest.getVariance1()), TOLERANCE);
+        }
+    }
+
+    /**
+     * Test of class DeLongPairedTest. Cases must have the same observed
+     * values for both classifiers.
+     */
+    @Test
+    public void testDeLongPairedTestWithDifferentCases() {
+        List<ObservedPredictedValue> observedPredictedValues1 = new ArrayList<>();
+        List<ObservedPredictedValue> observedPredictedValues2 = new ArrayList<>();
+        observedPredictedValues1.add(new ObservedPredictedValue(1, 0.9));
+        observedPredictedValues1.add(new ObservedPredictedValue(0, 0.1));
+        observedPredictedValues2.add(new ObservedPredictedValue(0, 0.9));
+        observedPredictedValues2.add(new ObservedPredictedValue(1, 0.1));
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new DeLongPairedTest(observedPredictedValues1, observedPredictedValues2));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new DeLongPairedTest(observedPredictedValues1, observedPredictedValues1.subList(0, 1)));
+    }
+
+    private static double[] predictedValues(List<ObservedPredictedValue> observedPredictedValues, int observedValue) {
+        return observedPredictedValues.stream()
+                .filter(value -> value.getObservedValue() == observedValue)
+                .mapToDouble(ObservedPredictedValue::getPredictedValue)
+                .toArray();
+    }
+
+    private static double indicator(double positive, double negative) {
+        if (negative < positive) {
+            return 1.0;
+        } else if (negative == positive) {
+            return 0.5;
+        } else {
+            return 0.0;
+        }
+    }
+
+    private static double[] positivePlacements(double[] positives, double[] negatives) {
+        double[] placements = new double[positives.length];
+        for (int i = 0; i < positives.length; i++) {
+            for (double negative : negatives) {
+                placements[i] += indicator(positives[i], negative);
+            }
+            placements[i] /= negatives.length;
+        }
+
+        return placements;
+    }
+
+    private static double[] negativePlacements(double[] positives, double[] negatives) {
+        double[] placements = new double[negatives.length];
+        for (int j = 0; j < negatives.length; j++) {
+            for (double positive : positives) {
+                placements[j] += indicator(positive, negatives[j]);
+            }
+            placements[j] /= positives.length;
+        }
+
+        return placements;
+    }
+
+    private static double mannWhitney(double[] positives, double[] negatives) {
+        double sum = 0;
+        for (double positive : positives) {
+            for (double negative : negatives) {
+                sum += indicator(positive, negative);
+            }
+        }
+
+        return sum / ((double) positives.length * negatives.length);
+    }
+
+    private static double covariance(double[] values1, double[] values2, double mean1, double mean2) {
+        double result = 0;
+        for (int i = 0; i < values1.length; i++) {
+            result += (values1[i] - mean1) * (values2[i] - mean2);
+        }
+
+        return result / (values1.length - 1);
+    }
+
+}